@@ -0,0 +1,223 @@
+package com.moli.activiti.benchmark;
+
+import com.moli.activiti.common.HistoryQueryDTO;
+import com.moli.activiti.common.TaskCompleteDTO;
+import com.moli.activiti.service.ActService;
+import org.activiti.engine.TaskService;
+import org.activiti.engine.task.Task;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author moli
+ * @time 2024-07-30 10:12:57
+ * @description 引擎热点路径基准测试：发起、完成、拾取、待办查询、历史查询
+ * <p>
+ * 线程数通过 -t 指定，分配速率通过 -prof gc 采集，例如：
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="ActServiceBenchmark -t 8 -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class ActServiceBenchmark {
+
+    /**
+     * leave.bpmn20.xml 中的部门领导审批
+     */
+    static final String DEPT_TASK_KEY = "sid-9d144859-bf76-4a01-ba06-d80559ab330b";
+
+    /**
+     * leave.bpmn20.xml 中的人事审批，候选人李四、王五
+     */
+    static final String HR_TASK_KEY = "sid-cd377820-4a18-4fa8-b4bc-7aec55bc397a";
+
+    private static final int INBOX_USERS = 100;
+
+    private static final int POOL_SIZE = Integer.getInteger("act.bench.pool", 20000);
+
+    @Param({"full", "activity"})
+    public String historyLevel;
+
+    /**
+     * 预先写入的流程实例数，决定运行时表和历史表的规模
+     */
+    @Param({"0", "10000"})
+    public int seededInstances;
+
+    /**
+     * 待办缓存大小，0 表示相当于关闭缓存
+     */
+    @Param({"0", "10000"})
+    public int inboxCacheSize;
+
+    /**
+     * 是否开启历史明细异步写入
+     */
+    @Param({"false", "true"})
+    public boolean asyncHistory;
+
+    private ConfigurableApplicationContext context;
+
+    private ActService actService;
+
+    private TaskService taskService;
+
+    private String leaveId;
+
+    private final Queue<String> deptTasks = new ConcurrentLinkedQueue<>();
+
+    private final Queue<String> hrTasks = new ConcurrentLinkedQueue<>();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkApp.start(false,
+                "spring.activiti.history-level=" + historyLevel,
+                "act.inbox.max-size=" + inboxCacheSize,
+                "act.history.async.enabled=" + asyncHistory);
+        actService = context.getBean(ActService.class);
+        taskService = context.getBean(TaskService.class);
+        Map<String, String> definitions = BenchmarkApp.deployBundled(context);
+        leaveId = definitions.get("leave");
+
+        // 历史及运行时数据规模
+        startLeaves(seededInstances);
+        completeDeptTasks(seededInstances);
+
+        // 待办查询数据：每个用户若干个代办任务
+        List<Map<String, Object>> inboxVars = new ArrayList<>();
+        for (int i = 0; i < INBOX_USERS * 5; i++) {
+            Map<String, Object> vars = new HashMap<>();
+            vars.put("username", "bench");
+            vars.put("userName", "user-" + (i % INBOX_USERS));
+            inboxVars.add(vars);
+        }
+        actService.startProcesses(definitions.get("oa-leave-test-2"), inboxVars, results -> {
+        });
+    }
+
+    @Setup(Level.Iteration)
+    public void refill() {
+        int missingDept = POOL_SIZE - deptTasks.size();
+        if (missingDept > 0) {
+            startLeaves(missingDept);
+            deptTasks.addAll(taskIds(DEPT_TASK_KEY, missingDept));
+        }
+        int missingHr = POOL_SIZE - hrTasks.size();
+        if (missingHr > 0) {
+            startLeaves(missingHr);
+            completeDeptTasks(missingHr);
+            hrTasks.addAll(taskIds(HR_TASK_KEY, missingHr));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public boolean startProcess() {
+        return actService.startProcess(leaveId, leaveVars());
+    }
+
+    @Benchmark
+    public boolean completeTask() {
+        String taskId = deptTasks.poll();
+        if (taskId == null) throw new IllegalStateException("任务池已耗尽，调大 -Dact.bench.pool");
+        return actService.completeTask(taskId, Collections.singletonMap("permitType", 1));
+    }
+
+    @Benchmark
+    public Object claimTask() {
+        String taskId = hrTasks.poll();
+        if (taskId == null) throw new IllegalStateException("任务池已耗尽，调大 -Dact.bench.pool");
+        return actService.tryClaimTask(taskId, ThreadLocalRandom.current().nextBoolean() ? "李四" : "王五");
+    }
+
+    @Benchmark
+    public void queryAssigneeInbox(Blackhole blackhole) {
+        String user = "user-" + ThreadLocalRandom.current().nextInt(INBOX_USERS);
+        blackhole.consume(actService.getAllTaskByAssigneeName(user));
+    }
+
+    @Benchmark
+    public void queryCandidateInbox(Blackhole blackhole) {
+        blackhole.consume(actService.getTaskByCandidate("王五"));
+    }
+
+    @Benchmark
+    public void queryHistoryTaskPage(Blackhole blackhole) {
+        HistoryQueryDTO query = new HistoryQueryDTO();
+        query.setPageSize(50);
+        blackhole.consume(actService.pageHistoryTask(query));
+    }
+
+    private Map<String, Object> leaveVars() {
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("username", "bench");
+        vars.put("days", 3);
+        return vars;
+    }
+
+    private void startLeaves(int count) {
+        List<Map<String, Object>> varsList = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) varsList.add(leaveVars());
+        actService.startProcesses(leaveId, varsList, results -> {
+        });
+    }
+
+    /**
+     * 部门领导审批同意，流转到人事审批
+     */
+    private void completeDeptTasks(int count) {
+        Set<String> pooled = new HashSet<>(deptTasks);
+        List<TaskCompleteDTO> tasks = new ArrayList<>(count);
+        for (String taskId : taskIds(DEPT_TASK_KEY, count)) {
+            if (pooled.contains(taskId)) continue;
+            tasks.add(new TaskCompleteDTO(taskId, Collections.singletonMap("permitType", 1)));
+        }
+        actService.completeTasks(tasks);
+    }
+
+    /**
+     * 最新创建的任务，即刚发起的流程产生的任务
+     */
+    private List<String> taskIds(String taskDefinitionKey, int count) {
+        List<String> ids = new ArrayList<>(count);
+        for (Task task : taskService.createTaskQuery()
+                .taskDefinitionKey(taskDefinitionKey)
+                .orderByTaskCreateTime().desc()
+                .listPage(0, count)) {
+            ids.add(task.getId());
+        }
+        return ids;
+    }
+}
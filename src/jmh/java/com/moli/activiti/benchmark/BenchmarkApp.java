@@ -0,0 +1,68 @@
+package com.moli.activiti.benchmark;
+
+import com.moli.activiti.ActivitiDemoApplication;
+import org.activiti.engine.RepositoryService;
+import org.activiti.engine.repository.DeploymentBuilder;
+import org.activiti.engine.repository.ProcessDefinition;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author moli
+ * @time 2024-07-30 09:40:25
+ * @description 基准测试启动辅助，以 bench profile 启动应用并部署 resources 下自带的流程
+ */
+public final class BenchmarkApp {
+
+    public static final String[] BUNDLED_PROCESSES = {
+            "leave.bpmn20.xml",
+            "oa-leave.bpmn20.xml",
+            "oa-leave-test-1.bpmn20.xml",
+            "oa-leave-test-2.bpmn20.xml",
+            "oa-leave-test-3.bpmn20.xml",
+            "oa-leave-test-4.bpmn20.xml",
+            "oa-leave-test-5.bpmn20.xml",
+            "oa-leave-test6.bpmn20.xml"
+    };
+
+    private BenchmarkApp() {
+    }
+
+    /**
+     * 启动应用
+     *
+     * @param web        是否启动 web 容器
+     * @param properties 覆盖的配置，格式 key=value
+     */
+    public static ConfigurableApplicationContext start(boolean web, String... properties) {
+        return new SpringApplicationBuilder(ActivitiDemoApplication.class)
+                .web(web ? WebApplicationType.SERVLET : WebApplicationType.NONE)
+                .profiles(System.getProperty("act.bench.profile", "bench").split(","))
+                .properties(properties)
+                .run();
+    }
+
+    /**
+     * 部署自带的流程
+     *
+     * @return 流程定义 key -> 流程定义 id
+     */
+    public static Map<String, String> deployBundled(ConfigurableApplicationContext context) {
+        RepositoryService repositoryService = context.getBean(RepositoryService.class);
+        DeploymentBuilder builder = repositoryService.createDeployment().name("benchmark");
+        for (String resource : BUNDLED_PROCESSES) {
+            builder.addClasspathResource(resource);
+        }
+        String deploymentId = builder.deploy().getId();
+        Map<String, String> definitions = new HashMap<>();
+        for (ProcessDefinition definition : repositoryService.createProcessDefinitionQuery()
+                .deploymentId(deploymentId).list()) {
+            definitions.put(definition.getKey(), definition.getId());
+        }
+        return definitions;
+    }
+}
@@ -0,0 +1,64 @@
+package com.moli.activiti.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author moli
+ * @time 2024-07-31 09:21:40
+ * @description 按步骤记录耗时并输出分位数
+ */
+public class LatencyRecorder {
+
+    private final Map<String, Samples> steps = new ConcurrentHashMap<>();
+
+    public void record(String step, long nanos, boolean success) {
+        steps.computeIfAbsent(step, k -> new Samples()).add(nanos, success);
+    }
+
+    public long count(String step) {
+        Samples samples = steps.get(step);
+        return samples == null ? 0 : samples.size;
+    }
+
+    public void report(long elapsedMillis) {
+        double seconds = elapsedMillis / 1000.0;
+        System.out.printf("%-16s %10s %10s %10s %10s %10s %10s %10s%n",
+                "step", "count", "failed", "ops/s", "p50(ms)", "p95(ms)", "p99(ms)", "max(ms)");
+        for (Map.Entry<String, Samples> entry : new TreeMap<>(steps).entrySet()) {
+            long[] sorted = entry.getValue().snapshot();
+            Arrays.sort(sorted);
+            System.out.printf("%-16s %10d %10d %10.1f %10.2f %10.2f %10.2f %10.2f%n",
+                    entry.getKey(), sorted.length, entry.getValue().failed, sorted.length / seconds,
+                    percentile(sorted, 0.50), percentile(sorted, 0.95),
+                    percentile(sorted, 0.99), percentile(sorted, 1.0));
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000_000.0;
+    }
+
+    private static class Samples {
+
+        private long[] values = new long[1024];
+
+        private int size;
+
+        private long failed;
+
+        synchronized void add(long nanos, boolean success) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = nanos;
+            if (!success) failed++;
+        }
+
+        synchronized long[] snapshot() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.moli.activiti.loadtest;
+
+import com.moli.activiti.benchmark.BenchmarkApp;
+import org.activiti.engine.HistoryService;
+import org.activiti.engine.TaskService;
+import org.activiti.engine.task.Task;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * @author moli
+ * @time 2024-07-31 09:48:16
+ * @description 请假流程压测：发起 -> 部门领导(张三)审批 -> 人事(李四/王五)拾取并审批 -> 销假，
+ * 不同意时进入调整申请，按概率重新申请或结束。所有操作经 http 调用 ActivitiController，
+ * 调整申请和销假没有代办人，由压测程序直接查询任务 id 后再调用接口完成。
+ * <p>
+ * 默认使用内存 H2，-Dact.load.profile=default 时使用 application.yaml 中的本地 mysql，运行方式见 pom.xml 中的 benchmark profile
+ */
+public class LeaveLoadGenerator {
+
+    private static final String DEPT_TASK_KEY = "sid-9d144859-bf76-4a01-ba06-d80559ab330b";
+
+    private static final String HR_TASK_KEY = "sid-cd377820-4a18-4fa8-b4bc-7aec55bc397a";
+
+    private static final String CANCEL_TASK_KEY = "sid-f48bb632-6387-4858-a6bf-62f0ddc2a4ac";
+
+    private static final String ADJUST_TASK_KEY = "sid-bb24c07a-20b6-42cc-87b5-bda6c6b9eae5";
+
+    private static final int DURATION = Integer.getInteger("act.load.duration", 60);
+
+    private static final int APPLICANTS = Integer.getInteger("act.load.applicants", 4);
+
+    private static final double DEPT_APPROVE_RATE = Double.parseDouble(System.getProperty("act.load.deptApproveRate", "0.8"));
+
+    private static final double HR_APPROVE_RATE = Double.parseDouble(System.getProperty("act.load.hrApproveRate", "0.9"));
+
+    private static final double REAPPLY_RATE = Double.parseDouble(System.getProperty("act.load.reapplyRate", "0.5"));
+
+    private final LatencyRecorder recorder = new LatencyRecorder();
+
+    private final RestTemplate restTemplate = new RestTemplate();
+
+    private TaskService taskService;
+
+    private String baseUrl;
+
+    private String leaveId;
+
+    private volatile boolean running = true;
+
+    public static void main(String[] args) throws Exception {
+        new LeaveLoadGenerator().run();
+    }
+
+    private void run() throws Exception {
+        System.setProperty("act.bench.profile", System.getProperty("act.load.profile", "bench"));
+        ConfigurableApplicationContext context = BenchmarkApp.start(true, "server.port=0");
+        try {
+            taskService = context.getBean(TaskService.class);
+            HistoryService historyService = context.getBean(HistoryService.class);
+            baseUrl = "http://127.0.0.1:" + context.getBean(Environment.class).getProperty("local.server.port") + "/act/";
+            leaveId = BenchmarkApp.deployBundled(context).get("leave");
+            long finishedBefore = historyService.createHistoricProcessInstanceQuery()
+                    .processDefinitionId(leaveId).finished().count();
+
+            List<Runnable> actors = new ArrayList<>();
+            for (int i = 0; i < APPLICANTS; i++) {
+                String applicant = "applicant-" + i;
+                actors.add(() -> loop(() -> apply(applicant)));
+            }
+            actors.add(() -> loop(this::departmentApprove));
+            actors.add(() -> loop(() -> hrApprove("李四")));
+            actors.add(() -> loop(() -> hrApprove("王五")));
+            actors.add(() -> loop(this::adjustOrCancel));
+
+            ExecutorService executor = Executors.newFixedThreadPool(actors.size());
+            long start = System.currentTimeMillis();
+            actors.forEach(executor::execute);
+            TimeUnit.SECONDS.sleep(DURATION);
+            running = false;
+            executor.shutdown();
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+            long elapsed = System.currentTimeMillis() - start;
+
+            long finished = historyService.createHistoricProcessInstanceQuery()
+                    .processDefinitionId(leaveId).finished().count() - finishedBefore;
+            System.out.printf("%n持续 %d 秒, 发起 %d, 结束流程 %d, 吞吐 %.1f 流程/秒%n",
+                    elapsed / 1000, recorder.count("start"), finished, finished * 1000.0 / elapsed);
+            recorder.report(elapsed);
+        } finally {
+            context.close();
+        }
+    }
+
+    private void loop(BooleanSupplier action) {
+        while (running) {
+            try {
+                // 没有可处理的任务时稍作等待，模拟轮询
+                if (!action.getAsBoolean()) TimeUnit.MILLISECONDS.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private boolean apply(String applicant) {
+        MultiValueMap<String, Object> form = new LinkedMultiValueMap<>();
+        form.add("processDefinitionId", leaveId);
+        form.add("username", applicant);
+        form.add("days", ThreadLocalRandom.current().nextInt(1, 6));
+        return timed("start", () -> post("startProcess", form));
+    }
+
+    private boolean departmentApprove() {
+        List<String> taskIds = queryIds("queryByAssigneeTask?assignee=张三", "queryAssignee");
+        for (String taskId : taskIds) {
+            int permitType = chance(DEPT_APPROVE_RATE) ? 1 : 0;
+            timed("deptApprove", () -> complete(taskId, Collections.singletonMap("permitType", permitType)));
+        }
+        return !taskIds.isEmpty();
+    }
+
+    private boolean hrApprove(String candidate) {
+        List<String> taskIds = queryIds("queryTaskByCandidateUser?candidate=" + candidate, "queryCandidate");
+        for (String taskId : taskIds) {
+            MultiValueMap<String, Object> form = new LinkedMultiValueMap<>();
+            form.add("taskId", taskId);
+            form.add("candidate", candidate);
+            // 与另一位人事同时拾取时会失败，属于正常竞争
+            if (!timed("claim", () -> post("claimTask", form))) continue;
+            int permitType = chance(HR_APPROVE_RATE) ? 1 : 0;
+            timed("hrApprove", () -> complete(taskId, Collections.singletonMap("permitType", permitType)));
+        }
+        return !taskIds.isEmpty();
+    }
+
+    private boolean adjustOrCancel() {
+        List<Task> tasks = new ArrayList<>();
+        tasks.addAll(taskService.createTaskQuery().taskDefinitionKey(CANCEL_TASK_KEY).listPage(0, 50));
+        tasks.addAll(taskService.createTaskQuery().taskDefinitionKey(ADJUST_TASK_KEY).listPage(0, 50));
+        for (Task task : tasks) {
+            if (CANCEL_TASK_KEY.equals(task.getTaskDefinitionKey())) {
+                timed("cancelLeave", () -> complete(task.getId(), Collections.emptyMap()));
+            } else {
+                int type = chance(REAPPLY_RATE) ? 1 : 0;
+                timed(type == 1 ? "reapply" : "abandon", () -> complete(task.getId(), Collections.singletonMap("type", type)));
+            }
+        }
+        return !tasks.isEmpty();
+    }
+
+    private boolean complete(String taskId, Map<String, Object> vars) {
+        MultiValueMap<String, Object> form = new LinkedMultiValueMap<>();
+        form.add("taskId", taskId);
+        vars.forEach(form::add);
+        return post("completeTask", form);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> queryIds(String path, String step) {
+        List<String> ids = new ArrayList<>();
+        timed(step, () -> {
+            Map<String, Object> body = restTemplate.getForObject(baseUrl + path, Map.class);
+            if (body == null || !(body.get("data") instanceof List)) return false;
+            for (Map<String, Object> task : (List<Map<String, Object>>) body.get("data")) {
+                ids.add(String.valueOf(task.get("id")));
+            }
+            return true;
+        });
+        return ids;
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean post(String path, MultiValueMap<String, Object> form) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+        Map<String, Object> body = restTemplate.postForObject(baseUrl + path, new HttpEntity<>(form, headers), Map.class);
+        return body != null && Boolean.TRUE.equals(body.get("flag"));
+    }
+
+    private boolean timed(String step, BooleanSupplier action) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            success = action.getAsBoolean();
+            return success;
+        } catch (Exception e) {
+            return false;
+        } finally {
+            recorder.record(step, System.nanoTime() - start, success);
+        }
+    }
+
+    private static boolean chance(double rate) {
+        return ThreadLocalRandom.current().nextDouble() < rate;
+    }
+}
@@ -0,0 +1,185 @@
+package com.moli.activiti.loadtest;
+
+import com.moli.activiti.benchmark.BenchmarkApp;
+import com.moli.activiti.service.ActService;
+import org.activiti.engine.TaskService;
+import org.activiti.engine.task.Task;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * @author moli
+ * @time 2024-08-21 14:07:32
+ * @description 平台线程与虚拟线程模式对比：大量并发客户端经 http 调用 startProcess / completeTask，
+ * 输出吞吐、分位数耗时、峰值线程数以及每个在途请求平均占用的堆内存。
+ * 两种模式分别运行后对比，-Dact.load.virtual=true 需要 JDK 21。
+ * 线程栈不在堆内，需要时加 -XX:NativeMemoryTracking=summary 后用 jcmd &lt;pid&gt; VM.native_memory 查看 Thread 一项
+ * <p>
+ * 客户端使用固定大小的平台线程池，两种模式下相同，差异只来自服务端
+ */
+public class VirtualThreadLoadTest {
+
+    private static final String DEPT_TASK_KEY = "sid-9d144859-bf76-4a01-ba06-d80559ab330b";
+
+    private static final int DURATION = Integer.getInteger("act.load.duration", 60);
+
+    private static final int CONCURRENCY = Integer.getInteger("act.load.concurrency", 400);
+
+    private static final boolean VIRTUAL = Boolean.getBoolean("act.load.virtual");
+
+    private final LatencyRecorder recorder = new LatencyRecorder();
+
+    private final RestTemplate restTemplate = new RestTemplate();
+
+    private final Queue<String> deptTasks = new ConcurrentLinkedQueue<>();
+
+    private String baseUrl;
+
+    private String leaveId;
+
+    private volatile boolean running = true;
+
+    public static void main(String[] args) throws Exception {
+        // HttpURLConnection 默认每个地址只保持 5 个长连接
+        System.setProperty("http.maxConnections", String.valueOf(CONCURRENCY));
+        new VirtualThreadLoadTest().run();
+    }
+
+    private void run() throws Exception {
+        System.setProperty("act.bench.profile", System.getProperty("act.load.profile", "bench"));
+        ConfigurableApplicationContext context = BenchmarkApp.start(true, "server.port=0",
+                "act.virtual-threads.enabled=" + VIRTUAL,
+                "server.tomcat.accept-count=" + CONCURRENCY * 2);
+        try {
+            ActService actService = context.getBean(ActService.class);
+            TaskService taskService = context.getBean(TaskService.class);
+            baseUrl = "http://127.0.0.1:" + context.getBean(Environment.class).getProperty("local.server.port") + "/act/";
+            leaveId = BenchmarkApp.deployBundled(context).get("leave");
+
+            // 预先发起流程，作为 completeTask 的任务池
+            int prefill = CONCURRENCY * 50;
+            List<Map<String, Object>> varsList = new ArrayList<>(prefill);
+            for (int i = 0; i < prefill; i++) varsList.add(leaveVars("prefill-" + i));
+            actService.startProcesses(leaveId, varsList, results -> {
+            });
+            for (Task task : taskService.createTaskQuery().taskDefinitionKey(DEPT_TASK_KEY).listPage(0, prefill)) {
+                deptTasks.add(task.getId());
+            }
+
+            MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            System.gc();
+            long idleHeap = memory.getHeapMemoryUsage().getUsed();
+            int idleThreads = threads.getThreadCount();
+            AtomicLong heapSum = new AtomicLong();
+            AtomicLong samples = new AtomicLong();
+            ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+            sampler.scheduleAtFixedRate(() -> {
+                heapSum.addAndGet(memory.getHeapMemoryUsage().getUsed());
+                samples.incrementAndGet();
+            }, 1, 1, TimeUnit.SECONDS);
+
+            ExecutorService clients = Executors.newFixedThreadPool(CONCURRENCY);
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < CONCURRENCY; i++) {
+                String applicant = "applicant-" + i;
+                boolean starter = i % 2 == 0;
+                clients.execute(() -> loop(starter ? () -> apply(applicant) : this::approve));
+            }
+            TimeUnit.SECONDS.sleep(DURATION);
+            running = false;
+            int peakThreads = threads.getPeakThreadCount();
+            clients.shutdown();
+            clients.awaitTermination(30, TimeUnit.SECONDS);
+            sampler.shutdown();
+            long elapsed = System.currentTimeMillis() - start;
+
+            long avgHeap = samples.get() == 0 ? idleHeap : heapSum.get() / samples.get();
+            System.out.printf("%n模式 %s, 并发 %d, 持续 %d 秒%n", VIRTUAL ? "virtual" : "platform", CONCURRENCY, elapsed / 1000);
+            System.out.printf("平台线程数 空闲 %d, 峰值 %d（含 %d 个客户端线程）%n", idleThreads, peakThreads, CONCURRENCY);
+            System.out.printf("平均堆内存 %.1f MB, 每个在途请求约 %.1f KB%n",
+                    avgHeap / 1048576.0, Math.max(0, avgHeap - idleHeap) / 1024.0 / CONCURRENCY);
+            recorder.report(elapsed);
+        } finally {
+            context.close();
+        }
+    }
+
+    private void loop(BooleanSupplier action) {
+        while (running) {
+            try {
+                // 任务池耗尽时稍作等待
+                if (!action.getAsBoolean()) TimeUnit.MILLISECONDS.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private boolean apply(String applicant) {
+        MultiValueMap<String, Object> form = new LinkedMultiValueMap<>();
+        form.add("processDefinitionId", leaveId);
+        leaveVars(applicant).forEach(form::add);
+        return timed("startProcess", () -> post("startProcess", form));
+    }
+
+    private boolean approve() {
+        String taskId = deptTasks.poll();
+        if (taskId == null) return false;
+        MultiValueMap<String, Object> form = new LinkedMultiValueMap<>();
+        form.add("taskId", taskId);
+        form.add("permitType", 1);
+        return timed("completeTask", () -> post("completeTask", form));
+    }
+
+    private static Map<String, Object> leaveVars(String applicant) {
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("username", applicant);
+        vars.put("days", 3);
+        return vars;
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean post(String path, MultiValueMap<String, Object> form) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+        Map<String, Object> body = restTemplate.postForObject(baseUrl + path, new HttpEntity<>(form, headers), Map.class);
+        return body != null && Boolean.TRUE.equals(body.get("flag"));
+    }
+
+    private boolean timed(String step, BooleanSupplier action) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            success = action.getAsBoolean();
+            return success;
+        } catch (Exception e) {
+            return false;
+        } finally {
+            recorder.record(step, System.nanoTime() - start, success);
+        }
+    }
+}
@@ -0,0 +1,446 @@
+package com.moli.activiti.analytics;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.moli.activiti.config.ActProperties;
+import com.moli.activiti.entity.ActivityStat;
+import com.moli.activiti.entity.DecisionStat;
+import com.moli.activiti.mapper.ActivityStatMapper;
+import com.moli.activiti.mapper.DecisionStatMapper;
+import lombok.extern.slf4j.Slf4j;
+import com.moli.activiti.service.support.StreamingJdbcTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * @author moli
+ * @time 2024-08-16 10:20:36
+ * @description 审批统计聚合：引擎事件在事务提交后累加到内存增量，定时以 upsert 合并到统计表，
+ * 避免每个事务都更新同一统计行造成锁竞争；支持从历史表重建
+ */
+@Slf4j
+@Component
+public class AnalyticsAggregator {
+
+    private static final String[] SKIPPED_TYPE_SUFFIXES = {"Gateway", "Event"};
+
+    private static final int REBUILD_FETCH_SIZE = 1000;
+
+    @Resource
+    private ActivityStatMapper activityStatMapper;
+
+    @Resource
+    private DecisionStatMapper decisionStatMapper;
+
+    @Resource
+    private DataSource dataSource;
+
+    @Resource
+    private PlatformTransactionManager transactionManager;
+
+    @Resource
+    private ActProperties actProperties;
+
+    private JdbcTemplate rebuildJdbcTemplate;
+
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 写入增量时持有读锁，切换增量表时持有写锁
+     */
+    private final ReentrantReadWriteLock pendingLock = new ReentrantReadWriteLock();
+
+    /**
+     * 合并与重建互斥
+     */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private Map<String, ActivityStat> pendingActivities = new ConcurrentHashMap<>();
+
+    private Map<String, DecisionStat> pendingDecisions = new ConcurrentHashMap<>();
+
+    /**
+     * 最近一次重建已从历史表计算的时间区间，在快照建立时与取出增量一起设置（写锁内）
+     */
+    private volatile RebuildWindow rebuildWindow;
+
+    @PostConstruct
+    public void init() {
+        // 重建扫描逐行流式读取
+        rebuildJdbcTemplate = new StreamingJdbcTemplate(dataSource, REBUILD_FETCH_SIZE);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flush();
+    }
+
+    /**
+     * 活动结束
+     */
+    public void recordActivity(String processDefinitionId, String activityId, String activityName,
+                               String activityType, Date endTime, long durationMillis) {
+        if (!isMeasured(activityType)) return;
+        ActivityStat delta = activityStat(statDate(endTime), keyOf(processDefinitionId), activityId,
+                DurationBuckets.indexOf(durationMillis), activityName);
+        delta.setCnt(1L);
+        delta.setTotalMillis(durationMillis);
+        delta.setMaxMillis(durationMillis);
+        pendingLock.readLock().lock();
+        try {
+            RebuildWindow window = rebuildWindow;
+            if (window != null && window.covers(endTime)) {
+                if (!window.committed) window.activities.merge(activityKey(delta), delta, AnalyticsAggregator::mergeActivity);
+                return;
+            }
+            pendingActivities.merge(activityKey(delta), delta, AnalyticsAggregator::mergeActivity);
+        } finally {
+            pendingLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 经过网关的分支
+     */
+    public void recordDecision(String processDefinitionId, String gatewayId, String targetActivityId,
+                               String targetActivityName, Date time) {
+        DecisionStat delta = decisionStat(statDate(time), keyOf(processDefinitionId), gatewayId,
+                targetActivityId, targetActivityName);
+        delta.setCnt(1L);
+        pendingLock.readLock().lock();
+        try {
+            RebuildWindow window = rebuildWindow;
+            if (window != null && window.covers(time)) {
+                if (!window.committed) window.decisions.merge(decisionKey(delta), delta, AnalyticsAggregator::mergeDecision);
+                return;
+            }
+            pendingDecisions.merge(decisionKey(delta), delta, AnalyticsAggregator::mergeDecision);
+        } finally {
+            pendingLock.readLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${act.analytics.flush-interval:10000}")
+    public void flush() {
+        // 重建或上一轮合并进行中时跳过本轮，增量留到下次合并，不占用调度线程等待
+        if (!flushLock.tryLock()) return;
+        try {
+            Map<String, ActivityStat> activities;
+            Map<String, DecisionStat> decisions;
+            pendingLock.writeLock().lock();
+            try {
+                activities = pendingActivities;
+                decisions = pendingDecisions;
+                pendingActivities = new ConcurrentHashMap<>();
+                pendingDecisions = new ConcurrentHashMap<>();
+            } finally {
+                pendingLock.writeLock().unlock();
+            }
+            if (activities.isEmpty() && decisions.isEmpty()) return;
+            try {
+                // 同一事务写入，失败时整体回滚后放回增量，下次合并重试
+                transactionTemplate.execute(status -> {
+                    write(activities.values(), decisions.values());
+                    return null;
+                });
+            } catch (Exception e) {
+                restore(activities, decisions);
+                log.error("审批统计合并失败, 增量保留至下次合并: {}", e.getMessage());
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 从 ACT_HI_ACTINST 重建 [from, to) 日期内的统计，截止到当前时刻，之后的事件由增量累计
+     *
+     * @return 扫描的历史活动数
+     */
+    public long rebuild(LocalDate from, LocalDate to) {
+        // 重建过程中定时合并跳过，新增量留在内存中
+        flushLock.lock();
+        try {
+            Date start = startOf(from);
+            Map<String, ActivityStat> activities = new HashMap<>();
+            Map<String, DecisionStat> decisions = new HashMap<>();
+            Map<String, ActivityStat> pendingBefore = new HashMap<>();
+            Map<String, DecisionStat> pendingBeforeDecisions = new HashMap<>();
+            long[] rows = {0};
+            RebuildWindow[] window = new RebuildWindow[1];
+            // 扫描在一致性快照中进行：持有写锁取出已有增量并建立快照，此前提交的事件都在快照中，
+            // 重建范围内的增量丢弃，由历史数据重新计算。事件在事务提交后才累加，快照前已提交、
+            // 但快照后才累加的事件会同时出现在快照和新增量中，因此事件时间落在扫描区间内的迟到增量
+            // 不再计入（事务跨越快照时刻的长事务会因此少计，重建失败时放回）
+            TransactionTemplate snapshot = new TransactionTemplate(transactionManager);
+            snapshot.setReadOnly(true);
+            snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+            try {
+                snapshot.execute(status -> {
+                    Date end;
+                    pendingLock.writeLock().lock();
+                    try {
+                        pendingBefore.putAll(pendingActivities);
+                        pendingBeforeDecisions.putAll(pendingDecisions);
+                        pendingActivities = new ConcurrentHashMap<>();
+                        pendingDecisions = new ConcurrentHashMap<>();
+                        rebuildJdbcTemplate.queryForList("SELECT ID_ FROM ACT_HI_ACTINST LIMIT 1");
+                        Date now = new Date();
+                        end = to == null ? now : new Date(Math.min(startOf(to).getTime(), now.getTime()));
+                        window[0] = new RebuildWindow(start, end);
+                        rebuildWindow = window[0];
+                    } finally {
+                        pendingLock.writeLock().unlock();
+                    }
+                    scan(start, end, activities, decisions, rows);
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                abort(window[0], pendingBefore, pendingBeforeDecisions);
+                throw e;
+            }
+            // 范围外的增量照常合并
+            pendingBefore.values().stream()
+                    .filter(stat -> !inRange(stat.getStatDate(), from, to))
+                    .forEach(stat -> activities.merge(activityKey(stat), stat, AnalyticsAggregator::mergeActivity));
+            pendingBeforeDecisions.values().stream()
+                    .filter(stat -> !inRange(stat.getStatDate(), from, to))
+                    .forEach(stat -> decisions.merge(decisionKey(stat), stat, AnalyticsAggregator::mergeDecision));
+
+            try {
+                transactionTemplate.execute(status -> {
+                    activityStatMapper.delete(Wrappers.<ActivityStat>lambdaQuery()
+                            .ge(ActivityStat::getStatDate, from)
+                            .lt(to != null, ActivityStat::getStatDate, to));
+                    decisionStatMapper.delete(Wrappers.<DecisionStat>lambdaQuery()
+                            .ge(DecisionStat::getStatDate, from)
+                            .lt(to != null, DecisionStat::getStatDate, to));
+                    write(activities.values(), decisions.values());
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                abort(window[0], pendingBefore, pendingBeforeDecisions);
+                throw e;
+            }
+            // 重建已生效，区间内的迟到增量已包含在历史数据中
+            window[0].committed = true;
+            window[0].activities.clear();
+            window[0].decisions.clear();
+            log.info("审批统计重建完成, {} ~ {}, 历史活动: {}", from, to, rows[0]);
+            return rows[0];
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 扫描区间内结束的活动，以及区间内开始的活动（网关之后的分支可能尚未结束）；
+     * 分支按网关的结束时间计入
+     */
+    private void scan(Date start, Date end, Map<String, ActivityStat> activities,
+                      Map<String, DecisionStat> decisions, long[] rows) {
+        String[] previous = new String[3];
+        Date[] previousEnd = new Date[1];
+        rebuildJdbcTemplate.query("SELECT PROC_INST_ID_, PROC_DEF_ID_, ACT_ID_, ACT_NAME_, ACT_TYPE_,"
+                + " END_TIME_, DURATION_ FROM ACT_HI_ACTINST"
+                + " WHERE (END_TIME_ >= ? AND END_TIME_ < ?) OR (START_TIME_ >= ? AND START_TIME_ < ?)"
+                + " ORDER BY PROC_INST_ID_ ASC, START_TIME_ ASC, ID_ ASC", rs -> {
+            rows[0]++;
+            String processInstanceId = rs.getString(1);
+            String processDefinitionId = rs.getString(2);
+            String activityId = rs.getString(3);
+            String activityName = rs.getString(4);
+            String activityType = rs.getString(5);
+            Timestamp endTime = rs.getTimestamp(6);
+            long duration = rs.getLong(7);
+            boolean ended = endTime != null && !endTime.before(start) && endTime.before(end);
+            // 同一流程实例中紧随网关之后的活动即网关选择的分支
+            if (processInstanceId.equals(previous[0]) && previous[2] != null
+                    && previous[2].endsWith("Gateway") && previousEnd[0] != null) {
+                DecisionStat delta = decisionStat(statDate(previousEnd[0]), keyOf(processDefinitionId),
+                        previous[1], activityId, activityName);
+                delta.setCnt(1L);
+                decisions.merge(decisionKey(delta), delta, AnalyticsAggregator::mergeDecision);
+            }
+            if (ended && isMeasured(activityType)) {
+                ActivityStat delta = activityStat(statDate(endTime), keyOf(processDefinitionId), activityId,
+                        DurationBuckets.indexOf(duration), activityName);
+                delta.setCnt(1L);
+                delta.setTotalMillis(duration);
+                delta.setMaxMillis(duration);
+                activities.merge(activityKey(delta), delta, AnalyticsAggregator::mergeActivity);
+            }
+            previous[0] = processInstanceId;
+            previous[1] = activityId;
+            previous[2] = activityType;
+            previousEnd[0] = ended ? endTime : null;
+        }, start, end, start, end);
+    }
+
+    /**
+     * 重建未生效，取出的增量与期间收到的迟到增量放回
+     */
+    private void abort(RebuildWindow window, Map<String, ActivityStat> activities,
+                       Map<String, DecisionStat> decisions) {
+        if (window != null) {
+            pendingLock.writeLock().lock();
+            try {
+                if (rebuildWindow == window) rebuildWindow = null;
+            } finally {
+                pendingLock.writeLock().unlock();
+            }
+            restore(window.activities, window.decisions);
+        }
+        restore(activities, decisions);
+    }
+
+    private void restore(Map<String, ActivityStat> activities, Map<String, DecisionStat> decisions) {
+        pendingLock.readLock().lock();
+        try {
+            activities.forEach((key, stat) -> pendingActivities.merge(key, stat, AnalyticsAggregator::mergeActivity));
+            decisions.forEach((key, stat) -> pendingDecisions.merge(key, stat, AnalyticsAggregator::mergeDecision));
+        } finally {
+            pendingLock.readLock().unlock();
+        }
+    }
+
+    private void write(Collection<ActivityStat> activities, Collection<DecisionStat> decisions) {
+        int size = Math.max(1, actProperties.getAnalytics().getWriteBatchSize());
+        for (List<ActivityStat> chunk : chunks(activities, size)) activityStatMapper.upsert(chunk);
+        for (List<DecisionStat> chunk : chunks(decisions, size)) decisionStatMapper.upsert(chunk);
+    }
+
+    private static <T> List<List<T>> chunks(Collection<T> items, int size) {
+        List<List<T>> chunks = new ArrayList<>();
+        List<T> chunk = new ArrayList<>(size);
+        for (T item : items) {
+            chunk.add(item);
+            if (chunk.size() == size) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>(size);
+            }
+        }
+        if (!chunk.isEmpty()) chunks.add(chunk);
+        return chunks;
+    }
+
+    private static boolean isMeasured(String activityType) {
+        if (activityType == null) return false;
+        for (String suffix : SKIPPED_TYPE_SUFFIXES) {
+            if (activityType.endsWith(suffix)) return false;
+        }
+        return true;
+    }
+
+    private static ActivityStat activityStat(LocalDate statDate, String processDefinitionKey, String activityId,
+                                             int durationBucket, String activityName) {
+        ActivityStat stat = new ActivityStat();
+        stat.setStatDate(statDate);
+        stat.setProcessDefinitionKey(processDefinitionKey);
+        stat.setActivityId(activityId);
+        stat.setDurationBucket(durationBucket);
+        stat.setActivityName(activityName);
+        return stat;
+    }
+
+    private static DecisionStat decisionStat(LocalDate statDate, String processDefinitionKey, String gatewayId,
+                                             String targetActivityId, String targetActivityName) {
+        DecisionStat stat = new DecisionStat();
+        stat.setStatDate(statDate);
+        stat.setProcessDefinitionKey(processDefinitionKey);
+        stat.setGatewayId(gatewayId);
+        stat.setTargetActivityId(targetActivityId);
+        stat.setTargetActivityName(targetActivityName);
+        return stat;
+    }
+
+    private static ActivityStat mergeActivity(ActivityStat a, ActivityStat b) {
+        a.setCnt(a.getCnt() + b.getCnt());
+        a.setTotalMillis(a.getTotalMillis() + b.getTotalMillis());
+        a.setMaxMillis(Math.max(a.getMaxMillis(), b.getMaxMillis()));
+        if (b.getActivityName() != null) a.setActivityName(b.getActivityName());
+        return a;
+    }
+
+    private static DecisionStat mergeDecision(DecisionStat a, DecisionStat b) {
+        a.setCnt(a.getCnt() + b.getCnt());
+        if (b.getTargetActivityName() != null) a.setTargetActivityName(b.getTargetActivityName());
+        return a;
+    }
+
+    private static String activityKey(ActivityStat stat) {
+        return stat.getStatDate() + "|" + stat.getProcessDefinitionKey() + "|" + stat.getActivityId()
+                + "|" + stat.getDurationBucket();
+    }
+
+    private static String decisionKey(DecisionStat stat) {
+        return stat.getStatDate() + "|" + stat.getProcessDefinitionKey() + "|" + stat.getGatewayId()
+                + "|" + stat.getTargetActivityId();
+    }
+
+    static String keyOf(String processDefinitionId) {
+        if (processDefinitionId == null) return "";
+        int split = processDefinitionId.indexOf(':');
+        return split > 0 ? processDefinitionId.substring(0, split) : processDefinitionId;
+    }
+
+    private static LocalDate statDate(Date date) {
+        Date value = date == null ? new Date() : date;
+        return LocalDateTime.ofInstant(value.toInstant(), ZoneId.systemDefault()).toLocalDate();
+    }
+
+    private static boolean inRange(LocalDate date, LocalDate from, LocalDate to) {
+        return !date.isBefore(from) && (to == null || date.isBefore(to));
+    }
+
+    private static Date startOf(LocalDate date) {
+        return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    /**
+     * 重建扫描覆盖的 [start, end) 时间区间；重建进行中收到的区间内增量暂存，生效后丢弃
+     */
+    private static class RebuildWindow {
+
+        private final Date start;
+
+        private final Date end;
+
+        private final Map<String, ActivityStat> activities = new ConcurrentHashMap<>();
+
+        private final Map<String, DecisionStat> decisions = new ConcurrentHashMap<>();
+
+        private volatile boolean committed;
+
+        RebuildWindow(Date start, Date end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        boolean covers(Date time) {
+            return time != null && !time.before(start) && time.before(end);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.moli.activiti.analytics;
+
+import com.moli.activiti.config.ActProperties;
+import org.activiti.engine.RuntimeService;
+import org.activiti.engine.delegate.event.ActivitiEntityEvent;
+import org.activiti.engine.delegate.event.ActivitiEvent;
+import org.activiti.engine.delegate.event.ActivitiEventListener;
+import org.activiti.engine.delegate.event.ActivitiEventType;
+import org.activiti.engine.delegate.event.ActivitiSequenceFlowTakenEvent;
+import org.activiti.engine.history.HistoricActivityInstance;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.Date;
+
+/**
+ * @author moli
+ * @time 2024-08-16 11:02:49
+ * @description 活动结束及网关分支事件，事务提交后计入 {@link AnalyticsAggregator}；
+ * 活动耗时依赖历史级别不低于 activity
+ */
+@Component
+public class AnalyticsEventListener implements ActivitiEventListener {
+
+    @Resource
+    private RuntimeService runtimeService;
+
+    @Resource
+    private AnalyticsAggregator analyticsAggregator;
+
+    @Resource
+    private ActProperties actProperties;
+
+    @PostConstruct
+    public void register() {
+        if (!actProperties.getAnalytics().isEnabled()) return;
+        runtimeService.addEventListener(this,
+                ActivitiEventType.HISTORIC_ACTIVITY_INSTANCE_ENDED,
+                ActivitiEventType.SEQUENCEFLOW_TAKEN);
+    }
+
+    @Override
+    public void onEvent(ActivitiEvent event) {
+        Runnable record = null;
+        if (event.getType() == ActivitiEventType.HISTORIC_ACTIVITY_INSTANCE_ENDED
+                && event instanceof ActivitiEntityEvent) {
+            HistoricActivityInstance activity = (HistoricActivityInstance) ((ActivitiEntityEvent) event).getEntity();
+            String processDefinitionId = activity.getProcessDefinitionId();
+            String activityId = activity.getActivityId();
+            String activityName = activity.getActivityName();
+            String activityType = activity.getActivityType();
+            Date endTime = activity.getEndTime();
+            long duration = activity.getDurationInMillis() == null ? 0 : activity.getDurationInMillis();
+            record = () -> analyticsAggregator.recordActivity(processDefinitionId, activityId, activityName,
+                    activityType, endTime, duration);
+        } else if (event instanceof ActivitiSequenceFlowTakenEvent) {
+            ActivitiSequenceFlowTakenEvent flow = (ActivitiSequenceFlowTakenEvent) event;
+            if (flow.getSourceActivityType() == null || !flow.getSourceActivityType().endsWith("Gateway")) return;
+            String processDefinitionId = flow.getProcessDefinitionId();
+            String gatewayId = flow.getSourceActivityId();
+            String targetId = flow.getTargetActivityId();
+            String targetName = flow.getTargetActivityName();
+            Date time = new Date();
+            record = () -> analyticsAggregator.recordDecision(processDefinitionId, gatewayId, targetId, targetName, time);
+        }
+        if (record == null) return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record.run();
+            return;
+        }
+        Runnable afterCommit = record;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                afterCommit.run();
+            }
+        });
+    }
+
+    @Override
+    public boolean isFailOnException() {
+        return false;
+    }
+}
@@ -0,0 +1,45 @@
+package com.moli.activiti.analytics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author moli
+ * @time 2024-08-16 10:03:44
+ * @description 活动耗时区间，统计表按区间下标累计，查询时得到直方图
+ */
+public final class DurationBuckets {
+
+    /**
+     * 区间上界（不含）
+     */
+    private static final long[] BOUNDS = {
+            TimeUnit.MINUTES.toMillis(1),
+            TimeUnit.MINUTES.toMillis(5),
+            TimeUnit.MINUTES.toMillis(15),
+            TimeUnit.HOURS.toMillis(1),
+            TimeUnit.HOURS.toMillis(4),
+            TimeUnit.DAYS.toMillis(1),
+            TimeUnit.DAYS.toMillis(3),
+            TimeUnit.DAYS.toMillis(7)
+    };
+
+    private static final String[] LABELS = {"<1m", "<5m", "<15m", "<1h", "<4h", "<1d", "<3d", "<7d", ">=7d"};
+
+    private DurationBuckets() {
+    }
+
+    public static int indexOf(long millis) {
+        for (int i = 0; i < BOUNDS.length; i++) {
+            if (millis < BOUNDS[i]) return i;
+        }
+        return BOUNDS.length;
+    }
+
+    public static String label(int index) {
+        return LABELS[Math.min(Math.max(index, 0), LABELS.length - 1)];
+    }
+
+    public static String[] labels() {
+        return LABELS.clone();
+    }
+}
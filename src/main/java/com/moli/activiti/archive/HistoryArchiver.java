@@ -0,0 +1,390 @@
+package com.moli.activiti.archive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.moli.activiti.common.ArchiveStatusDTO;
+import com.moli.activiti.common.ExportFormat;
+import com.moli.activiti.config.ActProperties;
+import com.moli.activiti.service.support.RowWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.sql.DataSource;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSetMetaData;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * @author moli
+ * @time 2024-08-05 14:32:18
+ * @description 已结束流程实例的历史数据归档：按批写入 gzip ndjson 文件并落盘后在同一批次的小事务中删除，保持 ACT_HI_* 表规模稳定
+ */
+@Slf4j
+@Component
+public class HistoryArchiver {
+
+    /**
+     * 表名 -> 按流程实例筛选的条件，:ids 为本批流程实例 id；按此顺序写出与删除，子查询引用的表排在后面
+     */
+    private static final Map<String, String> TABLES = new LinkedHashMap<>();
+
+    static {
+        TABLES.put("ACT_HI_PROCINST", "PROC_INST_ID_ IN (:ids)");
+        TABLES.put("ACT_HI_ACTINST", "PROC_INST_ID_ IN (:ids)");
+        // 任务级的历史身份链接不带流程实例 id
+        TABLES.put("ACT_HI_IDENTITYLINK", "PROC_INST_ID_ IN (:ids) OR TASK_ID_ IN"
+                + " (SELECT ID_ FROM ACT_HI_TASKINST WHERE PROC_INST_ID_ IN (:ids))");
+        TABLES.put("ACT_HI_TASKINST", "PROC_INST_ID_ IN (:ids)");
+        TABLES.put("ACT_HI_COMMENT", "PROC_INST_ID_ IN (:ids)");
+        TABLES.put("ACT_HI_ATTACHMENT", "PROC_INST_ID_ IN (:ids)");
+        // 序列化变量的内容存放在 ACT_GE_BYTEARRAY，需在变量行之前删除
+        TABLES.put("ACT_GE_BYTEARRAY", "ID_ IN (SELECT BYTEARRAY_ID_ FROM ACT_HI_VARINST WHERE PROC_INST_ID_ IN (:ids))"
+                + " OR ID_ IN (SELECT BYTEARRAY_ID_ FROM ACT_HI_DETAIL WHERE PROC_INST_ID_ IN (:ids))");
+        TABLES.put("ACT_HI_VARINST", "PROC_INST_ID_ IN (:ids)");
+        TABLES.put("ACT_HI_DETAIL", "PROC_INST_ID_ IN (:ids)");
+    }
+
+    private static final String ELIGIBLE_FROM = " FROM ACT_HI_PROCINST p LEFT JOIN ACT_RE_PROCDEF d ON p.PROC_DEF_ID_ = d.ID_"
+            + " WHERE p.END_TIME_ IS NOT NULL AND p.END_TIME_ < ?";
+
+    @Resource
+    private DataSource dataSource;
+
+    @Resource
+    private PlatformTransactionManager transactionManager;
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    @Resource
+    private ActProperties actProperties;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private ThreadPoolTaskExecutor actArchiveExecutor;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    private TransactionTemplate transactionTemplate;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final ArchiveStatusDTO status = new ArchiveStatusDTO();
+
+    private final AtomicLong backlog = new AtomicLong();
+
+    private Counter archivedInstances;
+
+    private Timer batchTimer;
+
+    private final Map<String, Counter> archivedRows = new LinkedHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        archivedInstances = Counter.builder("act.archive.instances").register(meterRegistry);
+        batchTimer = Timer.builder("act.archive.batch").register(meterRegistry);
+        for (String table : TABLES.keySet()) {
+            archivedRows.put(table, Counter.builder("act.archive.rows").tag("table", table).register(meterRegistry));
+        }
+        Gauge.builder("act.archive.backlog", backlog, AtomicLong::get).register(meterRegistry);
+    }
+
+    /**
+     * 定时触发，只提交到归档线程，不阻塞其他定时任务
+     */
+    @Scheduled(cron = "${act.archive.cron:0 0 2 * * ?}")
+    public void scheduledRun() {
+        if (!actProperties.getArchive().isEnabled()) return;
+        try {
+            actArchiveExecutor.execute(this::run);
+        } catch (TaskRejectedException e) {
+            log.info("上一轮历史归档仍在执行, 跳过本次");
+        }
+    }
+
+    /**
+     * 执行一轮归档，已有归档在执行时直接返回 false
+     */
+    public boolean run() {
+        if (!running.compareAndSet(false, true)) return false;
+        ActProperties.Archive config = actProperties.getArchive();
+        synchronized (status) {
+            status.setRunning(true);
+            status.setLastStartTime(new Date());
+            status.setLastEndTime(null);
+            status.setArchivedInstances(0);
+            status.setArchivedRows(0);
+            status.setLastError(null);
+        }
+        try {
+            List<Policy> policies = policies(config);
+            long total = 0;
+            for (Policy policy : policies) {
+                total += jdbcTemplate.queryForObject("SELECT COUNT(*)" + ELIGIBLE_FROM + policy.condition,
+                        Long.class, policy.args());
+            }
+            backlog.set(total);
+            synchronized (status) {
+                status.setBacklog(total);
+            }
+
+            int batches = 0;
+            for (Policy policy : policies) {
+                while (batches < config.getMaxBatchesPerRun()) {
+                    List<String> ids = jdbcTemplate.queryForList("SELECT p.ID_" + ELIGIBLE_FROM + policy.condition
+                                    + " ORDER BY p.END_TIME_ ASC, p.ID_ ASC LIMIT " + Math.max(1, config.getBatchSize()),
+                            String.class, policy.args());
+                    if (ids.isEmpty()) break;
+                    batchTimer.record(() -> archiveBatch(ids, config));
+                    batches++;
+                    // 节流，给在线业务让出数据库资源
+                    if (config.getPauseMillis() > 0) TimeUnit.MILLISECONDS.sleep(config.getPauseMillis());
+                }
+            }
+            log.info("历史归档完成, 批次: {}, 流程实例: {}, 历史行: {}",
+                    batches, status.getArchivedInstances(), status.getArchivedRows());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("历史归档失败: {}", e.getMessage(), e);
+            synchronized (status) {
+                status.setLastError(e.getMessage());
+            }
+        } finally {
+            synchronized (status) {
+                status.setRunning(false);
+                status.setLastEndTime(new Date());
+            }
+            running.set(false);
+        }
+        return true;
+    }
+
+    public ArchiveStatusDTO status() {
+        ArchiveStatusDTO copy = new ArchiveStatusDTO();
+        synchronized (status) {
+            copy.setRunning(status.isRunning());
+            copy.setLastStartTime(status.getLastStartTime());
+            copy.setLastEndTime(status.getLastEndTime());
+            copy.setArchivedInstances(status.getArchivedInstances());
+            copy.setArchivedRows(status.getArchivedRows());
+            copy.setBacklog(status.getBacklog());
+            copy.setLastError(status.getLastError());
+        }
+        return copy;
+    }
+
+    /**
+     * 归档一批流程实例：先写出临时文件并落盘，改为正式文件名后再执行删除事务。
+     * 删除提交后归档文件是这些历史数据的唯一副本，之后任何失败都不能删除它；
+     * 删除失败时保留文件，下一轮会重新归档这些实例，恢复时按 _table + ID_ 去重
+     */
+    private void archiveBatch(List<String> ids, ActProperties.Archive config) {
+        Map<String, Object> params = Collections.singletonMap("ids", ids);
+        Date now = new Date();
+        Path dir = Paths.get(config.getDirectory(), new SimpleDateFormat("yyyyMMdd").format(now));
+        String name = "hist-" + new SimpleDateFormat("HHmmssSSS").format(now) + "-" + ids.get(0) + ".ndjson.gz";
+        Path target = dir.resolve(name);
+        Path temp = dir.resolve(name + ".tmp");
+        Map<String, Long> rows = new LinkedHashMap<>();
+        try {
+            Files.createDirectories(dir);
+            try (FileOutputStream file = new FileOutputStream(temp.toFile())) {
+                try (OutputStream out = new GZIPOutputStream(new BufferedOutputStream(new NonClosingOutputStream(file)));
+                     RowWriter writer = RowWriter.create(ExportFormat.NDJSON, out, objectMapper)) {
+                    for (Map.Entry<String, String> entry : TABLES.entrySet()) {
+                        rows.put(entry.getKey(), write(writer, entry.getKey(), entry.getValue(), params));
+                    }
+                }
+                file.getFD().sync();
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory(dir);
+        } catch (IOException e) {
+            // 尚未删除任何数据，临时文件可以丢弃
+            deleteQuietly(temp);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            deleteQuietly(temp);
+            throw e;
+        }
+
+        // 删除与写出使用同样的条件
+        try {
+            transactionTemplate.execute(tx -> {
+                for (Map.Entry<String, String> entry : TABLES.entrySet()) {
+                    namedJdbcTemplate.update("DELETE FROM " + entry.getKey() + " WHERE " + entry.getValue(), params);
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.warn("归档删除失败, 保留归档文件 {}, 下一轮重新归档: {}", target, e.getMessage());
+            throw e;
+        }
+
+        long total = rows.values().stream().mapToLong(Long::longValue).sum();
+        rows.forEach((table, count) -> archivedRows.get(table).increment(count));
+        archivedInstances.increment(ids.size());
+        backlog.updateAndGet(v -> Math.max(0, v - ids.size()));
+        synchronized (status) {
+            status.setArchivedInstances(status.getArchivedInstances() + ids.size());
+            status.setArchivedRows(status.getArchivedRows() + total);
+        }
+        log.debug("归档批次完成: {}, 流程实例: {}, 历史行: {}", target, ids.size(), total);
+    }
+
+    /**
+     * 目录落盘使重命名持久化，不支持打开目录的平台忽略
+     */
+    private static void syncDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.debug("归档目录落盘失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 写出一张表中属于本批流程实例的行，每行带 _table 字段标识来源表
+     */
+    private long write(RowWriter writer, String table, String condition, Map<String, Object> params) {
+        long[] count = {0};
+        namedJdbcTemplate.query("SELECT * FROM " + table + " WHERE " + condition, params, rs -> {
+            ResultSetMetaData metaData = rs.getMetaData();
+            int columnCount = metaData.getColumnCount();
+            String[] columns = new String[columnCount + 1];
+            Object[] values = new Object[columnCount + 1];
+            columns[0] = "_table";
+            values[0] = table;
+            for (int i = 1; i <= columnCount; i++) {
+                columns[i] = metaData.getColumnLabel(i);
+                values[i] = rs.getObject(i);
+            }
+            try {
+                writer.header(columns);
+                writer.row(values);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            count[0]++;
+        });
+        return count[0];
+    }
+
+    /**
+     * 按流程定义 key 的保留天数拆分归档条件，未单独配置的流程使用默认保留天数，保留天数小于 0 表示不归档；
+     * 流程定义已被删除（下线旧版本）的历史实例同样按默认保留天数归档
+     */
+    private List<Policy> policies(ActProperties.Archive config) {
+        List<Policy> policies = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : config.getRetention().entrySet()) {
+            keys.add(entry.getKey());
+            if (entry.getValue() < 0) continue;
+            policies.add(new Policy(" AND d.KEY_ = ?", cutoff(entry.getValue()), entry.getKey()));
+        }
+        if (config.getMinAgeDays() >= 0) {
+            StringBuilder condition = new StringBuilder();
+            if (!keys.isEmpty()) {
+                condition.append(" AND (d.ID_ IS NULL OR d.KEY_ NOT IN (")
+                        .append(String.join(", ", Collections.nCopies(keys.size(), "?"))).append("))");
+            }
+            policies.add(new Policy(condition.toString(), cutoff(config.getMinAgeDays()), keys.toArray()));
+        }
+        return policies;
+    }
+
+    private static Date cutoff(int days) {
+        return new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(days));
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("删除归档临时文件失败: {}", path);
+        }
+    }
+
+    /**
+     * gzip 流关闭时写出尾部但不关闭底层文件，以便随后落盘
+     */
+    private static class NonClosingOutputStream extends FilterOutputStream {
+
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    private static class Policy {
+
+        private final String condition;
+
+        private final Date cutoff;
+
+        private final Object[] keys;
+
+        Policy(String condition, Date cutoff, Object... keys) {
+            this.condition = condition;
+            this.cutoff = cutoff;
+            this.keys = keys;
+        }
+
+        Object[] args() {
+            Object[] args = new Object[keys.length + 1];
+            args[0] = cutoff;
+            System.arraycopy(keys, 0, args, 1, keys.length);
+            return args;
+        }
+    }
+}
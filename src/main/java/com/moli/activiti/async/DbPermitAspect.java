@@ -0,0 +1,64 @@
+package com.moli.activiti.async;
+
+import com.moli.activiti.config.ActProperties;
+import com.moli.activiti.config.VirtualThreads;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author moli
+ * @time 2024-08-21 10:24:53
+ * @description 虚拟线程模式下限制同时访问引擎的请求数，等待许可超时返回 503。
+ * 覆盖 service 包下的全部服务接口（引擎、导出、待办检索、交接、迁移、统计），
+ * 同一线程内嵌套调用不重复获取许可，避免许可耗尽时自身死锁
+ */
+@Aspect
+@Component
+@Conditional(VirtualThreads.OnEnabled.class)
+public class DbPermitAspect {
+
+    private static final ThreadLocal<Boolean> HOLDING = new ThreadLocal<>();
+
+    @Resource
+    private Semaphore actDbPermits;
+
+    @Resource
+    private ActProperties actProperties;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private Counter rejected;
+
+    @PostConstruct
+    public void init() {
+        rejected = Counter.builder("act.db.permits.rejected").register(meterRegistry);
+    }
+
+    @Around("execution(public * com.moli.activiti.service.*.*(..))")
+    public Object around(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (HOLDING.get() != null) return joinPoint.proceed();
+        long timeout = actProperties.getVirtualThreads().getAcquireTimeout();
+        if (!actDbPermits.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+            rejected.increment();
+            throw new EngineOverloadedException("db", "服务繁忙，请稍后重试");
+        }
+        HOLDING.set(Boolean.TRUE);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            HOLDING.remove();
+            actDbPermits.release();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.moli.activiti.async;
+
+import com.moli.activiti.config.ActProperties;
+import com.moli.activiti.config.VirtualThreads;
+import com.moli.activiti.datasource.RoutingContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * @author moli
+ * @time 2024-08-20 09:52:37
+ * @description 引擎异步调用：写操作（发起、完成、拾取）与读查询分别使用独立的有界线程池，
+ * 请求线程提交后立即释放；队列满时直接拒绝，仍在排队时超时的请求取消执行，均返回 503；
+ * 已开始执行的写操作超时返回 504（结果未知），某一类操作过载不影响另一类。
+ * 虚拟线程模式下每个请求一个虚拟线程，线程数 + 队列容量作为在途请求上限，数据库并发由 {@link DbPermitAspect} 限制
+ */
+@Slf4j
+@Component
+public class EngineAsyncExecutor {
+
+    public static final String WRITE = "write";
+
+    public static final String READ = "read";
+
+    @Resource
+    private ActProperties actProperties;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Autowired(required = false)
+    @Qualifier("actVirtualExecutor")
+    private ExecutorService actVirtualExecutor;
+
+    private Pool writePool;
+
+    private Pool readPool;
+
+    @PostConstruct
+    public void init() {
+        if (actProperties.getVirtualThreads().isEnabled() && !VirtualThreads.isSupported()) {
+            log.warn("当前 JDK {} 不支持虚拟线程, 使用平台线程池", System.getProperty("java.version"));
+        }
+        writePool = new Pool(WRITE, actProperties.getAsync().getWrite());
+        readPool = new Pool(READ, actProperties.getAsync().getRead());
+    }
+
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        writePool.shutdown();
+        readPool.shutdown();
+    }
+
+    /**
+     * 在写线程池中执行
+     */
+    public <T> DeferredResult<T> write(Supplier<T> action) {
+        return writePool.submit(action);
+    }
+
+    /**
+     * 在读线程池中执行
+     */
+    public <T> DeferredResult<T> read(Supplier<T> action) {
+        return readPool.submit(action);
+    }
+
+    private class Pool {
+
+        private final String name;
+
+        private final long timeout;
+
+        private final ExecutorService executor;
+
+        /**
+         * 虚拟线程模式下的在途请求许可，平台线程模式由线程池队列限制
+         */
+        private final Semaphore admission;
+
+        private final Counter rejected;
+
+        private final Counter timedOut;
+
+        private final Timer executeTimer;
+
+        Pool(String name, ActProperties.Async.Pool config) {
+            this.name = name;
+            this.timeout = config.getTimeout();
+            if (actVirtualExecutor != null) {
+                this.executor = actVirtualExecutor;
+                int limit = config.getThreads() + config.getQueueCapacity();
+                this.admission = new Semaphore(limit);
+                Gauge.builder("act.async.active", admission, permits -> limit - permits.availablePermits())
+                        .tag("pool", name).register(meterRegistry);
+            } else {
+                BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(config.getQueueCapacity());
+                ThreadPoolExecutor pool = new ThreadPoolExecutor(config.getThreads(), config.getThreads(), 0,
+                        TimeUnit.MILLISECONDS, queue, new CustomizableThreadFactory("act-" + name + "-"), (task, p) -> {
+                    throw new EngineOverloadedException(name, "服务繁忙，请稍后重试");
+                });
+                this.executor = pool;
+                this.admission = null;
+                Gauge.builder("act.async.queue", queue, BlockingQueue::size).tag("pool", name).register(meterRegistry);
+                Gauge.builder("act.async.active", pool, ThreadPoolExecutor::getActiveCount).tag("pool", name)
+                        .register(meterRegistry);
+            }
+            this.rejected = Counter.builder("act.async.requests").tag("pool", name).tag("result", "rejected")
+                    .register(meterRegistry);
+            this.timedOut = Counter.builder("act.async.requests").tag("pool", name).tag("result", "timeout")
+                    .register(meterRegistry);
+            this.executeTimer = Timer.builder("act.async.execute").tag("pool", name).register(meterRegistry);
+        }
+
+        <T> DeferredResult<T> submit(Supplier<T> action) {
+            DeferredResult<T> result = new DeferredResult<>(timeout);
+            Supplier<T> routed = RoutingContext.propagate(action);
+            // 任务开始执行与超时取消互斥，二者只有一方能成功
+            AtomicBoolean started = new AtomicBoolean();
+            Future<?> future;
+            try {
+                if (admission != null && !admission.tryAcquire()) {
+                    throw new EngineOverloadedException(name, "服务繁忙，请稍后重试");
+                }
+                future = executor.submit(() -> {
+                    try {
+                        if (!started.compareAndSet(false, true)) return;
+                        result.setResult(executeTimer.record(routed));
+                    } catch (Exception e) {
+                        result.setErrorResult(e);
+                    } finally {
+                        if (admission != null) admission.release();
+                    }
+                });
+            } catch (EngineOverloadedException e) {
+                rejected.increment();
+                throw e;
+            }
+            result.onTimeout(() -> {
+                timedOut.increment();
+                if (started.compareAndSet(false, true)) {
+                    // 尚未开始执行，确定不会执行，可安全重试。虚拟线程的任务自行退出以释放许可
+                    if (admission == null) future.cancel(false);
+                    result.setErrorResult(new EngineOverloadedException(name, "处理超时，请稍后重试"));
+                } else if (READ.equals(name)) {
+                    // 查询可重复执行
+                    result.setErrorResult(new EngineOverloadedException(name, "处理超时，请稍后重试"));
+                } else {
+                    // 写操作已开始，不中断引擎事务，可能已提交，调用方不应直接重试
+                    result.setErrorResult(new EngineOutcomeUnknownException(name, "处理超时，结果未知，请查询后再决定是否重试"));
+                }
+            });
+            return result;
+        }
+
+        void shutdown() throws InterruptedException {
+            // 虚拟线程执行器由 VirtualThreadConfig 关闭
+            if (admission != null) return;
+            executor.shutdown();
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("{} 线程池未处理完, 丢弃 {} 个请求", name, executor.shutdownNow().size());
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.moli.activiti.async;
+
+/**
+ * @author moli
+ * @time 2024-08-26 14:20:51
+ * @description 写操作已开始执行但等待超时，可能已经提交，由 {@link com.moli.activiti.controller.ActExceptionAdvice} 转为 504
+ */
+public class EngineOutcomeUnknownException extends RuntimeException {
+
+    private final String pool;
+
+    public EngineOutcomeUnknownException(String pool, String message) {
+        super(message);
+        this.pool = pool;
+    }
+
+    public String getPool() {
+        return pool;
+    }
+}
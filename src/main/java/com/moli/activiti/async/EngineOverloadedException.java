@@ -0,0 +1,20 @@
+package com.moli.activiti.async;
+
+/**
+ * @author moli
+ * @time 2024-08-20 09:40:12
+ * @description 引擎线程池队列已满或请求等待超时，由 {@link com.moli.activiti.controller.ActExceptionAdvice} 转为 503
+ */
+public class EngineOverloadedException extends RuntimeException {
+
+    private final String pool;
+
+    public EngineOverloadedException(String pool, String message) {
+        super(message);
+        this.pool = pool;
+    }
+
+    public String getPool() {
+        return pool;
+    }
+}
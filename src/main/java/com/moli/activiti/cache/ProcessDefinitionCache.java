@@ -0,0 +1,251 @@
+package com.moli.activiti.cache;
+
+import com.moli.activiti.config.ActProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.activiti.engine.RepositoryService;
+import org.activiti.engine.repository.Deployment;
+import org.activiti.engine.repository.ProcessDefinition;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @author moli
+ * @time 2024-07-22 10:05:44
+ * @description 流程定义与部署信息缓存，部署和删除部署时失效，启动时预热
+ */
+@Slf4j
+@Component
+public class ProcessDefinitionCache {
+
+    @Resource
+    private RepositoryService repositoryService;
+
+    @Resource
+    private ActProperties actProperties;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong snapshotHits = new AtomicLong();
+
+    private final AtomicLong snapshotMisses = new AtomicLong();
+
+    /**
+     * 保护 definitions 与 version，不使用 synchronized，避免虚拟线程等待时固定载体线程
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * 每次失效加一，锁外加载的结果在期间发生过失效时不写入缓存
+     */
+    private long version;
+
+    /**
+     * 按 id 缓存的流程定义，访问顺序 LRU
+     */
+    private Map<String, ProcessDefinition> definitions;
+
+    /**
+     * 部署与流程定义列表快照
+     */
+    private volatile Snapshot snapshot;
+
+    /**
+     * 过期快照正在刷新
+     */
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    @PostConstruct
+    public void init() {
+        int maxSize = actProperties.getCache().getMaxSize();
+        definitions = new LinkedHashMap<String, ProcessDefinition>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ProcessDefinition> eldest) {
+                return size() > maxSize;
+            }
+        };
+        FunctionCounter.builder("act.cache.process.definition", hits, AtomicLong::get)
+                .tag("type", "id").tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("act.cache.process.definition", misses, AtomicLong::get)
+                .tag("type", "id").tag("result", "miss").register(meterRegistry);
+        FunctionCounter.builder("act.cache.process.definition", snapshotHits, AtomicLong::get)
+                .tag("type", "snapshot").tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("act.cache.process.definition", snapshotMisses, AtomicLong::get)
+                .tag("type", "snapshot").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("act.cache.process.definition.size", this, ProcessDefinitionCache::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 启动时预热
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        Snapshot loaded = getSnapshot();
+        log.info("流程定义缓存预热完成, 部署数: {}, 流程定义数: {}",
+                loaded.deployments.size(), loaded.processDefinitions.size());
+    }
+
+    /**
+     * 根据 id 获取流程定义，不存在时返回 null
+     */
+    public ProcessDefinition getProcessDefinition(String processDefinitionId) {
+        long loadVersion;
+        lock.lock();
+        try {
+            ProcessDefinition cached = definitions.get(processDefinitionId);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+            loadVersion = version;
+        } finally {
+            lock.unlock();
+        }
+        misses.incrementAndGet();
+        ProcessDefinition loaded = repositoryService.createProcessDefinitionQuery()
+                .processDefinitionId(processDefinitionId).singleResult();
+        if (loaded != null) {
+            lock.lock();
+            try {
+                // 加载期间已失效（如删除部署、挂起），结果可能已过期，只返回不缓存
+                if (version == loadVersion) definitions.put(processDefinitionId, loaded);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return loaded;
+    }
+
+    public List<Deployment> listDeployments() {
+        return getSnapshot().deployments;
+    }
+
+    public List<ProcessDefinition> listProcessDefinitions() {
+        return getSnapshot().processDefinitions;
+    }
+
+    /**
+     * 当前部署与流程定义列表的 ETag，内容不变时各节点计算结果一致
+     */
+    public String getEtag() {
+        return getSnapshot().etag;
+    }
+
+    /**
+     * 部署或删除部署后失效缓存
+     */
+    public void invalidate() {
+        lock.lock();
+        try {
+            version++;
+            definitions.clear();
+            snapshot = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int size() {
+        lock.lock();
+        try {
+            return definitions.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 快照过期后在锁外加载，加载完成后短暂加锁发布；已有过期快照且其他线程正在刷新时直接返回旧快照，
+     * 避免慢查询期间阻塞按 id 查询与失效
+     */
+    private Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        if (current != null && !current.isExpired()) {
+            snapshotHits.incrementAndGet();
+            return current;
+        }
+        if (current != null && !refreshing.compareAndSet(false, true)) {
+            snapshotHits.incrementAndGet();
+            return current;
+        }
+        try {
+            snapshotMisses.incrementAndGet();
+            long loadVersion;
+            lock.lock();
+            try {
+                loadVersion = version;
+            } finally {
+                lock.unlock();
+            }
+            List<Deployment> deployments = repositoryService.createDeploymentQuery()
+                    .orderByDeploymenTime().asc().list();
+            List<ProcessDefinition> processDefinitions = repositoryService.createProcessDefinitionQuery()
+                    .orderByProcessDefinitionId().asc().list();
+            long expireAt = System.currentTimeMillis()
+                    + TimeUnit.SECONDS.toMillis(actProperties.getCache().getSnapshotTtl());
+            Snapshot loaded = new Snapshot(deployments, processDefinitions, expireAt);
+            lock.lock();
+            try {
+                // 加载期间已失效，结果可能已过期，只返回不缓存
+                if (version == loadVersion) {
+                    for (ProcessDefinition processDefinition : processDefinitions) {
+                        definitions.put(processDefinition.getId(), processDefinition);
+                    }
+                    snapshot = loaded;
+                }
+            } finally {
+                lock.unlock();
+            }
+            return loaded;
+        } finally {
+            if (current != null) refreshing.set(false);
+        }
+    }
+
+    private static class Snapshot {
+
+        private final List<Deployment> deployments;
+
+        private final List<ProcessDefinition> processDefinitions;
+
+        private final String etag;
+
+        private final long expireAt;
+
+        Snapshot(List<Deployment> deployments, List<ProcessDefinition> processDefinitions, long expireAt) {
+            this.deployments = Collections.unmodifiableList(deployments);
+            this.processDefinitions = Collections.unmodifiableList(processDefinitions);
+            this.expireAt = expireAt;
+            StringBuilder content = new StringBuilder();
+            deployments.forEach(d -> content.append(d.getId()).append(';'));
+            processDefinitions.forEach(p -> content.append(p.getId()).append(p.isSuspended() ? 'S' : 'A').append(';'));
+            this.etag = "\"" + DigestUtils.md5DigestAsHex(content.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() > expireAt;
+        }
+    }
+}
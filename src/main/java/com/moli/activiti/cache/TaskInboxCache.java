@@ -0,0 +1,210 @@
+package com.moli.activiti.cache;
+
+import com.moli.activiti.config.ActProperties;
+import com.moli.activiti.event.TaskChangedEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.activiti.engine.task.Task;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * @author moli
+ * @time 2024-07-23 10:41:26
+ * @description 按代办人 / 候选人缓存的待办任务列表，由任务事件在事务提交后失效，未命中时回源数据库
+ */
+@Component
+public class TaskInboxCache {
+
+    private static final String ASSIGNEE_PREFIX = "A:";
+
+    private static final String CANDIDATE_PREFIX = "C:";
+
+    @Resource
+    private ActProperties actProperties;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * 正在回源的 key，失效时按 key 递增版本，防止失效前开始的查询把旧数据写回缓存；
+     * 只记录进行中的查询，其他 key 的失效不影响
+     */
+    private final Map<String, Loading> loading = new HashMap<>();
+
+    /**
+     * 访问顺序 LRU
+     */
+    private Map<String, Entry> entries;
+
+    /**
+     * 任务 id -> 包含该任务的缓存 key
+     */
+    private final Map<String, Set<String>> taskIndex = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        int maxSize = actProperties.getInbox().getMaxSize();
+        entries = new LinkedHashMap<String, Entry>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= maxSize) return false;
+                unindex(eldest.getKey(), eldest.getValue().tasks);
+                return true;
+            }
+        };
+        FunctionCounter.builder("act.cache.inbox", hits, AtomicLong::get)
+                .tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("act.cache.inbox", misses, AtomicLong::get)
+                .tag("result", "miss").register(meterRegistry);
+        Gauge.builder("act.cache.inbox.size", this, TaskInboxCache::size).register(meterRegistry);
+    }
+
+    public List<Task> getByAssignee(String assignee, Supplier<List<Task>> loader) {
+        return get(ASSIGNEE_PREFIX + assignee, loader);
+    }
+
+    public List<Task> getByCandidate(String candidate, Supplier<List<Task>> loader) {
+        return get(CANDIDATE_PREFIX + candidate, loader);
+    }
+
+    /**
+     * 事务提交后根据任务变更失效相关缓存
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskChanged(TaskChangedEvent event) {
+        Set<String> keys = new HashSet<>();
+        if (event.getAssignee() != null) keys.add(ASSIGNEE_PREFIX + event.getAssignee());
+        for (String user : event.getCandidateUsers()) keys.add(CANDIDATE_PREFIX + user);
+        synchronized (this) {
+            Set<String> indexed = taskIndex.get(event.getTaskId());
+            if (indexed != null) keys.addAll(indexed);
+            for (String key : keys) invalidate(key);
+            if (!event.getCandidateGroups().isEmpty()) {
+                // 候选组无法直接映射到用户，失效全部候选人缓存
+                removeIf(key -> key.startsWith(CANDIDATE_PREFIX));
+                loading.forEach((key, load) -> {
+                    if (key.startsWith(CANDIDATE_PREFIX)) load.generation++;
+                });
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        loading.values().forEach(load -> load.generation++);
+        entries.clear();
+        taskIndex.clear();
+    }
+
+    private List<Task> get(String key, Supplier<List<Task>> loader) {
+        Loading load;
+        long startGeneration;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && !entry.isExpired()) {
+                hits.incrementAndGet();
+                return entry.tasks;
+            }
+            load = loading.computeIfAbsent(key, k -> new Loading());
+            load.loaders++;
+            startGeneration = load.generation;
+        }
+        misses.incrementAndGet();
+        List<Task> tasks = null;
+        try {
+            tasks = Collections.unmodifiableList(loader.get());
+        } finally {
+            synchronized (this) {
+                if (tasks != null && load.generation == startGeneration) {
+                    remove(key);
+                    long expireAt = System.currentTimeMillis()
+                            + TimeUnit.SECONDS.toMillis(actProperties.getInbox().getTtl());
+                    entries.put(key, new Entry(tasks, expireAt));
+                    for (Task task : tasks) {
+                        taskIndex.computeIfAbsent(task.getId(), id -> new HashSet<>()).add(key);
+                    }
+                }
+                if (--load.loaders == 0) loading.remove(key, load);
+            }
+        }
+        return tasks;
+    }
+
+    private void invalidate(String key) {
+        remove(key);
+        Loading load = loading.get(key);
+        if (load != null) load.generation++;
+    }
+
+    private void remove(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) unindex(key, removed.tasks);
+    }
+
+    private void removeIf(Predicate<String> predicate) {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> next = iterator.next();
+            if (predicate.test(next.getKey())) {
+                unindex(next.getKey(), next.getValue().tasks);
+                iterator.remove();
+            }
+        }
+    }
+
+    private void unindex(String key, List<Task> tasks) {
+        for (Task task : tasks) {
+            Set<String> keys = taskIndex.get(task.getId());
+            if (keys == null) continue;
+            keys.remove(key);
+            if (keys.isEmpty()) taskIndex.remove(task.getId());
+        }
+    }
+
+    private synchronized int size() {
+        return entries.size();
+    }
+
+    private static class Loading {
+
+        private int loaders;
+
+        private long generation;
+    }
+
+    private static class Entry {
+
+        private final List<Task> tasks;
+
+        private final long expireAt;
+
+        Entry(List<Task> tasks, long expireAt) {
+            this.tasks = tasks;
+            this.expireAt = expireAt;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() > expireAt;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.moli.activiti.command;
+
+import com.moli.activiti.common.BatchResultDTO;
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.persistence.entity.TaskEntity;
+import org.activiti.engine.impl.persistence.entity.TaskEntityManager;
+import org.activiti.engine.task.DelegationState;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author moli
+ * @time 2024-08-09 09:41:36
+ * @description 在一个命令上下文中批量转办 / 委派任务，所有变更在命令结束时一次刷新；
+ * 经由 TaskEntityManager 修改代办人，任务事件、历史记录与参与人与单条 setAssignee / delegateTask 一致
+ */
+public class BulkReassignCmd implements Command<List<BatchResultDTO>> {
+
+    private final List<String> taskIds;
+
+    private final String fromUser;
+
+    private final String toUser;
+
+    private final boolean delegate;
+
+    public BulkReassignCmd(List<String> taskIds, String fromUser, String toUser, boolean delegate) {
+        this.taskIds = taskIds;
+        this.fromUser = fromUser;
+        this.toUser = toUser;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public List<BatchResultDTO> execute(CommandContext commandContext) {
+        TaskEntityManager taskEntityManager = commandContext.getTaskEntityManager();
+        List<BatchResultDTO> results = new ArrayList<>(taskIds.size());
+        for (String taskId : taskIds) {
+            TaskEntity task = taskEntityManager.findById(taskId);
+            if (task == null) {
+                results.add(BatchResultDTO.fail(taskId, "任务不存在"));
+            } else if (!fromUser.equals(task.getAssignee())) {
+                // 查询之后已被其他人处理
+                results.add(BatchResultDTO.fail(taskId, "代办人已变更"));
+            } else if (task.isSuspended()) {
+                results.add(BatchResultDTO.fail(taskId, "任务已挂起"));
+            } else {
+                if (delegate) {
+                    task.setDelegationState(DelegationState.PENDING);
+                    if (task.getOwner() == null) taskEntityManager.changeTaskOwner(task, task.getAssignee());
+                }
+                taskEntityManager.changeTaskAssignee(task, toUser);
+                results.add(BatchResultDTO.ok(taskId, toUser));
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,115 @@
+package com.moli.activiti.command;
+
+import com.moli.activiti.common.BatchResultDTO;
+import org.activiti.bpmn.model.FlowElement;
+import org.activiti.bpmn.model.Process;
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.persistence.deploy.DeploymentManager;
+import org.activiti.engine.impl.persistence.entity.ExecutionEntity;
+import org.activiti.engine.impl.persistence.entity.ExecutionEntityManager;
+import org.activiti.engine.impl.persistence.entity.TaskEntity;
+import org.activiti.engine.impl.util.ProcessDefinitionUtil;
+import org.activiti.engine.repository.ProcessDefinition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author moli
+ * @time 2024-08-12 10:14:29
+ * @description 将一批流程实例迁移到目标流程定义，参照引擎的 SetProcessDefinitionVersionCmd，额外支持活动 id 映射。
+ * 每个实例先校验属于目标定义的同一流程、全部执行所在的活动在目标定义中存在，校验通过才修改，dryRun 时只校验
+ */
+public class MigrateProcessInstanceCmd implements Command<List<BatchResultDTO>> {
+
+    private final List<String> processInstanceIds;
+
+    private final String targetProcessDefinitionId;
+
+    /**
+     * 源活动 id -> 目标活动 id，未配置的活动按原 id 匹配
+     */
+    private final Map<String, String> activityMapping;
+
+    private final boolean dryRun;
+
+    public MigrateProcessInstanceCmd(List<String> processInstanceIds, String targetProcessDefinitionId,
+                                     Map<String, String> activityMapping, boolean dryRun) {
+        this.processInstanceIds = processInstanceIds;
+        this.targetProcessDefinitionId = targetProcessDefinitionId;
+        this.activityMapping = activityMapping;
+        this.dryRun = dryRun;
+    }
+
+    @Override
+    public List<BatchResultDTO> execute(CommandContext commandContext) {
+        DeploymentManager deploymentManager = commandContext.getProcessEngineConfiguration().getDeploymentManager();
+        // 目标定义不存在时抛出 ActivitiObjectNotFoundException
+        ProcessDefinition target = deploymentManager.findDeployedProcessDefinitionById(targetProcessDefinitionId);
+        Process process = ProcessDefinitionUtil.getProcess(targetProcessDefinitionId);
+        ExecutionEntityManager executionEntityManager = commandContext.getExecutionEntityManager();
+
+        List<BatchResultDTO> results = new ArrayList<>(processInstanceIds.size());
+        for (String processInstanceId : processInstanceIds) {
+            ExecutionEntity processInstance = executionEntityManager.findById(processInstanceId);
+            if (processInstance == null) {
+                results.add(BatchResultDTO.fail(processInstanceId, "流程实例不存在"));
+                continue;
+            }
+            ProcessDefinition source = deploymentManager
+                    .findDeployedProcessDefinitionById(processInstance.getProcessDefinitionId());
+            if (!target.getKey().equals(source.getKey())) {
+                results.add(BatchResultDTO.fail(processInstanceId, "流程实例不属于流程 " + target.getKey()));
+                continue;
+            }
+            List<ExecutionEntity> executions = new ArrayList<>(
+                    executionEntityManager.findChildExecutionsByProcessInstanceId(processInstanceId));
+            executions.add(processInstance);
+
+            String missing = null;
+            for (ExecutionEntity execution : executions) {
+                String activityId = execution.getActivityId();
+                if (activityId != null && process.getFlowElement(mapped(activityId), true) == null) {
+                    missing = activityId;
+                    break;
+                }
+            }
+            if (missing != null) {
+                results.add(BatchResultDTO.fail(processInstanceId,
+                        "目标流程定义中不存在活动: " + mapped(missing)));
+                continue;
+            }
+            if (!dryRun) migrate(commandContext, processInstanceId, executions, target, process);
+            results.add(BatchResultDTO.ok(processInstanceId, target.getId()));
+        }
+        return results;
+    }
+
+    private void migrate(CommandContext commandContext, String processInstanceId, List<ExecutionEntity> executions,
+                         ProcessDefinition target, Process process) {
+        for (ExecutionEntity execution : executions) {
+            String activityId = execution.getActivityId();
+            if (activityId != null && !activityId.equals(mapped(activityId))) {
+                FlowElement element = process.getFlowElement(mapped(activityId), true);
+                execution.setCurrentFlowElement(element);
+            }
+            execution.setProcessDefinitionId(target.getId());
+            execution.setProcessDefinitionName(target.getName());
+            execution.setProcessDefinitionKey(target.getKey());
+            // 任务上同样保存了流程定义 id 及任务定义 key
+            List<TaskEntity> tasks = commandContext.getTaskEntityManager().findTasksByExecutionId(execution.getId());
+            for (TaskEntity task : tasks) {
+                task.setProcessDefinitionId(target.getId());
+                if (task.getTaskDefinitionKey() != null) task.setTaskDefinitionKey(mapped(task.getTaskDefinitionKey()));
+                commandContext.getHistoryManager().recordTaskProcessDefinitionChange(task.getId(), target.getId());
+            }
+        }
+        commandContext.getHistoryManager().recordProcessDefinitionChange(processInstanceId, target.getId());
+    }
+
+    private String mapped(String activityId) {
+        return activityMapping.getOrDefault(activityId, activityId);
+    }
+}
@@ -0,0 +1,37 @@
+package com.moli.activiti.common;
+
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * @author moli
+ * @time 2024-08-05 14:20:36
+ * @description 历史归档进度
+ */
+@Data
+public class ArchiveStatusDTO {
+
+    private boolean running;
+
+    private Date lastStartTime;
+
+    private Date lastEndTime;
+
+    /**
+     * 本轮（或上一轮）已归档的流程实例数
+     */
+    private long archivedInstances;
+
+    /**
+     * 本轮（或上一轮）已归档的历史行数
+     */
+    private long archivedRows;
+
+    /**
+     * 本轮开始时满足归档条件的流程实例数
+     */
+    private long backlog;
+
+    private String lastError;
+}
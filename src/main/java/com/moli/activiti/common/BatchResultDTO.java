@@ -0,0 +1,44 @@
+package com.moli.activiti.common;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * @author moli
+ * @time 2024-07-18 10:15:02
+ * @description 批量操作中单条记录的处理结果
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchResultDTO {
+
+    /**
+     * 记录标识，如任务 id
+     */
+    private String key;
+
+    /**
+     * 是否处理成功
+     */
+    private boolean success;
+
+    /**
+     * 失败原因
+     */
+    private String message;
+
+    /**
+     * 处理产生的数据，如新建的流程实例 id
+     */
+    private String data;
+
+    public static BatchResultDTO ok(String key, String data) {
+        return new BatchResultDTO(key, true, null, data);
+    }
+
+    public static BatchResultDTO fail(String key, String message) {
+        return new BatchResultDTO(key, false, message, null);
+    }
+}
@@ -0,0 +1,22 @@
+package com.moli.activiti.common;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * @author moli
+ * @time 2024-07-25 09:32:10
+ * @description 任务拾取结果
+ */
+@Getter
+@AllArgsConstructor
+public enum ClaimStatus {
+
+    CLAIMED("拾取成功"),
+
+    ALREADY_CLAIMED("任务已被他人拾取"),
+
+    NOT_FOUND("任务不存在或不是该任务的候选人");
+
+    private final String message;
+}
@@ -0,0 +1,29 @@
+package com.moli.activiti.common;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * @author moli
+ * @time 2024-07-19 15:20:33
+ * @description 导出格式
+ */
+@Getter
+@AllArgsConstructor
+public enum ExportFormat {
+
+    NDJSON("application/x-ndjson", "ndjson"),
+
+    CSV("text/csv;charset=UTF-8", "csv");
+
+    private final String contentType;
+
+    private final String extension;
+
+    public static ExportFormat of(String name) {
+        for (ExportFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name)) return format;
+        }
+        throw new IllegalArgumentException("不支持的导出格式: " + name);
+    }
+}
@@ -0,0 +1,32 @@
+package com.moli.activiti.common;
+
+import lombok.Data;
+
+/**
+ * @author moli
+ * @time 2024-08-09 09:20:14
+ * @description 工作交接：将一个代办人的全部待办转给另一个人
+ */
+@Data
+public class HandoverDTO {
+
+    /**
+     * 原代办人
+     */
+    private String fromUser;
+
+    /**
+     * 接手人
+     */
+    private String toUser;
+
+    /**
+     * 只交接该流程定义下的任务，为空时交接全部
+     */
+    private String processDefinitionId;
+
+    /**
+     * true 按委派处理，任务完成后回到原代办人；false 直接转办
+     */
+    private boolean delegate;
+}
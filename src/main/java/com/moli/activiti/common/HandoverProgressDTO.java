@@ -0,0 +1,32 @@
+package com.moli.activiti.common;
+
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * @author moli
+ * @time 2024-08-09 09:24:51
+ * @description 工作交接进度
+ */
+@Data
+public class HandoverProgressDTO {
+
+    private String jobId;
+
+    private String fromUser;
+
+    private String toUser;
+
+    private int total;
+
+    private int processed;
+
+    private int failed;
+
+    private boolean done;
+
+    private Date startTime;
+
+    private Date endTime;
+}
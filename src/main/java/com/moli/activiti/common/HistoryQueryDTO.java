@@ -0,0 +1,47 @@
+package com.moli.activiti.common;
+
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.util.Date;
+
+/**
+ * @author moli
+ * @time 2024-07-19 09:36:08
+ * @description 历史数据游标分页查询条件
+ */
+@Data
+public class HistoryQueryDTO {
+
+    /**
+     * 开始时间下限（包含）
+     */
+    @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private Date startTimeFrom;
+
+    /**
+     * 开始时间上限（不包含）
+     */
+    @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private Date startTimeTo;
+
+    /**
+     * 流程定义 id
+     */
+    private String processDefinitionId;
+
+    /**
+     * 代办人，仅对任务和活动实例生效
+     */
+    private String assignee;
+
+    /**
+     * 上一页返回的 nextCursor，为空时查询第一页
+     */
+    private String cursor;
+
+    /**
+     * 页大小
+     */
+    private Integer pageSize;
+}
@@ -0,0 +1,29 @@
+package com.moli.activiti.common;
+
+import lombok.Data;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author moli
+ * @time 2024-08-12 09:52:06
+ * @description 流程实例迁移计划
+ */
+@Data
+public class MigrationPlanDTO {
+
+    private String sourceProcessDefinitionId;
+
+    private String targetProcessDefinitionId;
+
+    /**
+     * 源活动 id -> 目标活动 id，未配置的活动按原 id 匹配
+     */
+    private Map<String, String> activityMapping = new HashMap<>();
+
+    /**
+     * 只校验不迁移
+     */
+    private boolean dryRun;
+}
@@ -0,0 +1,29 @@
+package com.moli.activiti.common;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author moli
+ * @time 2024-08-12 09:57:43
+ * @description 流程实例迁移结果
+ */
+@Data
+public class MigrationResultDTO {
+
+    private boolean dryRun;
+
+    private int total;
+
+    /**
+     * 迁移成功（dryRun 时为校验通过）的实例数
+     */
+    private int migrated;
+
+    /**
+     * 失败的实例及原因
+     */
+    private List<BatchResultDTO> failures = new ArrayList<>();
+}
@@ -55,6 +55,10 @@ public class ReturnData<T> {
         return result(false, 500, "响应失败", data);
     }
 
+    public static <T> ReturnData<T> fail(Integer code, String message) {
+        return result(false, code, message, null);
+    }
+
     private static <T> ReturnData<T> result(Boolean flag, Integer code, String message, T data) {
         return ReturnData.<T>builder()
                 .flag(flag)
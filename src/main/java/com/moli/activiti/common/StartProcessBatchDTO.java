@@ -0,0 +1,26 @@
+package com.moli.activiti.common;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author moli
+ * @time 2024-07-18 14:05:51
+ * @description 批量发起流程 dto
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StartProcessBatchDTO {
+
+    private String processDefinitionId;
+
+    /**
+     * 每个流程实例的变量，须包含发起人 username
+     */
+    private List<Map<String, Object>> varsList;
+}
@@ -0,0 +1,25 @@
+package com.moli.activiti.common;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * @author moli
+ * @time 2024-07-18 10:12:37
+ * @description 批量完成任务 dto
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TaskCompleteDTO {
+
+    private String taskId;
+
+    /**
+     * 流程节点中变量，替换占位符
+     */
+    private Map<String, Object> vars;
+}
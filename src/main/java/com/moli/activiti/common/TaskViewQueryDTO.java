@@ -0,0 +1,25 @@
+package com.moli.activiti.common;
+
+import lombok.Data;
+
+/**
+ * @author moli
+ * @time 2024-08-02 10:12:08
+ * @description 待办读模型查询条件
+ */
+@Data
+public class TaskViewQueryDTO {
+
+    /**
+     * 任务名、流程名或业务 key 关键字
+     */
+    private String keyword;
+
+    private String processDefinitionKey;
+
+    private String assignee;
+
+    private Long pageNum = 1L;
+
+    private Long pageSize = 20L;
+}
@@ -0,0 +1,32 @@
+package com.moli.activiti.common.vo;
+
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author moli
+ * @time 2024-08-16 11:20:13
+ * @description 活动耗时统计
+ */
+@Data
+public class ActivityStatsVO {
+
+    private String processDefinitionKey;
+
+    private String activityId;
+
+    private String activityName;
+
+    private long count;
+
+    private long avgMillis;
+
+    private long maxMillis;
+
+    /**
+     * 耗时区间 -> 次数
+     */
+    private Map<String, Long> histogram = new LinkedHashMap<>();
+}
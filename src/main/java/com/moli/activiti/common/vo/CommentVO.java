@@ -0,0 +1,28 @@
+package com.moli.activiti.common.vo;
+
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * @author moli
+ * @time 2024-08-01 09:35:09
+ * @description 审批意见视图
+ */
+@Data
+public class CommentVO {
+
+    private String id;
+
+    private String userId;
+
+    private Date time;
+
+    private String taskId;
+
+    private String processInstanceId;
+
+    private String type;
+
+    private String fullMessage;
+}
@@ -0,0 +1,27 @@
+package com.moli.activiti.common.vo;
+
+import lombok.Data;
+
+/**
+ * @author moli
+ * @time 2024-08-16 11:23:40
+ * @description 网关分支统计，如审批通过 / 驳回率、重新申请次数
+ */
+@Data
+public class DecisionStatsVO {
+
+    private String processDefinitionKey;
+
+    private String gatewayId;
+
+    private String targetActivityId;
+
+    private String targetActivityName;
+
+    private long count;
+
+    /**
+     * 占该网关全部分支的比例
+     */
+    private double rate;
+}
@@ -0,0 +1,22 @@
+package com.moli.activiti.common.vo;
+
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * @author moli
+ * @time 2024-08-01 09:31:42
+ * @description 流程部署视图
+ */
+@Data
+public class DeploymentVO {
+
+    private String id;
+
+    private String name;
+
+    private String category;
+
+    private Date deploymentTime;
+}
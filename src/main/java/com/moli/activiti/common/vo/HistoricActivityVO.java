@@ -0,0 +1,36 @@
+package com.moli.activiti.common.vo;
+
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * @author moli
+ * @time 2024-08-01 09:34:31
+ * @description 历史活动实例视图
+ */
+@Data
+public class HistoricActivityVO {
+
+    private String id;
+
+    private String activityId;
+
+    private String activityName;
+
+    private String activityType;
+
+    private String assignee;
+
+    private String taskId;
+
+    private String processInstanceId;
+
+    private String processDefinitionId;
+
+    private Date startTime;
+
+    private Date endTime;
+
+    private Long durationInMillis;
+}
@@ -0,0 +1,30 @@
+package com.moli.activiti.common.vo;
+
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * @author moli
+ * @time 2024-08-01 09:33:05
+ * @description 历史流程实例视图
+ */
+@Data
+public class HistoricProcessInstanceVO {
+
+    private String id;
+
+    private String processDefinitionId;
+
+    private String businessKey;
+
+    private String startUserId;
+
+    private Date startTime;
+
+    private Date endTime;
+
+    private Long durationInMillis;
+
+    private String deleteReason;
+}
@@ -0,0 +1,34 @@
+package com.moli.activiti.common.vo;
+
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * @author moli
+ * @time 2024-08-01 09:33:48
+ * @description 历史任务视图
+ */
+@Data
+public class HistoricTaskVO {
+
+    private String id;
+
+    private String name;
+
+    private String taskDefinitionKey;
+
+    private String assignee;
+
+    private String processInstanceId;
+
+    private String processDefinitionId;
+
+    private Date startTime;
+
+    private Date endTime;
+
+    private Long durationInMillis;
+
+    private String deleteReason;
+}
@@ -0,0 +1,26 @@
+package com.moli.activiti.common.vo;
+
+import lombok.Data;
+
+/**
+ * @author moli
+ * @time 2024-08-01 09:32:20
+ * @description 流程定义视图
+ */
+@Data
+public class ProcessDefinitionVO {
+
+    private String id;
+
+    private String key;
+
+    private String name;
+
+    private int version;
+
+    private String deploymentId;
+
+    private String resourceName;
+
+    private boolean suspended;
+}
@@ -0,0 +1,34 @@
+package com.moli.activiti.common.vo;
+
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * @author moli
+ * @time 2024-08-01 09:30:11
+ * @description 任务视图
+ */
+@Data
+public class TaskVO {
+
+    private String id;
+
+    private String name;
+
+    private String assignee;
+
+    private String owner;
+
+    private String taskDefinitionKey;
+
+    private String processInstanceId;
+
+    private String processDefinitionId;
+
+    private Date createTime;
+
+    private Date dueDate;
+
+    private int priority;
+}
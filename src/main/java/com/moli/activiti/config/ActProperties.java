@@ -0,0 +1,527 @@
+package com.moli.activiti.config;
+
+import com.moli.activiti.sla.SlaAction;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author moli
+ * @time 2024-07-18 10:20:45
+ * @description 业务侧 activiti 配置，对应 application.yaml 中的 act 节点
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "act")
+public class ActProperties {
+
+    /**
+     * 批量操作配置
+     */
+    private Batch batch = new Batch();
+
+    /**
+     * 数据库配置
+     */
+    private Db db = new Db();
+
+    /**
+     * 流程定义缓存配置
+     */
+    private Cache cache = new Cache();
+
+    /**
+     * 待办任务缓存配置
+     */
+    private Inbox inbox = new Inbox();
+
+    /**
+     * 任务变更推送配置
+     */
+    private Notify notify = new Notify();
+
+    /**
+     * 任务拾取配置
+     */
+    private Claim claim = new Claim();
+
+    /**
+     * 候选任务自动分派配置
+     */
+    private Dispatch dispatch = new Dispatch();
+
+    /**
+     * 指标配置
+     */
+    private Metrics metrics = new Metrics();
+
+    /**
+     * 历史数据归档配置
+     */
+    private Archive archive = new Archive();
+
+    /**
+     * 历史数据写入配置
+     */
+    private History history = new History();
+
+    /**
+     * 执行监听器异步处理配置
+     */
+    private Listener listener = new Listener();
+
+    /**
+     * 任务 SLA 配置
+     */
+    private Sla sla = new Sla();
+
+    /**
+     * 审批统计配置
+     */
+    private Analytics analytics = new Analytics();
+
+    /**
+     * 流程部署配置
+     */
+    private Deploy deploy = new Deploy();
+
+    /**
+     * 异步接口线程池配置
+     */
+    private Async async = new Async();
+
+    /**
+     * 虚拟线程模式配置
+     */
+    private VirtualThread virtualThreads = new VirtualThread();
+
+    /**
+     * 读写分离配置
+     */
+    private Datasource datasource = new Datasource();
+
+    @Data
+    public static class Batch {
+        /**
+         * 每个事务处理的记录数
+         */
+        private int chunkSize = 100;
+
+        /**
+         * 批量操作并发数，受数据库连接池大小约束
+         */
+        private int parallelism = 4;
+    }
+
+    @Data
+    public static class Db {
+        /**
+         * 启动时为引擎表补充游标分页等查询所需的索引
+         */
+        private boolean createIndexes = true;
+    }
+
+    @Data
+    public static class Cache {
+        /**
+         * 按 id 缓存的流程定义最大条数
+         */
+        private int maxSize = 500;
+
+        /**
+         * 部署与流程定义列表快照的过期时间（秒），用于感知其他节点的部署
+         */
+        private long snapshotTtl = 600;
+    }
+
+    @Data
+    public static class Inbox {
+        /**
+         * 缓存的代办人 / 候选人列表最大条数
+         */
+        private int maxSize = 10000;
+
+        /**
+         * 缓存过期时间（秒），兜底感知其他节点的任务变更
+         */
+        private long ttl = 300;
+    }
+
+    @Data
+    public static class Notify {
+        /**
+         * 每个连接缓冲的消息数
+         */
+        private int bufferSize = 64;
+
+        /**
+         * 心跳间隔（秒）
+         */
+        private long heartbeatInterval = 20;
+
+        /**
+         * 连接超时时间（秒），超时后客户端自动重连
+         */
+        private long connectionTimeout = 1800;
+
+        /**
+         * 推送线程数，每个卡住的慢连接最多占用一个线程直到容器写超时，按可容忍的同时慢连接数预留
+         */
+        private int senderThreads = 8;
+
+        /**
+         * 推送线程池队列长度，满时本次不调度，消息留在连接缓冲区中等待下次推送
+         */
+        private int senderQueueSize = 10000;
+
+        /**
+         * 单次推送超过该时间（秒）未完成的连接视为慢连接并关闭，
+         * server.tomcat.connection-timeout（阻塞写超时）应不大于该值
+         */
+        private long sendTimeout = 10;
+    }
+
+    @Data
+    public static class Claim {
+        /**
+         * 拾取分段锁数量
+         */
+        private int lockStripes = 256;
+
+        /**
+         * 拾取下一个任务时每次扫描的候选任务数
+         */
+        private int nextScanSize = 10;
+    }
+
+    @Data
+    public static class Dispatch {
+        /**
+         * 是否开启自动分派
+         */
+        private boolean enabled = false;
+
+        /**
+         * 分派策略：round-robin / least-loaded / open-task-count
+         */
+        private String strategy = "least-loaded";
+
+        /**
+         * 分派间隔（毫秒）
+         */
+        private long interval = 1000;
+
+        /**
+         * 每轮最多分派的任务数
+         */
+        private int batchSize = 200;
+
+        /**
+         * 启动时预加载的待拾取任务数
+         */
+        private int preloadSize = 5000;
+    }
+
+    @Data
+    public static class Metrics {
+        /**
+         * 引擎整体指标刷新间隔（毫秒）
+         */
+        private long engineRefreshInterval = 30000;
+    }
+
+    @Data
+    public static class Archive {
+        /**
+         * 是否开启定时归档
+         */
+        private boolean enabled = false;
+
+        /**
+         * 定时归档 cron
+         */
+        private String cron = "0 0 2 * * ?";
+
+        /**
+         * 流程实例结束超过该天数后归档，小于 0 表示默认不归档
+         */
+        private int minAgeDays = 90;
+
+        /**
+         * 流程定义 key -> 保留天数，覆盖 minAgeDays，小于 0 表示该流程不归档
+         */
+        private Map<String, Integer> retention = new LinkedHashMap<>();
+
+        /**
+         * 每个事务归档的流程实例数
+         */
+        private int batchSize = 50;
+
+        /**
+         * 每轮最多执行的批次数
+         */
+        private int maxBatchesPerRun = 200;
+
+        /**
+         * 批次间隔（毫秒）
+         */
+        private long pauseMillis = 200;
+
+        /**
+         * 归档文件目录
+         */
+        private String directory = "archive";
+    }
+
+    @Data
+    public static class History {
+        /**
+         * 流程定义 key -> 历史级别（none / activity / audit / full），未配置的流程使用 spring.activiti.history-level
+         */
+        private Map<String, String> levels = new LinkedHashMap<>();
+
+        /**
+         * 历史明细异步写入
+         */
+        private AsyncHistory async = new AsyncHistory();
+    }
+
+    @Data
+    public static class AsyncHistory {
+        /**
+         * 是否开启 ACT_HI_DETAIL 异步批量写入
+         */
+        private boolean enabled = false;
+
+        /**
+         * 队列容量，占满后退回同步写入
+         */
+        private int queueCapacity = 10000;
+
+        /**
+         * 每批插入的行数
+         */
+        private int batchSize = 200;
+
+        /**
+         * 队列为空时的等待间隔（毫秒）
+         */
+        private long flushInterval = 200;
+
+        /**
+         * 批量插入失败的重试次数，超过后落盘
+         */
+        private int maxRetries = 3;
+
+        /**
+         * 落盘文件与预写日志目录，启动时重放
+         */
+        private String spoolDirectory = "history-spool";
+    }
+
+    @Data
+    public static class Listener {
+        /**
+         * 处理线程数
+         */
+        private int threads = 2;
+
+        /**
+         * 队列容量，满时丢弃新事件
+         */
+        private int queueCapacity = 10000;
+    }
+
+    @Data
+    public static class Sla {
+        /**
+         * 是否开启超时任务扫描
+         */
+        private boolean enabled = false;
+
+        /**
+         * 扫描间隔（毫秒）
+         */
+        private long scanInterval = 60000;
+
+        /**
+         * 每个事务处理的任务数
+         */
+        private int batchSize = 200;
+
+        /**
+         * 每轮最多处理的批次数
+         */
+        private int maxBatchesPerRun = 50;
+
+        /**
+         * 任务定义 key -> SLA 规则
+         */
+        private Map<String, Rule> rules = new LinkedHashMap<>();
+
+        @Data
+        public static class Rule {
+            /**
+             * 任务创建后的处理期限
+             */
+            private Duration duration = Duration.ofHours(24);
+
+            /**
+             * 超时后的处理方式
+             */
+            private SlaAction action = SlaAction.NOTIFY;
+
+            /**
+             * 升级人，REASSIGN 时转给该用户，NOTIFY 时一并提醒
+             */
+            private String escalateTo;
+
+            /**
+             * 提醒后顺延的期限，为空时使用 duration
+             */
+            private Duration repeatInterval;
+
+            /**
+             * COMPLETE 时完成任务使用的变量
+             */
+            private Map<String, Object> variables = new HashMap<>();
+
+            public long repeatMillis() {
+                return (repeatInterval != null ? repeatInterval : duration).toMillis();
+            }
+        }
+    }
+
+    @Data
+    public static class Analytics {
+        /**
+         * 是否由引擎事件增量维护审批统计
+         */
+        private boolean enabled = true;
+
+        /**
+         * 内存增量合并到统计表的间隔（毫秒）
+         */
+        private long flushInterval = 10000;
+
+        /**
+         * 每条 upsert 语句写入的行数
+         */
+        private int writeBatchSize = 500;
+    }
+
+    @Data
+    public static class Deploy {
+        /**
+         * 单个压缩包上传大小上限（字节）
+         */
+        private long maxArchiveSize = 10 * 1024 * 1024;
+
+        /**
+         * 单个压缩包解压后总大小上限（字节）
+         */
+        private long maxUncompressedSize = 50 * 1024 * 1024;
+
+        /**
+         * 单个资源文件解压后大小上限（字节）
+         */
+        private long maxResourceSize = 5 * 1024 * 1024;
+
+        /**
+         * 单个压缩包内文件数上限
+         */
+        private int maxEntries = 200;
+    }
+
+    @Data
+    public static class Async {
+        /**
+         * 写操作（发起、完成、拾取）线程池
+         */
+        private Pool write = new Pool(8, 100, 10000);
+
+        /**
+         * 读查询线程池
+         */
+        private Pool read = new Pool(8, 200, 5000);
+
+        @Data
+        @NoArgsConstructor
+        @AllArgsConstructor
+        public static class Pool {
+            /**
+             * 线程数，写线程池不宜超过数据库连接池大小
+             */
+            private int threads;
+
+            /**
+             * 队列容量，满时直接返回 503
+             */
+            private int queueCapacity;
+
+            /**
+             * 请求超时（毫秒），超时返回 503，仍在排队的请求不再执行
+             */
+            private long timeout;
+        }
+    }
+
+    @Data
+    public static class VirtualThread {
+        /**
+         * 是否开启虚拟线程模式，需要 JDK 21 及以上，低版本 JDK 忽略
+         */
+        private boolean enabled = false;
+
+        /**
+         * 同时访问引擎的请求数，使用 hikari 连接池时取连接池大小
+         */
+        private int dbPermits = 10;
+
+        /**
+         * 等待引擎调用许可的超时（毫秒），超时返回 503
+         */
+        private long acquireTimeout = 5000;
+    }
+
+    @Data
+    public static class Datasource {
+        /**
+         * 只读库，历史、报表及待办查询使用
+         */
+        private ReadDataSource read = new ReadDataSource();
+    }
+
+    @Data
+    public static class ReadDataSource {
+        /**
+         * 是否开启读写分离，关闭时所有查询走 spring.datasource
+         */
+        private boolean enabled = false;
+
+        private String driverClassName;
+
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        /**
+         * 请求中发生写操作后，本次请求的后续查询是否固定走主库
+         */
+        private boolean sticky = true;
+
+        /**
+         * 写入后同一客户端的后续请求固定走主库的时间（毫秒），应大于只读库复制延迟，0 表示只在本次请求内粘滞
+         */
+        private long stickyWindow = 3000;
+    }
+}
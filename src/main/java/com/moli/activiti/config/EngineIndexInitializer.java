@@ -0,0 +1,80 @@
+package com.moli.activiti.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author moli
+ * @time 2024-07-19 11:17:40
+ * @description 引擎建表之后补充业务查询需要的索引，索引已存在时跳过
+ */
+@Slf4j
+@Component
+public class EngineIndexInitializer implements ApplicationRunner {
+
+    /**
+     * 索引名 -> {表名, 列}
+     */
+    private static final Map<String, String[]> INDEXES = new LinkedHashMap<>();
+
+    static {
+        // 历史数据游标分页 (START_TIME_, ID_)
+        INDEXES.put("ACT_IDX_HI_PRO_INST_START_ID", new String[]{"ACT_HI_PROCINST", "START_TIME_, ID_"});
+        INDEXES.put("ACT_IDX_HI_TASK_INST_START_ID", new String[]{"ACT_HI_TASKINST", "START_TIME_, ID_"});
+        INDEXES.put("ACT_IDX_HI_ACT_INST_START_ID", new String[]{"ACT_HI_ACTINST", "START_TIME_, ID_"});
+        // 历史归档按流程实例查找、删除
+        INDEXES.put("ACT_IDX_HI_COMMENT_PROCINST", new String[]{"ACT_HI_COMMENT", "PROC_INST_ID_"});
+        INDEXES.put("ACT_IDX_HI_ATTACH_PROCINST", new String[]{"ACT_HI_ATTACHMENT", "PROC_INST_ID_"});
+        // SLA 按任务定义查询已到期任务
+        INDEXES.put("ACT_IDX_TASK_DEF_DUE", new String[]{"ACT_RU_TASK", "TASK_DEF_KEY_, DUE_DATE_"});
+    }
+
+    @Resource
+    private DataSource dataSource;
+
+    @Resource
+    private ActProperties actProperties;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!actProperties.getDb().isCreateIndexes()) return;
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            for (Map.Entry<String, String[]> entry : INDEXES.entrySet()) {
+                String table = entry.getValue()[0];
+                if (indexExists(metaData, table, entry.getKey())) continue;
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("CREATE INDEX " + entry.getKey() + " ON " + table
+                            + " (" + entry.getValue()[1] + ")");
+                    log.info("创建索引: {} ON {}({})", entry.getKey(), table, entry.getValue()[1]);
+                }
+            }
+        } catch (SQLException e) {
+            log.error("创建引擎表索引失败: {}", e.getMessage());
+        }
+    }
+
+    private boolean indexExists(DatabaseMetaData metaData, String table, String indexName) throws SQLException {
+        // 不同数据库对表名大小写处理不同，两种都查一遍
+        for (String name : new String[]{table, table.toLowerCase()}) {
+            try (ResultSet rs = metaData.getIndexInfo(null, null, name, false, true)) {
+                while (rs.next()) {
+                    if (indexName.equalsIgnoreCase(rs.getString("INDEX_NAME"))) return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,49 @@
+package com.moli.activiti.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import javax.annotation.Resource;
+
+/**
+ * @author moli
+ * @time 2024-07-18 14:12:26
+ * @description 线程池配置
+ */
+@EnableScheduling
+@Configuration
+public class ExecutorConfig {
+
+    @Resource
+    private ActProperties actProperties;
+
+    /**
+     * 批量操作线程池，并发数不宜超过数据库连接池大小
+     */
+    @Bean("actBatchExecutor")
+    public ThreadPoolTaskExecutor actBatchExecutor() {
+        int parallelism = actProperties.getBatch().getParallelism();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setQueueCapacity(parallelism * 2);
+        executor.setThreadNamePrefix("act-batch-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+
+    /**
+     * 历史归档专用线程，一轮归档耗时较长，不占用定时任务线程及批量操作线程池；同一时刻只执行一轮
+     */
+    @Bean("actArchiveExecutor")
+    public ThreadPoolTaskExecutor actArchiveExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("act-archive-");
+        return executor;
+    }
+}
@@ -0,0 +1,79 @@
+package com.moli.activiti.config;
+
+import com.moli.activiti.datasource.ReadWriteRoutingAspect;
+import com.moli.activiti.datasource.ReadWriteRoutingDataSource;
+import com.moli.activiti.datasource.StickyRoutingInterceptor;
+import com.moli.activiti.datasource.StickyTransactionManager;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.annotation.Resource;
+import javax.sql.DataSource;
+
+/**
+ * @author moli
+ * @time 2024-08-22 11:05:33
+ * @description 读写分离：spring.datasource 为主库，act.datasource.read 为只读库，各自独立的连接池。
+ * 引擎、mybatis-plus 及其他按类型或名称注入 dataSource 的地方都使用路由数据源，默认走主库
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "act.datasource.read", name = "enabled", havingValue = "true")
+public class ReadWriteDataSourceConfig implements WebMvcConfigurer {
+
+    @Resource
+    private ActProperties actProperties;
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("act-primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("act.datasource.read.hikari")
+    public HikariDataSource readDataSource() {
+        ActProperties.ReadDataSource read = actProperties.getDatasource().getRead();
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(read.getDriverClassName())
+                .url(read.getUrl())
+                .username(read.getUsername())
+                .password(read.getPassword())
+                .build();
+        dataSource.setPoolName("act-read");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, HikariDataSource readDataSource) {
+        return new ReadWriteRoutingDataSource(primaryDataSource, readDataSource);
+    }
+
+    /**
+     * 读写事务提交后标记本次请求粘滞主库，覆盖引擎命令、@Transactional 及 TransactionTemplate 的事务
+     */
+    @Bean
+    @Primary
+    public PlatformTransactionManager readWriteTransactionManager(DataSource dataSource,
+                                                                  ReadWriteRoutingAspect readWriteRoutingAspect) {
+        return new StickyTransactionManager(dataSource, readWriteRoutingAspect::written);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new StickyRoutingInterceptor(actProperties.getDatasource().getRead().getStickyWindow()));
+    }
+}
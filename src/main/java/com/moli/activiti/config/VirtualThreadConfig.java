@@ -0,0 +1,59 @@
+package com.moli.activiti.config;
+
+import com.moli.activiti.datasource.ReadWriteRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+/**
+ * @author moli
+ * @time 2024-08-21 09:58:40
+ * @description 虚拟线程模式：tomcat 请求处理与 /act/async 的引擎调用都运行在虚拟线程上，
+ * 并发不再由线程池大小限制，改由与数据库连接池等大的信号量限制同时访问引擎的请求数
+ */
+@Slf4j
+@Configuration
+@Conditional(VirtualThreads.OnEnabled.class)
+public class VirtualThreadConfig {
+
+    @Bean(name = "actVirtualExecutor", destroyMethod = "shutdown")
+    public ExecutorService actVirtualExecutor() {
+        log.info("虚拟线程模式已开启, JDK: {}", System.getProperty("java.version"));
+        return VirtualThreads.newThreadPerTaskExecutor("act-virtual-");
+    }
+
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadTomcatCustomizer(
+            ExecutorService actVirtualExecutor) {
+        return factory -> factory.addProtocolHandlerCustomizers(
+                protocolHandler -> protocolHandler.setExecutor(actVirtualExecutor));
+    }
+
+    /**
+     * 引擎调用许可，数量取数据库连接池大小，未配置连接池时取 act.virtual-threads.db-permits
+     */
+    @Bean
+    public Semaphore actDbPermits(DataSource dataSource, ActProperties actProperties, MeterRegistry meterRegistry) {
+        int permits = actProperties.getVirtualThreads().getDbPermits();
+        // 读写分离时按主库连接池计算
+        if (dataSource instanceof ReadWriteRoutingDataSource) {
+            dataSource = ((ReadWriteRoutingDataSource) dataSource).getPrimary();
+        }
+        if (dataSource instanceof HikariDataSource) permits = ((HikariDataSource) dataSource).getMaximumPoolSize();
+        Semaphore semaphore = new Semaphore(permits, true);
+        Gauge.builder("act.db.permits.available", semaphore, Semaphore::availablePermits).register(meterRegistry);
+        Gauge.builder("act.db.permits.waiting", semaphore, Semaphore::getQueueLength).register(meterRegistry);
+        log.info("引擎调用许可数: {}", permits);
+        return semaphore;
+    }
+}
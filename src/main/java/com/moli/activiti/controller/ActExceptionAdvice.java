@@ -0,0 +1,38 @@
+package com.moli.activiti.controller;
+
+import com.moli.activiti.async.EngineOutcomeUnknownException;
+import com.moli.activiti.async.EngineOverloadedException;
+import com.moli.activiti.common.ReturnData;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * @author moli
+ * @time 2024-08-20 10:21:09
+ * @description 控制层异常处理
+ */
+@Slf4j
+@RestControllerAdvice
+public class ActExceptionAdvice {
+
+    // 引擎线程池过载，快速返回 503 由调用方稍后重试
+    @ExceptionHandler(EngineOverloadedException.class)
+    public ResponseEntity<ReturnData<?>> overloaded(EngineOverloadedException e) {
+        log.warn("{} 线程池过载: {}", e.getPool(), e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(ReturnData.fail(HttpStatus.SERVICE_UNAVAILABLE.value(), e.getMessage()));
+    }
+
+    // 写操作已开始但超时，结果未知，不提示重试
+    @ExceptionHandler(EngineOutcomeUnknownException.class)
+    public ResponseEntity<ReturnData<?>> outcomeUnknown(EngineOutcomeUnknownException e) {
+        log.warn("{} 线程池请求超时, 结果未知: {}", e.getPool(), e.getMessage());
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                .body(ReturnData.fail(HttpStatus.GATEWAY_TIMEOUT.value(), e.getMessage()));
+    }
+}
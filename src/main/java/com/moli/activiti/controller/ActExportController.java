@@ -0,0 +1,64 @@
+package com.moli.activiti.controller;
+
+import com.moli.activiti.common.ExportFormat;
+import com.moli.activiti.common.HistoryQueryDTO;
+import com.moli.activiti.service.ActExportService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Resource;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * @author moli
+ * @time 2024-07-19 16:20:05
+ * @description 历史数据流式导出，支持 ndjson / csv 及 gzip 压缩
+ */
+@RestController
+@RequestMapping("/act/export")
+public class ActExportController {
+
+    @Resource
+    private ActExportService actExportService;
+
+    // 导出历史流程实例
+    @GetMapping("historyProcessInstance")
+    public void exportHistoryProcessInstance(HistoryQueryDTO query,
+                                             @RequestParam(defaultValue = "ndjson") String format,
+                                             @RequestParam(defaultValue = "false") boolean gzip,
+                                             HttpServletResponse response) throws IOException {
+        ExportFormat exportFormat = ExportFormat.of(format);
+        try (OutputStream out = open(response, "history-process-instance", exportFormat, gzip)) {
+            actExportService.exportHistoryProcessIns(query, exportFormat, out);
+        }
+    }
+
+    // 导出历史活动实例
+    @GetMapping("activityInstance")
+    public void exportActivityInstance(HistoryQueryDTO query,
+                                       @RequestParam(defaultValue = "ndjson") String format,
+                                       @RequestParam(defaultValue = "false") boolean gzip,
+                                       HttpServletResponse response) throws IOException {
+        ExportFormat exportFormat = ExportFormat.of(format);
+        try (OutputStream out = open(response, "activity-instance", exportFormat, gzip)) {
+            actExportService.exportActivityIns(query, exportFormat, out);
+        }
+    }
+
+    private OutputStream open(HttpServletResponse response, String name,
+                              ExportFormat format, boolean gzip) throws IOException {
+        response.setContentType(format.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"" + name + "." + format.getExtension() + "\"");
+        if (!gzip) return response.getOutputStream();
+        response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        // syncFlush 使已写出的数据能及时推送给客户端
+        return new GZIPOutputStream(response.getOutputStream(), 8192, true);
+    }
+}
@@ -1,19 +1,32 @@
 package com.moli.activiti.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.moli.activiti.common.BatchResultDTO;
+import com.moli.activiti.common.ClaimStatus;
+import com.moli.activiti.common.CursorPage;
+import com.moli.activiti.common.HistoryQueryDTO;
 import com.moli.activiti.common.ReturnData;
+import com.moli.activiti.common.StartProcessBatchDTO;
+import com.moli.activiti.common.TaskCompleteDTO;
 import com.moli.activiti.common.TaskDTO;
+import com.moli.activiti.common.vo.CommentVO;
+import com.moli.activiti.common.vo.DeploymentVO;
+import com.moli.activiti.common.vo.HistoricActivityVO;
+import com.moli.activiti.common.vo.HistoricProcessInstanceVO;
+import com.moli.activiti.common.vo.HistoricTaskVO;
+import com.moli.activiti.common.vo.ProcessDefinitionVO;
+import com.moli.activiti.common.vo.TaskVO;
+import com.moli.activiti.converter.ActConverter;
 import com.moli.activiti.service.ActService;
-import org.activiti.engine.history.HistoricActivityInstance;
-import org.activiti.engine.history.HistoricProcessInstance;
-import org.activiti.engine.history.HistoricTaskInstance;
-import org.activiti.engine.repository.Deployment;
-import org.activiti.engine.repository.ProcessDefinition;
-import org.activiti.engine.task.Comment;
 import org.activiti.engine.task.Task;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.annotation.Resource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Map;
 
@@ -29,6 +42,9 @@ public class ActivitiController {
     @Resource
     private ActService actService;
 
+    @Resource
+    private ObjectMapper objectMapper;
+
     @PostMapping("deploy")
     public ReturnData<?> deploy(@RequestPart("file") MultipartFile file,
                                 @RequestParam("actName") String actName) {
@@ -37,17 +53,33 @@ public class ActivitiController {
         return ReturnData.fail();
     }
 
+    // 批量部署流程压缩包，内容未变化的跳过
+    @PostMapping("deploy/batch")
+    public ReturnData<List<BatchResultDTO>> deployBatch(@RequestPart("files") List<MultipartFile> files,
+                                                        @RequestParam(value = "actName", required = false) String actName) {
+        return ReturnData.ok(actService.deployArchives(files, actName));
+    }
+
 
     // 查询流程部署信息
     @GetMapping("queryDeploymentInfo")
-    public ReturnData<List<Deployment>> queryDeploymentInfo() {
-        return ReturnData.ok(actService.getAllDeployInfo());
+    public ReturnData<List<DeploymentVO>> queryDeploymentInfo(WebRequest request) {
+        // 内容未变化时直接返回 304
+        if (request.checkNotModified(actService.getDefinitionEtag())) return null;
+        return ReturnData.ok(ActConverter.toList(actService.getAllDeployInfo(), ActConverter::toDeployment));
+    }
+
+    // 游标分页查询流程部署信息
+    @GetMapping("pageDeploymentInfo")
+    public ReturnData<CursorPage<DeploymentVO>> pageDeploymentInfo(String cursor, Integer pageSize) {
+        return ReturnData.ok(ActConverter.toPage(actService.pageDeployInfo(cursor, pageSize), ActConverter::toDeployment));
     }
 
     // 查询流程定义信息
     @GetMapping("queryProcessInfo")
-    public ReturnData<List<ProcessDefinition>> queryProcessInfo() {
-        return ReturnData.ok(actService.getAllProcessDefinitions());
+    public ReturnData<List<ProcessDefinitionVO>> queryProcessInfo(WebRequest request) {
+        if (request.checkNotModified(actService.getDefinitionEtag())) return null;
+        return ReturnData.ok(ActConverter.toList(actService.getAllProcessDefinitions(), ActConverter::toProcessDefinition));
     }
 
     // 根据部署id删除流程部署
@@ -67,6 +99,22 @@ public class ActivitiController {
         return ReturnData.fail();
     }
 
+    // 批量发起流程，按分块以 NDJSON 流式返回每个实例的创建结果
+    @PostMapping(value = "startProcess/batch", produces = "application/x-ndjson")
+    public StreamingResponseBody startProcessBatch(@RequestBody StartProcessBatchDTO batch) {
+        return out -> actService.startProcesses(batch.getProcessDefinitionId(), batch.getVarsList(), results -> {
+            try {
+                for (BatchResultDTO result : results) {
+                    out.write(objectMapper.writeValueAsBytes(result));
+                    out.write('\n');
+                }
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
     // 完成任务
     @PostMapping("completeTask")
     public ReturnData<String> completeTask(String taskId,
@@ -76,6 +124,12 @@ public class ActivitiController {
         return ReturnData.fail();
     }
 
+    // 批量完成任务
+    @PostMapping("completeTasks")
+    public ReturnData<List<BatchResultDTO>> completeTasks(@RequestBody List<TaskCompleteDTO> tasks) {
+        return ReturnData.ok(actService.completeTasks(tasks));
+    }
+
     // 完成任务
     @PostMapping("completeDelegateTask")
     public ReturnData<String> completeDelegateTask(String taskId,
@@ -86,28 +140,28 @@ public class ActivitiController {
     }
 
 
-    // 查询历史流程实例
+    // 游标分页查询历史流程实例
     @GetMapping("queryHistoryProcessInstance")
-    public ReturnData<List<HistoricProcessInstance>> queryHistoryProcessInstance() {
-        return ReturnData.ok(actService.getAllHistoryProcessIns());
+    public ReturnData<CursorPage<HistoricProcessInstanceVO>> queryHistoryProcessInstance(HistoryQueryDTO query) {
+        return ReturnData.ok(ActConverter.toPage(actService.pageHistoryProcessIns(query), ActConverter::toHistoricProcessInstance));
     }
 
-    // 查询历史任务
+    // 游标分页查询历史任务
     @GetMapping("queryHistoryTask")
-    public ReturnData<List<HistoricTaskInstance>> queryHistoryTask() {
-        return ReturnData.ok(actService.getAllHistoryTask());
+    public ReturnData<CursorPage<HistoricTaskVO>> queryHistoryTask(HistoryQueryDTO query) {
+        return ReturnData.ok(ActConverter.toPage(actService.pageHistoryTask(query), ActConverter::toHistoricTask));
     }
 
-    // 查看历史活动流程实例
+    // 游标分页查看历史活动流程实例
     @GetMapping("queryActivityInstance")
-    public ReturnData<List<HistoricActivityInstance>> queryActivityInstance() {
-        return ReturnData.ok(actService.getAllActivityIns());
+    public ReturnData<CursorPage<HistoricActivityVO>> queryActivityInstance(HistoryQueryDTO query) {
+        return ReturnData.ok(ActConverter.toPage(actService.pageActivityIns(query), ActConverter::toHistoricActivity));
     }
 
     // 根据代办人查询任务
     @GetMapping("queryByAssigneeTask")
-    public ReturnData<List<Task>> queryByAssigneeTask(String assignee) {
-        return ReturnData.ok(actService.getAllTaskByAssigneeName(assignee));
+    public ReturnData<List<TaskVO>> queryByAssigneeTask(String assignee) {
+        return ReturnData.ok(ActConverter.toList(actService.getAllTaskByAssigneeName(assignee), ActConverter::toTask));
     }
 
     // 按任务id更新代办人
@@ -130,15 +184,15 @@ public class ActivitiController {
 
     // 查询个人审批意见
     @GetMapping("queryComment")
-    public ReturnData<List<Comment>> queryComment(String taskId) {
-        return ReturnData.ok(actService.getAllComment(taskId, null));
+    public ReturnData<List<CommentVO>> queryComment(String taskId) {
+        return ReturnData.ok(ActConverter.toList(actService.getAllComment(taskId, null), ActConverter::toComment));
     }
 
 
     // 根据候选人查询任务
     @GetMapping("queryTaskByCandidateUser")
-    public ReturnData<?> queryTaskByCandidateUser(String candidate) {
-        return ReturnData.ok(actService.getTaskByCandidate(candidate));
+    public ReturnData<List<TaskVO>> queryTaskByCandidateUser(String candidate) {
+        return ReturnData.ok(ActConverter.toList(actService.getTaskByCandidate(candidate), ActConverter::toTask));
     }
 
     // 候选人拾取任务，拾取后的任务，候选人才可以完成
@@ -146,9 +200,17 @@ public class ActivitiController {
     public ReturnData<String> claimTask(@RequestParam("taskId") String taskId,
                                         @RequestParam("candidate") String candidate) {
         //拾取任务
-        boolean success = actService.claimTask(taskId, candidate);
-        if (success) return ReturnData.ok();
-        return ReturnData.fail();
+        ClaimStatus status = actService.tryClaimTask(taskId, candidate);
+        if (status == ClaimStatus.CLAIMED) return ReturnData.ok();
+        return ReturnData.fail(status == ClaimStatus.ALREADY_CLAIMED ? 409 : 404, status.getMessage());
+    }
+
+    // 拾取最早创建的一个可拾取任务
+    @PostMapping("claimNextTask")
+    public ReturnData<TaskVO> claimNextTask(@RequestParam("candidate") String candidate) {
+        Task task = actService.claimNextTask(candidate);
+        if (task == null) return ReturnData.fail(404, "没有可拾取的任务");
+        return ReturnData.ok(ActConverter.toTask(task));
     }
 
     // 任务委派
@@ -0,0 +1,61 @@
+package com.moli.activiti.controller;
+
+import com.moli.activiti.common.ReturnData;
+import com.moli.activiti.common.vo.ActivityStatsVO;
+import com.moli.activiti.common.vo.DecisionStatsVO;
+import com.moli.activiti.service.AnalyticsService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Resource;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * @author moli
+ * @time 2024-08-16 11:52:14
+ * @description 审批统计，日期范围为 [from, to)，默认最近 7 天
+ */
+@RestController
+@RequestMapping("/act/analytics")
+public class AnalyticsController {
+
+    private static final int DEFAULT_DAYS = 7;
+
+    @Resource
+    private AnalyticsService analyticsService;
+
+    // 活动耗时及耗时分布
+    @GetMapping("activity")
+    public ReturnData<List<ActivityStatsVO>> activity(
+            @RequestParam(required = false) String processDefinitionKey,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now().plusDays(1);
+        LocalDate start = from != null ? from : end.minusDays(DEFAULT_DAYS);
+        return ReturnData.ok(analyticsService.activityStats(processDefinitionKey, start, end));
+    }
+
+    // 网关分支比例，如审批通过率、重新申请次数
+    @GetMapping("decision")
+    public ReturnData<List<DecisionStatsVO>> decision(
+            @RequestParam(required = false) String processDefinitionKey,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now().plusDays(1);
+        LocalDate start = from != null ? from : end.minusDays(DEFAULT_DAYS);
+        return ReturnData.ok(analyticsService.decisionStats(processDefinitionKey, start, end));
+    }
+
+    // 从历史活动表重建统计
+    @PostMapping("rebuild")
+    public ReturnData<Long> rebuild(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate to) {
+        return ReturnData.ok(analyticsService.rebuild(from, to));
+    }
+}
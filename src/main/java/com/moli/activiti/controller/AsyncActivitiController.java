@@ -0,0 +1,127 @@
+package com.moli.activiti.controller;
+
+import com.moli.activiti.async.EngineAsyncExecutor;
+import com.moli.activiti.common.BatchResultDTO;
+import com.moli.activiti.common.ClaimStatus;
+import com.moli.activiti.common.CursorPage;
+import com.moli.activiti.common.HistoryQueryDTO;
+import com.moli.activiti.common.ReturnData;
+import com.moli.activiti.common.TaskCompleteDTO;
+import com.moli.activiti.common.vo.HistoricProcessInstanceVO;
+import com.moli.activiti.common.vo.HistoricTaskVO;
+import com.moli.activiti.common.vo.ProcessDefinitionVO;
+import com.moli.activiti.common.vo.TaskVO;
+import com.moli.activiti.converter.ActConverter;
+import com.moli.activiti.service.ActService;
+import org.activiti.engine.task.Task;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import javax.annotation.Resource;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author moli
+ * @time 2024-08-20 10:35:48
+ * @description 异步 activiti 控制层，引擎调用在独立的读写线程池中执行，不占用 web 容器线程，过载时返回 503
+ */
+@RestController
+@RequestMapping("/act/async")
+public class AsyncActivitiController {
+
+    @Resource
+    private ActService actService;
+
+    @Resource
+    private EngineAsyncExecutor engineAsyncExecutor;
+
+    // 发起流程
+    @PostMapping("startProcess")
+    public DeferredResult<ReturnData<String>> startProcess(String processDefinitionId,
+                                                           @RequestParam Map<String, Object> vars) {
+        return engineAsyncExecutor.write(() -> {
+            boolean success = actService.startProcess(processDefinitionId, vars);
+            if (success) return ReturnData.ok();
+            return ReturnData.fail();
+        });
+    }
+
+    // 完成任务
+    @PostMapping("completeTask")
+    public DeferredResult<ReturnData<String>> completeTask(String taskId,
+                                                           @RequestParam Map<String, Object> vars) {
+        return engineAsyncExecutor.write(() -> {
+            boolean success = actService.completeTask(taskId, vars);
+            if (success) return ReturnData.ok();
+            return ReturnData.fail();
+        });
+    }
+
+    // 批量完成任务
+    @PostMapping("completeTasks")
+    public DeferredResult<ReturnData<List<BatchResultDTO>>> completeTasks(@RequestBody List<TaskCompleteDTO> tasks) {
+        return engineAsyncExecutor.write(() -> ReturnData.ok(actService.completeTasks(tasks)));
+    }
+
+    // 候选人拾取任务
+    @PostMapping("claimTask")
+    public DeferredResult<ReturnData<String>> claimTask(@RequestParam("taskId") String taskId,
+                                                        @RequestParam("candidate") String candidate) {
+        return engineAsyncExecutor.write(() -> {
+            ClaimStatus status = actService.tryClaimTask(taskId, candidate);
+            if (status == ClaimStatus.CLAIMED) return ReturnData.ok();
+            return ReturnData.fail(status == ClaimStatus.ALREADY_CLAIMED ? 409 : 404, status.getMessage());
+        });
+    }
+
+    // 拾取最早创建的一个可拾取任务
+    @PostMapping("claimNextTask")
+    public DeferredResult<ReturnData<TaskVO>> claimNextTask(@RequestParam("candidate") String candidate) {
+        return engineAsyncExecutor.write(() -> {
+            Task task = actService.claimNextTask(candidate);
+            if (task == null) return ReturnData.fail(404, "没有可拾取的任务");
+            return ReturnData.ok(ActConverter.toTask(task));
+        });
+    }
+
+    // 查询流程定义
+    @GetMapping("queryProcessDefinition")
+    public DeferredResult<ReturnData<List<ProcessDefinitionVO>>> queryProcessDefinition() {
+        return engineAsyncExecutor.read(() -> ReturnData.ok(
+                ActConverter.toList(actService.getAllProcessDefinitions(), ActConverter::toProcessDefinition)));
+    }
+
+    // 根据代办人查询任务
+    @GetMapping("queryByAssigneeTask")
+    public DeferredResult<ReturnData<List<TaskVO>>> queryByAssigneeTask(String assignee) {
+        return engineAsyncExecutor.read(() -> ReturnData.ok(
+                ActConverter.toList(actService.getAllTaskByAssigneeName(assignee), ActConverter::toTask)));
+    }
+
+    // 根据候选人查询任务
+    @GetMapping("queryTaskByCandidateUser")
+    public DeferredResult<ReturnData<List<TaskVO>>> queryTaskByCandidateUser(String candidate) {
+        return engineAsyncExecutor.read(() -> ReturnData.ok(
+                ActConverter.toList(actService.getTaskByCandidate(candidate), ActConverter::toTask)));
+    }
+
+    // 游标分页查询历史流程实例
+    @GetMapping("queryHistoryProcessInstance")
+    public DeferredResult<ReturnData<CursorPage<HistoricProcessInstanceVO>>> queryHistoryProcessInstance(HistoryQueryDTO query) {
+        return engineAsyncExecutor.read(() -> ReturnData.ok(
+                ActConverter.toPage(actService.pageHistoryProcessIns(query), ActConverter::toHistoricProcessInstance)));
+    }
+
+    // 游标分页查询历史任务
+    @GetMapping("queryHistoryTask")
+    public DeferredResult<ReturnData<CursorPage<HistoricTaskVO>>> queryHistoryTask(HistoryQueryDTO query) {
+        return engineAsyncExecutor.read(() -> ReturnData.ok(
+                ActConverter.toPage(actService.pageHistoryTask(query), ActConverter::toHistoricTask)));
+    }
+}
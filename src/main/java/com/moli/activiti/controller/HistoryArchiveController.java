@@ -0,0 +1,49 @@
+package com.moli.activiti.controller;
+
+import com.moli.activiti.archive.HistoryArchiver;
+import com.moli.activiti.common.ArchiveStatusDTO;
+import com.moli.activiti.common.ReturnData;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Resource;
+
+/**
+ * @author moli
+ * @time 2024-08-05 16:08:51
+ * @description 历史数据归档
+ */
+@RestController
+@RequestMapping("/act/archive")
+public class HistoryArchiveController {
+
+    @Resource
+    private HistoryArchiver historyArchiver;
+
+    @Resource
+    private ThreadPoolTaskExecutor actArchiveExecutor;
+
+    // 手动触发一轮归档，异步执行
+    @PostMapping("run")
+    public ReturnData<?> run() {
+        if (historyArchiver.status().isRunning()) {
+            return ReturnData.fail(409, "归档正在执行");
+        }
+        try {
+            actArchiveExecutor.execute(historyArchiver::run);
+        } catch (TaskRejectedException e) {
+            return ReturnData.fail(409, "归档正在执行");
+        }
+        return ReturnData.ok();
+    }
+
+    // 归档进度
+    @GetMapping("status")
+    public ReturnData<ArchiveStatusDTO> status() {
+        return ReturnData.ok(historyArchiver.status());
+    }
+}
@@ -0,0 +1,45 @@
+package com.moli.activiti.controller;
+
+import com.moli.activiti.common.BatchResultDTO;
+import com.moli.activiti.common.MigrationPlanDTO;
+import com.moli.activiti.common.MigrationResultDTO;
+import com.moli.activiti.common.ReturnData;
+import com.moli.activiti.service.ProcessMigrationService;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Resource;
+import java.util.List;
+
+/**
+ * @author moli
+ * @time 2024-08-12 11:31:07
+ * @description 流程实例版本迁移，建议先以 dryRun 校验活动映射
+ */
+@RestController
+@RequestMapping("/act/migration")
+public class ProcessMigrationController {
+
+    @Resource
+    private ProcessMigrationService processMigrationService;
+
+    // 迁移运行中的流程实例到新版本
+    @PostMapping("migrate")
+    public ReturnData<MigrationResultDTO> migrate(@RequestBody MigrationPlanDTO plan) {
+        try {
+            return ReturnData.ok(processMigrationService.migrate(plan));
+        } catch (IllegalArgumentException e) {
+            return ReturnData.fail(400, e.getMessage());
+        }
+    }
+
+    // 清理旧版本流程定义
+    @PostMapping("retire")
+    public ReturnData<List<BatchResultDTO>> retire(@RequestParam("processDefinitionKey") String processDefinitionKey,
+                                                   @RequestParam(defaultValue = "1") int keepVersions) {
+        return ReturnData.ok(processMigrationService.retire(processDefinitionKey, keepVersions));
+    }
+}
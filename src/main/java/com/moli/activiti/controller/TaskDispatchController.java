@@ -0,0 +1,46 @@
+package com.moli.activiti.controller;
+
+import com.moli.activiti.common.ReturnData;
+import com.moli.activiti.dispatch.TaskDispatcher;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Resource;
+import java.util.List;
+
+/**
+ * @author moli
+ * @time 2024-07-26 11:02:19
+ * @description 候选任务自动分派，处理人上线后由分派器推送任务
+ */
+@RestController
+@RequestMapping("/act/dispatch")
+public class TaskDispatchController {
+
+    @Resource
+    private TaskDispatcher taskDispatcher;
+
+    // 处理人上线
+    @PostMapping("register")
+    public ReturnData<?> register(@RequestParam("worker") String worker,
+                                  @RequestParam(value = "groups", required = false) List<String> groups) {
+        taskDispatcher.register(worker, groups);
+        return ReturnData.ok();
+    }
+
+    // 处理人下线
+    @PostMapping("unregister")
+    public ReturnData<?> unregister(@RequestParam("worker") String worker) {
+        taskDispatcher.unregister(worker);
+        return ReturnData.ok();
+    }
+
+    // 待分派任务数
+    @GetMapping("pending")
+    public ReturnData<Integer> pending() {
+        return ReturnData.ok(taskDispatcher.pendingSize());
+    }
+}
@@ -0,0 +1,45 @@
+package com.moli.activiti.controller;
+
+import com.moli.activiti.common.HandoverDTO;
+import com.moli.activiti.common.HandoverProgressDTO;
+import com.moli.activiti.common.ReturnData;
+import com.moli.activiti.service.TaskHandoverService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Resource;
+
+/**
+ * @author moli
+ * @time 2024-08-09 10:46:03
+ * @description 工作交接，将一个人的全部待办批量转办或委派给另一个人
+ */
+@RestController
+@RequestMapping("/act/handover")
+public class TaskHandoverController {
+
+    @Resource
+    private TaskHandoverService taskHandoverService;
+
+    // 提交交接，返回交接任务 id
+    @PostMapping
+    public ReturnData<String> handover(@RequestBody HandoverDTO handover) {
+        try {
+            return ReturnData.ok(taskHandoverService.handover(handover));
+        } catch (IllegalArgumentException e) {
+            return ReturnData.fail(400, e.getMessage());
+        }
+    }
+
+    // 交接进度
+    @GetMapping("progress")
+    public ReturnData<HandoverProgressDTO> progress(@RequestParam("jobId") String jobId) {
+        HandoverProgressDTO progress = taskHandoverService.progress(jobId);
+        if (progress == null) return ReturnData.fail(404, "交接任务不存在");
+        return ReturnData.ok(progress);
+    }
+}
@@ -0,0 +1,33 @@
+package com.moli.activiti.controller;
+
+import com.moli.activiti.notification.TaskNotificationHub;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.Resource;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author moli
+ * @time 2024-07-24 10:48:03
+ * @description 任务变更推送，替代待办列表轮询
+ */
+@RestController
+@RequestMapping("/act/notify")
+public class TaskNotificationController {
+
+    @Resource
+    private TaskNotificationHub taskNotificationHub;
+
+    // 订阅任务创建、指派、拾取通知
+    @GetMapping(value = "subscribe", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@RequestParam("user") String user,
+                                @RequestParam(value = "groups", required = false) List<String> groups) {
+        return taskNotificationHub.subscribe(user, groups == null ? Collections.emptyList() : groups);
+    }
+}
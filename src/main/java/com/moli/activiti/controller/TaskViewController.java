@@ -0,0 +1,61 @@
+package com.moli.activiti.controller;
+
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.moli.activiti.common.ReturnData;
+import com.moli.activiti.common.TaskViewQueryDTO;
+import com.moli.activiti.entity.TaskView;
+import com.moli.activiti.service.TaskViewService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Resource;
+import java.util.List;
+
+/**
+ * @author moli
+ * @time 2024-08-02 11:05:49
+ * @description 待办任务读模型查询，单表索引查询替代引擎的多表关联
+ */
+@RestController
+@RequestMapping("/act/view")
+public class TaskViewController {
+
+    @Resource
+    private TaskViewService taskViewService;
+
+    // 代办人待办
+    @GetMapping("inbox")
+    public ReturnData<List<TaskView>> inbox(@RequestParam("assignee") String assignee,
+                                            @RequestParam(defaultValue = "100") int limit) {
+        return ReturnData.ok(taskViewService.listByAssignee(assignee, limit));
+    }
+
+    // 候选人可拾取的任务
+    @GetMapping("candidate")
+    public ReturnData<List<TaskView>> candidate(@RequestParam("user") String user,
+                                                @RequestParam(value = "groups", required = false) List<String> groups,
+                                                @RequestParam(defaultValue = "100") int limit) {
+        return ReturnData.ok(taskViewService.listByCandidate(user, groups, limit));
+    }
+
+    // 管理端检索
+    @GetMapping("search")
+    public ReturnData<IPage<TaskView>> search(TaskViewQueryDTO query) {
+        return ReturnData.ok(taskViewService.search(query));
+    }
+
+    // 代办人待办数
+    @GetMapping("count")
+    public ReturnData<Long> count(@RequestParam("assignee") String assignee) {
+        return ReturnData.ok(taskViewService.countByAssignee(assignee));
+    }
+
+    // 从运行时任务全量重建读模型
+    @PostMapping("rebuild")
+    public ReturnData<Integer> rebuild() {
+        return ReturnData.ok(taskViewService.rebuild());
+    }
+}
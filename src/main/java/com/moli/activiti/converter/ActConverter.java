@@ -0,0 +1,137 @@
+package com.moli.activiti.converter;
+
+import com.moli.activiti.common.CursorPage;
+import com.moli.activiti.common.vo.CommentVO;
+import com.moli.activiti.common.vo.DeploymentVO;
+import com.moli.activiti.common.vo.HistoricActivityVO;
+import com.moli.activiti.common.vo.HistoricProcessInstanceVO;
+import com.moli.activiti.common.vo.HistoricTaskVO;
+import com.moli.activiti.common.vo.ProcessDefinitionVO;
+import com.moli.activiti.common.vo.TaskVO;
+import org.activiti.engine.history.HistoricActivityInstance;
+import org.activiti.engine.history.HistoricProcessInstance;
+import org.activiti.engine.history.HistoricTaskInstance;
+import org.activiti.engine.repository.Deployment;
+import org.activiti.engine.repository.ProcessDefinition;
+import org.activiti.engine.task.Comment;
+import org.activiti.engine.task.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * @author moli
+ * @time 2024-08-01 09:52:36
+ * @description 引擎实体转视图对象，只读取客户端使用的字段，避免序列化时遍历实体的全部 getter 触发懒加载
+ */
+public final class ActConverter {
+
+    private ActConverter() {
+    }
+
+    public static TaskVO toTask(Task task) {
+        if (task == null) return null;
+        TaskVO vo = new TaskVO();
+        vo.setId(task.getId());
+        vo.setName(task.getName());
+        vo.setAssignee(task.getAssignee());
+        vo.setOwner(task.getOwner());
+        vo.setTaskDefinitionKey(task.getTaskDefinitionKey());
+        vo.setProcessInstanceId(task.getProcessInstanceId());
+        vo.setProcessDefinitionId(task.getProcessDefinitionId());
+        vo.setCreateTime(task.getCreateTime());
+        vo.setDueDate(task.getDueDate());
+        vo.setPriority(task.getPriority());
+        return vo;
+    }
+
+    public static DeploymentVO toDeployment(Deployment deployment) {
+        DeploymentVO vo = new DeploymentVO();
+        vo.setId(deployment.getId());
+        vo.setName(deployment.getName());
+        vo.setCategory(deployment.getCategory());
+        vo.setDeploymentTime(deployment.getDeploymentTime());
+        return vo;
+    }
+
+    public static ProcessDefinitionVO toProcessDefinition(ProcessDefinition definition) {
+        ProcessDefinitionVO vo = new ProcessDefinitionVO();
+        vo.setId(definition.getId());
+        vo.setKey(definition.getKey());
+        vo.setName(definition.getName());
+        vo.setVersion(definition.getVersion());
+        vo.setDeploymentId(definition.getDeploymentId());
+        vo.setResourceName(definition.getResourceName());
+        vo.setSuspended(definition.isSuspended());
+        return vo;
+    }
+
+    public static HistoricProcessInstanceVO toHistoricProcessInstance(HistoricProcessInstance instance) {
+        HistoricProcessInstanceVO vo = new HistoricProcessInstanceVO();
+        vo.setId(instance.getId());
+        vo.setProcessDefinitionId(instance.getProcessDefinitionId());
+        vo.setBusinessKey(instance.getBusinessKey());
+        vo.setStartUserId(instance.getStartUserId());
+        vo.setStartTime(instance.getStartTime());
+        vo.setEndTime(instance.getEndTime());
+        vo.setDurationInMillis(instance.getDurationInMillis());
+        vo.setDeleteReason(instance.getDeleteReason());
+        return vo;
+    }
+
+    public static HistoricTaskVO toHistoricTask(HistoricTaskInstance task) {
+        HistoricTaskVO vo = new HistoricTaskVO();
+        vo.setId(task.getId());
+        vo.setName(task.getName());
+        vo.setTaskDefinitionKey(task.getTaskDefinitionKey());
+        vo.setAssignee(task.getAssignee());
+        vo.setProcessInstanceId(task.getProcessInstanceId());
+        vo.setProcessDefinitionId(task.getProcessDefinitionId());
+        vo.setStartTime(task.getStartTime());
+        vo.setEndTime(task.getEndTime());
+        vo.setDurationInMillis(task.getDurationInMillis());
+        vo.setDeleteReason(task.getDeleteReason());
+        return vo;
+    }
+
+    public static HistoricActivityVO toHistoricActivity(HistoricActivityInstance activity) {
+        HistoricActivityVO vo = new HistoricActivityVO();
+        vo.setId(activity.getId());
+        vo.setActivityId(activity.getActivityId());
+        vo.setActivityName(activity.getActivityName());
+        vo.setActivityType(activity.getActivityType());
+        vo.setAssignee(activity.getAssignee());
+        vo.setTaskId(activity.getTaskId());
+        vo.setProcessInstanceId(activity.getProcessInstanceId());
+        vo.setProcessDefinitionId(activity.getProcessDefinitionId());
+        vo.setStartTime(activity.getStartTime());
+        vo.setEndTime(activity.getEndTime());
+        vo.setDurationInMillis(activity.getDurationInMillis());
+        return vo;
+    }
+
+    public static CommentVO toComment(Comment comment) {
+        CommentVO vo = new CommentVO();
+        vo.setId(comment.getId());
+        vo.setUserId(comment.getUserId());
+        vo.setTime(comment.getTime());
+        vo.setTaskId(comment.getTaskId());
+        vo.setProcessInstanceId(comment.getProcessInstanceId());
+        vo.setType(comment.getType());
+        vo.setFullMessage(comment.getFullMessage());
+        return vo;
+    }
+
+    public static <E, V> List<V> toList(List<E> entities, Function<E, V> mapper) {
+        List<V> result = new ArrayList<>(entities.size());
+        for (E entity : entities) {
+            result.add(mapper.apply(entity));
+        }
+        return result;
+    }
+
+    public static <E, V> CursorPage<V> toPage(CursorPage<E> page, Function<E, V> mapper) {
+        return new CursorPage<>(toList(page.getRecords(), mapper), page.getNextCursor(), page.isHasMore());
+    }
+}
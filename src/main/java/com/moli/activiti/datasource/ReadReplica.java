@@ -0,0 +1,18 @@
+package com.moli.activiti.datasource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * @author moli
+ * @time 2024-08-22 09:31:05
+ * @description 标注只读的历史、报表及待办查询，开启读写分离时路由到只读库
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReadReplica {
+}
@@ -0,0 +1,91 @@
+package com.moli.activiti.datasource;
+
+import com.moli.activiti.config.ActProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * @author moli
+ * @time 2024-08-22 10:18:36
+ * @description 读写分离路由：{@link ReadReplica} 查询在事务开始前切到只读库；
+ * 任一读写事务提交后（由 {@link StickyTransactionManager} 回调 {@link #written()}）视为发生写操作，
+ * 开启粘滞时本次请求后续查询走主库，并通过 cookie 让同一客户端在粘滞窗口内的后续请求也走主库
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(prefix = "act.datasource.read", name = "enabled", havingValue = "true")
+public class ReadWriteRoutingAspect {
+
+    static final String STICKY_COOKIE = "act_rw";
+
+    @Resource
+    private ActProperties actProperties;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private Counter readRoutes;
+
+    private Counter primaryRoutes;
+
+    @PostConstruct
+    public void init() {
+        readRoutes = Counter.builder("act.datasource.route").tag("target", ReadWriteRoutingDataSource.READ)
+                .register(meterRegistry);
+        primaryRoutes = Counter.builder("act.datasource.route").tag("target", ReadWriteRoutingDataSource.PRIMARY)
+                .register(meterRegistry);
+    }
+
+    @Around("@annotation(com.moli.activiti.datasource.ReadReplica)")
+    public Object read(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (RoutingContext.isRead()) return joinPoint.proceed();
+        // 已在事务中时连接已绑定，固定主库时读自己的写入
+        if (RoutingContext.isSticky() || TransactionSynchronizationManager.isActualTransactionActive()) {
+            primaryRoutes.increment();
+            return joinPoint.proceed();
+        }
+        readRoutes.increment();
+        RoutingContext.setRead(true);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            RoutingContext.setRead(false);
+        }
+    }
+
+    /**
+     * 读写事务已提交
+     */
+    public void written() {
+        ActProperties.ReadDataSource config = actProperties.getDatasource().getRead();
+        if (!config.isSticky()) return;
+        // 只在请求线程中标记，由 StickyRoutingInterceptor 在请求结束时清理
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes)) return;
+        RoutingContext.stickToPrimary();
+        HttpServletResponse response = ((ServletRequestAttributes) attributes).getResponse();
+        if (response == null || response.isCommitted() || config.getStickyWindow() <= 0) return;
+        Cookie cookie = new Cookie(STICKY_COOKIE, String.valueOf(System.currentTimeMillis()));
+        cookie.setPath("/");
+        cookie.setHttpOnly(true);
+        cookie.setMaxAge((int) Math.max(1, (config.getStickyWindow() + 999) / 1000));
+        response.addCookie(cookie);
+    }
+}
@@ -0,0 +1,40 @@
+package com.moli.activiti.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author moli
+ * @time 2024-08-22 09:55:19
+ * @description 读写分离数据源，默认主库，{@link ReadReplica} 查询期间路由到只读库。
+ * 路由在获取连接时决定，事务开始后连接不再切换
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+
+    static final String READ = "read";
+
+    private final DataSource primary;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource read) {
+        this.primary = primary;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        targets.put(READ, read);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    public DataSource getPrimary() {
+        return primary;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return RoutingContext.isRead() ? READ : PRIMARY;
+    }
+}
@@ -0,0 +1,59 @@
+package com.moli.activiti.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * @author moli
+ * @time 2024-08-22 09:40:47
+ * @description 当前线程的数据源路由：只读查询期间路由到只读库；
+ * 本次请求写过数据（或请求带有近期写入标记）时固定走主库，保证读到自己的写入
+ */
+public final class RoutingContext {
+
+    private static final ThreadLocal<Boolean> READ = new ThreadLocal<>();
+
+    private static final ThreadLocal<Boolean> STICKY = new ThreadLocal<>();
+
+    private RoutingContext() {
+    }
+
+    static boolean isRead() {
+        return READ.get() != null && STICKY.get() == null;
+    }
+
+    static void setRead(boolean read) {
+        if (read) READ.set(Boolean.TRUE);
+        else READ.remove();
+    }
+
+    public static boolean isSticky() {
+        return STICKY.get() != null;
+    }
+
+    /**
+     * 之后的查询固定走主库，直到 {@link #clear()}
+     */
+    public static void stickToPrimary() {
+        STICKY.set(Boolean.TRUE);
+    }
+
+    public static void clear() {
+        READ.remove();
+        STICKY.remove();
+    }
+
+    /**
+     * 将当前线程的主库固定标记带到其他线程执行
+     */
+    public static <T> Supplier<T> propagate(Supplier<T> action) {
+        if (!isSticky()) return action;
+        return () -> {
+            stickToPrimary();
+            try {
+                return action.get();
+            } finally {
+                clear();
+            }
+        };
+    }
+}
@@ -0,0 +1,49 @@
+package com.moli.activiti.datasource;
+
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * @author moli
+ * @time 2024-08-22 10:46:02
+ * @description 请求带有粘滞窗口内的写入标记时本次请求固定走主库，请求结束时清理路由状态
+ */
+public class StickyRoutingInterceptor implements AsyncHandlerInterceptor {
+
+    private final long stickyWindow;
+
+    public StickyRoutingInterceptor(long stickyWindow) {
+        this.stickyWindow = stickyWindow;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RoutingContext.clear();
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null || stickyWindow <= 0) return true;
+        for (Cookie cookie : cookies) {
+            if (!ReadWriteRoutingAspect.STICKY_COOKIE.equals(cookie.getName())) continue;
+            try {
+                if (System.currentTimeMillis() - Long.parseLong(cookie.getValue()) < stickyWindow) {
+                    RoutingContext.stickToPrimary();
+                }
+            } catch (NumberFormatException ignored) {
+                // 非本服务写入的 cookie
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RoutingContext.clear();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RoutingContext.clear();
+    }
+}
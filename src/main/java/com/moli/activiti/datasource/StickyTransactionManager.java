@@ -0,0 +1,36 @@
+package com.moli.activiti.datasource;
+
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+
+/**
+ * @author moli
+ * @time 2024-08-22 14:12:09
+ * @description 读写事务提交后回调，用于标记本次请求已写入主库；只读事务及参与外层事务的不回调
+ */
+public class StickyTransactionManager extends DataSourceTransactionManager {
+
+    private final Runnable onCommit;
+
+    public StickyTransactionManager(DataSource dataSource, Runnable onCommit) {
+        super(dataSource);
+        this.onCommit = onCommit;
+    }
+
+    @Override
+    protected void prepareSynchronization(DefaultTransactionStatus status, TransactionDefinition definition) {
+        super.prepareSynchronization(status, definition);
+        if (!status.isNewTransaction() || !status.isNewSynchronization() || definition.isReadOnly()) return;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                onCommit.run();
+            }
+        });
+    }
+}
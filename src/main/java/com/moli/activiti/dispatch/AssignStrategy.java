@@ -0,0 +1,20 @@
+package com.moli.activiti.dispatch;
+
+import java.util.List;
+
+/**
+ * @author moli
+ * @time 2024-07-26 09:20:31
+ * @description 任务分派策略，按 bean 名称在配置 act.dispatch.strategy 中选择
+ */
+public interface AssignStrategy {
+
+    /**
+     * 从在线的候选处理人中选出一个
+     *
+     * @param task    待分派任务
+     * @param workers 在线且有资格处理该任务的处理人，不为空
+     * @param context 本轮分派的负载信息
+     */
+    String select(PendingTask task, List<String> workers, DispatchContext context);
+}
@@ -0,0 +1,45 @@
+package com.moli.activiti.dispatch;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * @author moli
+ * @time 2024-07-26 09:31:47
+ * @description 一轮分派内的负载信息，数据库中的代办数每轮每人最多查询一次
+ */
+public class DispatchContext {
+
+    private final ToIntFunction<String> inFlightFn;
+
+    private final Function<String, Long> openTaskFn;
+
+    private final Map<String, Integer> assignedThisRound = new HashMap<>();
+
+    private final Map<String, Long> openTasks = new HashMap<>();
+
+    public DispatchContext(ToIntFunction<String> inFlightFn, Function<String, Long> openTaskFn) {
+        this.inFlightFn = inFlightFn;
+        this.openTaskFn = openTaskFn;
+    }
+
+    /**
+     * 由分派器分派且尚未完成的任务数
+     */
+    public int inFlight(String worker) {
+        return inFlightFn.applyAsInt(worker) + assignedThisRound.getOrDefault(worker, 0);
+    }
+
+    /**
+     * 数据库中该处理人当前的代办任务数
+     */
+    public long openTasks(String worker) {
+        return openTasks.computeIfAbsent(worker, openTaskFn) + assignedThisRound.getOrDefault(worker, 0);
+    }
+
+    void assigned(String worker) {
+        assignedThisRound.merge(worker, 1, Integer::sum);
+    }
+}
@@ -0,0 +1,20 @@
+package com.moli.activiti.dispatch;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * @author moli
+ * @time 2024-07-26 09:43:50
+ * @description 分派给由分派器分派且未完成任务最少的处理人，不查询数据库
+ */
+@Component("least-loaded")
+public class LeastLoadedAssignStrategy implements AssignStrategy {
+
+    @Override
+    public String select(PendingTask task, List<String> workers, DispatchContext context) {
+        return workers.stream().min(Comparator.comparingInt(context::inFlight)).orElse(workers.get(0));
+    }
+}
@@ -0,0 +1,20 @@
+package com.moli.activiti.dispatch;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * @author moli
+ * @time 2024-07-26 09:47:22
+ * @description 分派给数据库中当前代办任务最少的处理人，包含手动拾取和转办的任务
+ */
+@Component("open-task-count")
+public class OpenTaskCountAssignStrategy implements AssignStrategy {
+
+    @Override
+    public String select(PendingTask task, List<String> workers, DispatchContext context) {
+        return workers.stream().min(Comparator.comparingLong(context::openTasks)).orElse(workers.get(0));
+    }
+}
@@ -0,0 +1,25 @@
+package com.moli.activiti.dispatch;
+
+import lombok.Value;
+
+import java.util.Date;
+import java.util.Set;
+
+/**
+ * @author moli
+ * @time 2024-07-26 09:24:05
+ * @description 等待分派的候选任务
+ */
+@Value
+public class PendingTask {
+
+    String taskId;
+
+    String taskDefinitionKey;
+
+    Set<String> candidateUsers;
+
+    Set<String> candidateGroups;
+
+    Date createTime;
+}
@@ -0,0 +1,23 @@
+package com.moli.activiti.dispatch;
+
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author moli
+ * @time 2024-07-26 09:40:12
+ * @description 轮询分派
+ */
+@Component("round-robin")
+public class RoundRobinAssignStrategy implements AssignStrategy {
+
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Override
+    public String select(PendingTask task, List<String> workers, DispatchContext context) {
+        int index = (counter.getAndIncrement() & Integer.MAX_VALUE) % workers.size();
+        return workers.get(index);
+    }
+}
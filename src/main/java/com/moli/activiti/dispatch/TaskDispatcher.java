@@ -0,0 +1,275 @@
+package com.moli.activiti.dispatch;
+
+import com.moli.activiti.common.BatchResultDTO;
+import com.moli.activiti.config.ActProperties;
+import com.moli.activiti.event.TaskChangeType;
+import com.moli.activiti.event.TaskChangedEvent;
+import com.moli.activiti.service.support.ChunkTransactionExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.activiti.engine.TaskService;
+import org.activiti.engine.task.IdentityLink;
+import org.activiti.engine.task.IdentityLinkType;
+import org.activiti.engine.task.Task;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author moli
+ * @time 2024-07-26 10:05:36
+ * @description 候选任务自动分派器，按候选人 / 候选组维护待分派队列，
+ * 定时按策略把任务分派给在线处理人，并以分块事务批量拾取
+ */
+@Slf4j
+@Component
+public class TaskDispatcher {
+
+    private static final String USER_POOL = "U:";
+
+    private static final String GROUP_POOL = "G:";
+
+    @Resource
+    private TaskService taskService;
+
+    @Resource
+    private ActProperties actProperties;
+
+    @Resource
+    private ChunkTransactionExecutor chunkTransactionExecutor;
+
+    @Autowired
+    private Map<String, AssignStrategy> strategies;
+
+    /**
+     * 候选池 -> 待分派任务，一个任务可能同时在多个池中
+     */
+    private final Map<String, Deque<PendingTask>> pools = new ConcurrentHashMap<>();
+
+    /**
+     * 尚未分派的任务
+     */
+    private final Map<String, PendingTask> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 在线处理人 -> 所在候选组
+     */
+    private final Map<String, Set<String>> workers = new ConcurrentHashMap<>();
+
+    /**
+     * 已分派未完成的任务 -> 处理人
+     */
+    private final Map<String, String> dispatched = new ConcurrentHashMap<>();
+
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 处理人上线
+     */
+    public void register(String worker, Collection<String> groups) {
+        workers.put(worker, groups == null ? Collections.emptySet() : new LinkedHashSet<>(groups));
+        log.info("处理人上线: {}, 候选组: {}", worker, groups);
+    }
+
+    /**
+     * 处理人下线，已分派的任务保持不变
+     */
+    public void unregister(String worker) {
+        workers.remove(worker);
+    }
+
+    public int pendingSize() {
+        return pending.size();
+    }
+
+    /**
+     * 启动时加载已存在的待拾取任务
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        if (!actProperties.getDispatch().isEnabled()) return;
+        List<Task> tasks = taskService.createTaskQuery()
+                .taskUnassigned()
+                .active()
+                .orderByTaskCreateTime().asc()
+                .listPage(0, actProperties.getDispatch().getPreloadSize());
+        for (Task task : tasks) {
+            Set<String> users = new LinkedHashSet<>();
+            Set<String> groups = new LinkedHashSet<>();
+            for (IdentityLink link : taskService.getIdentityLinksForTask(task.getId())) {
+                if (!IdentityLinkType.CANDIDATE.equals(link.getType())) continue;
+                if (link.getUserId() != null) users.add(link.getUserId());
+                if (link.getGroupId() != null) groups.add(link.getGroupId());
+            }
+            enqueue(new PendingTask(task.getId(), task.getTaskDefinitionKey(), users, groups, task.getCreateTime()));
+        }
+        log.info("分派器预加载待拾取任务: {}", pending.size());
+    }
+
+    /**
+     * 事务提交后维护待分派队列
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskChanged(TaskChangedEvent event) {
+        if (!actProperties.getDispatch().isEnabled()) return;
+        if (event.getType() == TaskChangeType.CREATED) {
+            boolean hasCandidates = !event.getCandidateUsers().isEmpty() || !event.getCandidateGroups().isEmpty();
+            if (event.getAssignee() == null && hasCandidates) {
+                enqueue(new PendingTask(event.getTaskId(), event.getTaskDefinitionKey(),
+                        event.getCandidateUsers(), event.getCandidateGroups(), event.getCreateTime()));
+            }
+            return;
+        }
+        // 候选人、到期时间变更不影响任务是否待分派
+        if (event.getType() == TaskChangeType.CANDIDATE_ADDED
+                || event.getType() == TaskChangeType.CANDIDATE_REMOVED
+                || event.getType() == TaskChangeType.DUE_DATE_CHANGED) return;
+        // 已被指派、完成或删除，不再需要分派
+        PendingTask removed = pending.remove(event.getTaskId());
+        if (removed != null) leavePools(removed, null);
+        String worker = dispatched.get(event.getTaskId());
+        if (worker != null && !(event.getType() == TaskChangeType.ASSIGNED && worker.equals(event.getAssignee()))) {
+            dispatched.remove(event.getTaskId());
+            AtomicInteger count = inFlight.get(worker);
+            if (count != null) count.decrementAndGet();
+        }
+    }
+
+    /**
+     * 定时分派
+     */
+    @Scheduled(fixedDelayString = "${act.dispatch.interval:1000}")
+    public void dispatch() {
+        if (!actProperties.getDispatch().isEnabled() || pending.isEmpty() || workers.isEmpty()) return;
+        AssignStrategy strategy = strategies.get(actProperties.getDispatch().getStrategy());
+        if (strategy == null) {
+            log.error("未知的分派策略: {}", actProperties.getDispatch().getStrategy());
+            return;
+        }
+        DispatchContext context = new DispatchContext(
+                worker -> inFlight.getOrDefault(worker, new AtomicInteger()).get(),
+                worker -> taskService.createTaskQuery().taskAssignee(worker).count());
+        int batchSize = actProperties.getDispatch().getBatchSize();
+        List<String[]> assignments = new ArrayList<>();
+        List<PendingTask> assigned = new ArrayList<>();
+        for (Map.Entry<String, Deque<PendingTask>> pool : pools.entrySet()) {
+            List<String> eligible = eligibleWorkers(pool.getKey());
+            if (eligible.isEmpty()) continue;
+            Iterator<PendingTask> iterator = pool.getValue().iterator();
+            while (iterator.hasNext() && assignments.size() < batchSize) {
+                PendingTask task = iterator.next();
+                iterator.remove();
+                // 已被其他池分派或已被手动拾取
+                if (pending.remove(task.getTaskId()) == null) continue;
+                leavePools(task, pool.getKey());
+                String worker = strategy.select(task, eligible, context);
+                context.assigned(worker);
+                assignments.add(new String[]{task.getTaskId(), worker});
+                assigned.add(task);
+            }
+            pools.computeIfPresent(pool.getKey(), (k, deque) -> deque.isEmpty() ? null : deque);
+            if (assignments.size() >= batchSize) break;
+        }
+        if (assignments.isEmpty()) return;
+
+        for (String[] assignment : assignments) {
+            dispatched.put(assignment[0], assignment[1]);
+            inFlight.computeIfAbsent(assignment[1], k -> new AtomicInteger()).incrementAndGet();
+        }
+        List<BatchResultDTO> results = chunkTransactionExecutor.execute(assignments,
+                actProperties.getBatch().getChunkSize(),
+                assignment -> assignment[0],
+                assignment -> {
+                    taskService.claim(assignment[0], assignment[1]);
+                    return assignment[1];
+                });
+        int failed = 0;
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i).isSuccess()) continue;
+            failed++;
+            String[] assignment = assignments.get(i);
+            if (dispatched.remove(assignment[0], assignment[1])) {
+                inFlight.get(assignment[1]).decrementAndGet();
+            }
+            // 已被他人拾取或已完成的不再分派，其他原因（如数据库异常）失败的放回队列下次重试
+            if (isClaimable(assignment[0])) enqueue(assigned.get(i));
+        }
+        log.info("分派任务: {}, 失败: {}, 剩余待分派: {}", assignments.size(), failed, pending.size());
+    }
+
+    private boolean isClaimable(String taskId) {
+        try {
+            Task task = taskService.createTaskQuery().taskId(taskId).singleResult();
+            return task != null && task.getAssignee() == null;
+        } catch (RuntimeException e) {
+            // 无法确认状态时保留，已被指派或完成的由任务事件移出
+            log.warn("分派失败任务状态查询失败, taskId: {}, cause: {}", taskId, e.getMessage());
+            return true;
+        }
+    }
+
+    private void enqueue(PendingTask task) {
+        if (pending.putIfAbsent(task.getTaskId(), task) != null) return;
+        for (String pool : poolsOf(task)) {
+            // 与 leavePools 中移除空队列互斥，避免放入已被移除的队列
+            pools.compute(pool, (k, deque) -> {
+                Deque<PendingTask> target = deque == null ? new ConcurrentLinkedDeque<>() : deque;
+                target.offer(task);
+                return target;
+            });
+        }
+    }
+
+    /**
+     * 任务离开待分派状态后从其所在的全部池中移除，空池一并移除，
+     * 避免候选人一直不上线时队列无限增长
+     *
+     * @param current 正在遍历的池，已由迭代器移除
+     */
+    private void leavePools(PendingTask task, String current) {
+        for (String pool : poolsOf(task)) {
+            if (pool.equals(current)) continue;
+            pools.computeIfPresent(pool, (k, deque) -> {
+                deque.remove(task);
+                return deque.isEmpty() ? null : deque;
+            });
+        }
+    }
+
+    private static List<String> poolsOf(PendingTask task) {
+        List<String> keys = new ArrayList<>(task.getCandidateUsers().size() + task.getCandidateGroups().size());
+        for (String user : task.getCandidateUsers()) keys.add(USER_POOL + user);
+        for (String group : task.getCandidateGroups()) keys.add(GROUP_POOL + group);
+        return keys;
+    }
+
+    private List<String> eligibleWorkers(String pool) {
+        List<String> eligible = new ArrayList<>();
+        if (pool.startsWith(USER_POOL)) {
+            String user = pool.substring(USER_POOL.length());
+            if (workers.containsKey(user)) eligible.add(user);
+            return eligible;
+        }
+        String group = pool.substring(GROUP_POOL.length());
+        workers.forEach((worker, groups) -> {
+            if (groups.contains(group)) eligible.add(worker);
+        });
+        return eligible;
+    }
+}
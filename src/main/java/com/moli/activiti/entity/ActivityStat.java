@@ -0,0 +1,35 @@
+package com.moli.activiti.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * @author moli
+ * @time 2024-08-16 09:40:18
+ * @description 活动耗时统计 act_stat_activity
+ */
+@Data
+@TableName("act_stat_activity")
+public class ActivityStat {
+
+    private LocalDate statDate;
+
+    private String processDefinitionKey;
+
+    private String activityId;
+
+    /**
+     * 耗时区间下标
+     */
+    private Integer durationBucket;
+
+    private String activityName;
+
+    private Long cnt;
+
+    private Long totalMillis;
+
+    private Long maxMillis;
+}
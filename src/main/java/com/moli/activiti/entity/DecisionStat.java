@@ -0,0 +1,28 @@
+package com.moli.activiti.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * @author moli
+ * @time 2024-08-16 09:43:55
+ * @description 网关分支统计 act_stat_decision
+ */
+@Data
+@TableName("act_stat_decision")
+public class DecisionStat {
+
+    private LocalDate statDate;
+
+    private String processDefinitionKey;
+
+    private String gatewayId;
+
+    private String targetActivityId;
+
+    private String targetActivityName;
+
+    private Long cnt;
+}
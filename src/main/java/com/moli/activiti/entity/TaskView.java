@@ -0,0 +1,53 @@
+package com.moli.activiti.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * @author moli
+ * @time 2024-08-02 09:40:33
+ * @description 待办任务读模型 act_task_view
+ */
+@Data
+@TableName("act_task_view")
+public class TaskView {
+
+    @TableId(type = IdType.INPUT)
+    private String taskId;
+
+    private String taskName;
+
+    private String taskDefinitionKey;
+
+    private String assignee;
+
+    /**
+     * 候选人，逗号分隔，仅用于展示
+     */
+    private String candidateUsers;
+
+    /**
+     * 候选组，逗号分隔，仅用于展示
+     */
+    private String candidateGroups;
+
+    private String processInstanceId;
+
+    private String processDefinitionId;
+
+    private String processDefinitionKey;
+
+    private String processName;
+
+    private String businessKey;
+
+    private String startUserId;
+
+    private Date createTime;
+
+    private Date dueDate;
+}
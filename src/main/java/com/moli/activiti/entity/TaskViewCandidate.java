@@ -0,0 +1,31 @@
+package com.moli.activiti.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * @author moli
+ * @time 2024-08-02 09:44:10
+ * @description 待办任务候选人 act_task_view_candidate
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName("act_task_view_candidate")
+public class TaskViewCandidate {
+
+    public static final String USER = "U";
+
+    public static final String GROUP = "G";
+
+    /**
+     * U 用户, G 组
+     */
+    private String identityType;
+
+    private String identity;
+
+    private String taskId;
+}
@@ -0,0 +1,49 @@
+package com.moli.activiti.event;
+
+/**
+ * @author moli
+ * @time 2024-07-23 09:40:12
+ * @description 任务变更类型
+ */
+public enum TaskChangeType {
+
+    /**
+     * 任务创建
+     */
+    CREATED,
+
+    /**
+     * 任务指定代办人，包括拾取和转办
+     */
+    ASSIGNED,
+
+    /**
+     * 任务完成
+     */
+    COMPLETED,
+
+    /**
+     * 任务被删除，如流程被终止
+     */
+    DELETED,
+
+    /**
+     * 新增候选人或候选组
+     */
+    CANDIDATE_ADDED,
+
+    /**
+     * 移除候选人或候选组
+     */
+    CANDIDATE_REMOVED,
+
+    /**
+     * 到期时间变更，引擎不发布此事件，由修改到期时间的一方发布
+     */
+    DUE_DATE_CHANGED,
+
+    /**
+     * 任务超过 SLA 期限，仅用于推送提醒
+     */
+    OVERDUE
+}
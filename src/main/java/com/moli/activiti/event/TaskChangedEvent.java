@@ -0,0 +1,52 @@
+package com.moli.activiti.event;
+
+import lombok.Value;
+
+import java.util.Date;
+import java.util.Set;
+
+/**
+ * @author moli
+ * @time 2024-07-23 09:45:37
+ * @description 任务变更事件，在引擎事务内采集的不可变快照，不持有引擎实体
+ */
+@Value
+public class TaskChangedEvent {
+
+    TaskChangeType type;
+
+    String taskId;
+
+    String name;
+
+    String taskDefinitionKey;
+
+    String processInstanceId;
+
+    String processDefinitionId;
+
+    String assignee;
+
+    Set<String> candidateUsers;
+
+    Set<String> candidateGroups;
+
+    Date createTime;
+
+    Date dueDate;
+
+    /**
+     * 业务 key，仅任务创建时采集
+     */
+    String businessKey;
+
+    /**
+     * 流程发起人，仅任务创建时采集
+     */
+    String startUserId;
+
+    /**
+     * 事件发生时间
+     */
+    long timestamp;
+}
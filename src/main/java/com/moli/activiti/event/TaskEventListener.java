@@ -0,0 +1,158 @@
+package com.moli.activiti.event;
+
+import lombok.extern.slf4j.Slf4j;
+import org.activiti.engine.RuntimeService;
+import org.activiti.engine.delegate.event.ActivitiEntityEvent;
+import org.activiti.engine.delegate.event.ActivitiEvent;
+import org.activiti.engine.delegate.event.ActivitiEventListener;
+import org.activiti.engine.delegate.event.ActivitiEventType;
+import org.activiti.engine.impl.persistence.entity.ExecutionEntity;
+import org.activiti.engine.impl.persistence.entity.IdentityLinkEntity;
+import org.activiti.engine.impl.persistence.entity.TaskEntity;
+import org.activiti.engine.task.IdentityLinkType;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * @author moli
+ * @time 2024-07-23 10:02:55
+ * @description 引擎任务事件监听器，将任务变更转换为 {@link TaskChangedEvent} 并在引擎事务内发布为 spring 事件，
+ * 需要在提交后处理的订阅方使用 @TransactionalEventListener。
+ * 事务内订阅方（待办读模型）的异常会使引擎事务回滚，保证读模型与 ACT_RU_TASK 一致。
+ * 任务创建过程中新增的候选人不单独发布，由随后的 CREATED 快照一并携带
+ */
+@Slf4j
+@Component
+// 引擎按注册顺序回调监听器，SLA 先写入到期时间
+@DependsOn("slaDueDateListener")
+public class TaskEventListener implements ActivitiEventListener {
+
+    /**
+     * 已插入但尚未触发 TASK_CREATED 的任务
+     */
+    private static final ThreadLocal<Set<String>> CREATING = ThreadLocal.withInitial(HashSet::new);
+
+    @Resource
+    private RuntimeService runtimeService;
+
+    @Resource
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @PostConstruct
+    public void register() {
+        runtimeService.addEventListener(this,
+                ActivitiEventType.TASK_CREATED,
+                ActivitiEventType.TASK_ASSIGNED,
+                ActivitiEventType.TASK_COMPLETED,
+                ActivitiEventType.ENTITY_CREATED,
+                ActivitiEventType.ENTITY_DELETED);
+    }
+
+    @Override
+    public void onEvent(ActivitiEvent event) {
+        if (!(event instanceof ActivitiEntityEvent)) return;
+        Object entity = ((ActivitiEntityEvent) event).getEntity();
+        TaskChangedEvent changed = null;
+        switch (event.getType()) {
+            case TASK_CREATED:
+                CREATING.get().remove(((TaskEntity) entity).getId());
+                changed = snapshot(TaskChangeType.CREATED, (TaskEntity) entity);
+                break;
+            case TASK_ASSIGNED:
+                changed = snapshot(TaskChangeType.ASSIGNED, (TaskEntity) entity);
+                break;
+            case TASK_COMPLETED:
+                changed = snapshot(TaskChangeType.COMPLETED, (TaskEntity) entity);
+                break;
+            case ENTITY_CREATED:
+            case ENTITY_DELETED:
+                if (entity instanceof TaskEntity && event.getType() == ActivitiEventType.ENTITY_CREATED) {
+                    creating(((TaskEntity) entity).getId());
+                } else if (entity instanceof TaskEntity) {
+                    changed = snapshot(TaskChangeType.DELETED, (TaskEntity) entity);
+                } else if (entity instanceof IdentityLinkEntity) {
+                    IdentityLinkEntity link = (IdentityLinkEntity) entity;
+                    boolean added = event.getType() == ActivitiEventType.ENTITY_CREATED;
+                    // 任务创建中新增的候选人随 CREATED 快照一并处理
+                    if (!added || !CREATING.get().contains(link.getTaskId())) {
+                        changed = snapshot(link, added ? TaskChangeType.CANDIDATE_ADDED : TaskChangeType.CANDIDATE_REMOVED);
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+        if (changed != null) {
+            applicationEventPublisher.publishEvent(changed);
+        }
+    }
+
+    /**
+     * 登记创建中的任务，事务结束时清理，避免回滚后残留
+     */
+    private void creating(String taskId) {
+        Set<String> creating = CREATING.get();
+        if (creating.isEmpty() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    CREATING.remove();
+                }
+            });
+        }
+        creating.add(taskId);
+    }
+
+    private TaskChangedEvent snapshot(TaskChangeType type, TaskEntity task) {
+        Set<String> candidateUsers = new LinkedHashSet<>();
+        Set<String> candidateGroups = new LinkedHashSet<>();
+        if (type != TaskChangeType.DELETED) {
+            for (IdentityLinkEntity link : task.getIdentityLinks()) {
+                if (!IdentityLinkType.CANDIDATE.equals(link.getType())) continue;
+                if (link.getUserId() != null) candidateUsers.add(link.getUserId());
+                if (link.getGroupId() != null) candidateGroups.add(link.getGroupId());
+            }
+        }
+        String businessKey = null;
+        String startUserId = null;
+        if (type == TaskChangeType.CREATED && task.getProcessInstance() != null) {
+            ExecutionEntity processInstance = task.getProcessInstance();
+            businessKey = processInstance.getBusinessKey();
+            startUserId = processInstance.getStartUserId();
+        }
+        return new TaskChangedEvent(type, task.getId(), task.getName(), task.getTaskDefinitionKey(),
+                task.getProcessInstanceId(), task.getProcessDefinitionId(), task.getAssignee(),
+                Collections.unmodifiableSet(candidateUsers), Collections.unmodifiableSet(candidateGroups),
+                task.getCreateTime(), task.getDueDate(), businessKey, startUserId, System.currentTimeMillis());
+    }
+
+    /**
+     * 候选人变更，仅处理任务上的候选链接
+     */
+    private TaskChangedEvent snapshot(IdentityLinkEntity link, TaskChangeType type) {
+        if (link.getTaskId() == null || !IdentityLinkType.CANDIDATE.equals(link.getType())) return null;
+        Set<String> users = link.getUserId() == null
+                ? Collections.emptySet() : Collections.singleton(link.getUserId());
+        Set<String> groups = link.getGroupId() == null
+                ? Collections.emptySet() : Collections.singleton(link.getGroupId());
+        return new TaskChangedEvent(type, link.getTaskId(), null, null,
+                link.getProcessInstanceId(), link.getProcessDefinitionId(), null,
+                users, groups, null, null, null, null, System.currentTimeMillis());
+    }
+
+    @Override
+    public boolean isFailOnException() {
+        // 读模型写入失败时回滚引擎事务；提交后处理的订阅方不在此抛出异常
+        return true;
+    }
+}
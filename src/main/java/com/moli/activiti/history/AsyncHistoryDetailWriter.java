@@ -0,0 +1,380 @@
+package com.moli.activiti.history;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.moli.activiti.config.ActProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author moli
+ * @time 2024-08-07 11:03:39
+ * @description ACT_HI_DETAIL 异步批量写入。记录时先占用队列容量，占不到则退回同步写入；
+ * 事务提交后先追加到预写日志再入队，由后台线程按批插入，日志段中的记录全部写入数据库或落盘后删除该段；
+ * 进程崩溃时未删除的日志段与落盘文件在启动时重放，已写入的记录按主键跳过
+ */
+@Slf4j
+public class AsyncHistoryDetailWriter {
+
+    private static final String INSERT_SQL = "INSERT INTO ACT_HI_DETAIL (ID_, TYPE_, PROC_INST_ID_, EXECUTION_ID_,"
+            + " TASK_ID_, ACT_INST_ID_, NAME_, VAR_TYPE_, REV_, TIME_, DOUBLE_, LONG_, TEXT_, TEXT2_)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * 行数据中 TIME_ 的下标，落盘后以毫秒数保存
+     */
+    private static final int TIME_INDEX = 9;
+
+    private final ActProperties.AsyncHistory config;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate requiresNew;
+
+    private final ObjectMapper objectMapper;
+
+    private final BlockingQueue<Object[]> queue = new LinkedBlockingQueue<>();
+
+    /**
+     * 队列容量，记录时占用，写入数据库或落盘后释放
+     */
+    private final Semaphore capacity;
+
+    private final Counter written;
+
+    private final Counter rejected;
+
+    private final Counter spooled;
+
+    /**
+     * 追加预写日志与入队互斥，切换日志段时队列中只有当前段的记录
+     */
+    private final Object walLock = new Object();
+
+    private Path walFile;
+
+    private BufferedWriter walWriter;
+
+    private Thread flusher;
+
+    private volatile boolean closed;
+
+    private long spoolSequence;
+
+    private long walSequence;
+
+    public AsyncHistoryDetailWriter(ActProperties.AsyncHistory config, DataSource dataSource,
+                                    PlatformTransactionManager transactionManager,
+                                    ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.objectMapper = objectMapper;
+        this.capacity = new Semaphore(config.getQueueCapacity());
+        Gauge.builder("act.history.async.queue", queue, BlockingQueue::size).register(meterRegistry);
+        this.written = Counter.builder("act.history.async.rows").tag("result", "written").register(meterRegistry);
+        this.rejected = Counter.builder("act.history.async.rows").tag("result", "sync").register(meterRegistry);
+        this.spooled = Counter.builder("act.history.async.rows").tag("result", "spooled").register(meterRegistry);
+    }
+
+    public void start() {
+        replaySpool();
+        synchronized (walLock) {
+            rotateWal();
+        }
+        flusher = new Thread(this::flushLoop, "act-history-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * 停止接收并写完队列中的记录，写不完的落盘
+     */
+    public void stop() {
+        synchronized (walLock) {
+            closed = true;
+        }
+        if (flusher == null) return;
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (flusher.isAlive()) {
+            // 仍在写入，保留预写日志由下次启动重放
+            log.warn("历史明细写入线程未在停机前结束, 剩余记录由预写日志重放");
+            return;
+        }
+        List<Object[]> rest = new ArrayList<>();
+        Path segment;
+        synchronized (walLock) {
+            queue.drainTo(rest);
+            segment = closeWal();
+        }
+        if (rest.isEmpty() || spool(rest)) deleteQuietly(segment);
+    }
+
+    /**
+     * 占用一行队列容量，队列已满或不在事务中时返回 false，由调用方同步写入
+     */
+    boolean tryReserve() {
+        if (closed || !TransactionSynchronizationManager.isSynchronizationActive() || !capacity.tryAcquire()) {
+            rejected.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 事务提交后入队，回滚则释放占用的容量
+     */
+    void writeAfterCommit(Object[] row) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    capacity.release();
+                } else if (!enqueue(row)) {
+                    List<Object[]> rows = new ArrayList<>(1);
+                    rows.add(row);
+                    flush(rows);
+                }
+            }
+        });
+    }
+
+    /**
+     * 先追加预写日志再入队，停机后返回 false 由调用方直接写入
+     */
+    private boolean enqueue(Object[] row) {
+        synchronized (walLock) {
+            if (closed) return false;
+            appendWal(row);
+            queue.add(row);
+            return true;
+        }
+    }
+
+    private void flushLoop() {
+        List<Object[]> batch = new ArrayList<>(config.getBatchSize());
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Object[] first = queue.poll(config.getFlushInterval(), TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                Path segment;
+                synchronized (walLock) {
+                    // 取出当前段的全部记录并切换到新段，该段可在这些记录处理完后删除
+                    queue.drainTo(batch);
+                    segment = rotateWal();
+                }
+                boolean durable = true;
+                for (int from = 0; from < batch.size(); from += config.getBatchSize()) {
+                    durable &= flush(batch.subList(from, Math.min(from + config.getBatchSize(), batch.size())));
+                }
+                if (durable) deleteQuietly(segment);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 批量插入，重试后仍失败则落盘；无论结果如何都释放容量
+     *
+     * @return 记录已写入数据库或落盘
+     */
+    private boolean flush(List<Object[]> rows) {
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    insert(rows);
+                    written.increment(rows.size());
+                    return true;
+                } catch (Exception e) {
+                    if (attempt >= config.getMaxRetries()) {
+                        log.error("历史明细批量写入失败, 落盘 {} 条: {}", rows.size(), e.getMessage());
+                        return spool(rows);
+                    }
+                    log.warn("历史明细批量写入失败, 第 {} 次重试: {}", attempt, e.getMessage());
+                    sleepQuietly(100L * attempt);
+                }
+            }
+        } finally {
+            capacity.release(rows.size());
+        }
+    }
+
+    private void insert(List<Object[]> rows) {
+        requiresNew.execute(status -> jdbcTemplate.batchUpdate(INSERT_SQL, rows));
+    }
+
+    /**
+     * 回放的批量插入：部分记录已在崩溃前写入时逐行插入，跳过主键重复的记录
+     */
+    private void insertIgnoringDuplicates(List<Object[]> rows) {
+        try {
+            insert(rows);
+        } catch (DataIntegrityViolationException e) {
+            for (Object[] row : rows) {
+                try {
+                    requiresNew.execute(status -> jdbcTemplate.update(INSERT_SQL, row));
+                } catch (DuplicateKeyException duplicate) {
+                    log.debug("历史明细已存在, 跳过: {}", row[0]);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return 是否落盘成功，失败时记录仍在预写日志中
+     */
+    private synchronized boolean spool(List<Object[]> rows) {
+        Path file = Paths.get(config.getSpoolDirectory(), "detail-" + System.currentTimeMillis()
+                + "-" + (++spoolSequence) + ".ndjson");
+        try {
+            Files.createDirectories(file.getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                for (Object[] row : rows) {
+                    writer.write(line(row));
+                    writer.newLine();
+                }
+            }
+            spooled.increment(rows.size());
+            return true;
+        } catch (IOException e) {
+            log.error("历史明细落盘失败, {} 条保留在预写日志中: {}", rows.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 追加一行并写入操作系统缓冲区，进程崩溃后仍可重放；写入失败时只在内存中排队
+     */
+    private void appendWal(Object[] row) {
+        if (walWriter == null) return;
+        try {
+            walWriter.write(line(row));
+            walWriter.newLine();
+            walWriter.flush();
+        } catch (IOException e) {
+            log.error("历史明细预写日志写入失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 关闭当前日志段并打开新段，调用方持有 walLock
+     *
+     * @return 关闭的日志段
+     */
+    private Path rotateWal() {
+        Path previous = closeWal();
+        walFile = Paths.get(config.getSpoolDirectory(), "wal-" + System.currentTimeMillis()
+                + "-" + (++walSequence) + ".ndjson");
+        try {
+            Files.createDirectories(walFile.getParent());
+            walWriter = Files.newBufferedWriter(walFile, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            log.error("历史明细预写日志创建失败, 队列中的记录在进程崩溃时会丢失: {}", e.getMessage());
+            walFile = null;
+            walWriter = null;
+        }
+        return previous;
+    }
+
+    private Path closeWal() {
+        Path previous = walFile;
+        if (walWriter != null) {
+            try {
+                walWriter.close();
+            } catch (IOException e) {
+                log.warn("历史明细预写日志关闭失败: {}", e.getMessage());
+            }
+        }
+        walFile = null;
+        walWriter = null;
+        return previous;
+    }
+
+    /**
+     * TIME_ 以毫秒数保存，与 ObjectMapper 的日期格式配置无关
+     */
+    private String line(Object[] row) throws IOException {
+        Object[] copy = row.clone();
+        if (copy[TIME_INDEX] instanceof Date) copy[TIME_INDEX] = ((Date) copy[TIME_INDEX]).getTime();
+        return objectMapper.writeValueAsString(copy);
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) return;
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("历史明细预写日志删除失败: {}", file);
+        }
+    }
+
+    /**
+     * 启动时重放上次未写入数据库的落盘文件与预写日志
+     */
+    private void replaySpool() {
+        Path dir = Paths.get(config.getSpoolDirectory());
+        if (!Files.isDirectory(dir)) return;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "{detail,wal}-*.ndjson")) {
+            for (Path file : files) {
+                List<Object[]> rows = new ArrayList<>();
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    if (line.isEmpty()) continue;
+                    Object[] row = objectMapper.readValue(line, Object[].class);
+                    if (row[TIME_INDEX] instanceof Number) {
+                        row[TIME_INDEX] = new Timestamp(((Number) row[TIME_INDEX]).longValue());
+                    }
+                    rows.add(row);
+                }
+                if (!rows.isEmpty()) insertIgnoringDuplicates(rows);
+                Files.delete(file);
+                log.info("重放历史明细 {} 条: {}", rows.size(), file);
+            }
+        } catch (Exception e) {
+            log.error("重放历史明细失败, 保留落盘文件: {}", e.getMessage());
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
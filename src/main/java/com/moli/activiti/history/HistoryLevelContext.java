@@ -0,0 +1,54 @@
+package com.moli.activiti.history;
+
+import java.util.function.Supplier;
+
+/**
+ * @author moli
+ * @time 2024-08-07 10:05:14
+ * @description 登记当前流程定义，由 {@link ProcessLevelHistoryManager} 按流程定义 key 选择历史级别。
+ * 历史管理器优先按被记录实体登记，业务方法的登记只在实体上取不到流程定义时生效
+ */
+public final class HistoryLevelContext {
+
+    private static final ThreadLocal<String> PROCESS_DEFINITION_KEY = new ThreadLocal<>();
+
+    private HistoryLevelContext() {
+    }
+
+    /**
+     * 在指定流程定义下执行引擎调用
+     *
+     * @param processDefinitionId 流程定义 id，格式为 key:version:id，为空时沿用外层登记
+     */
+    public static <T> T call(String processDefinitionId, Supplier<T> action) {
+        if (processDefinitionId == null) return action.get();
+        String previous = PROCESS_DEFINITION_KEY.get();
+        PROCESS_DEFINITION_KEY.set(keyOf(processDefinitionId));
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                PROCESS_DEFINITION_KEY.remove();
+            } else {
+                PROCESS_DEFINITION_KEY.set(previous);
+            }
+        }
+    }
+
+    public static void run(String processDefinitionId, Runnable action) {
+        call(processDefinitionId, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    static String processDefinitionKey() {
+        return PROCESS_DEFINITION_KEY.get();
+    }
+
+    private static String keyOf(String processDefinitionId) {
+        if (processDefinitionId == null) return null;
+        int split = processDefinitionId.indexOf(':');
+        return split > 0 ? processDefinitionId.substring(0, split) : processDefinitionId;
+    }
+}
@@ -0,0 +1,75 @@
+package com.moli.activiti.history;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.moli.activiti.config.ActProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.activiti.engine.impl.history.HistoryLevel;
+import org.activiti.spring.SpringProcessEngineConfiguration;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author moli
+ * @time 2024-08-07 11:40:25
+ * @description 在引擎构建前替换默认的 HistoryManager，支持按流程定义 key 配置历史级别及历史明细异步写入
+ */
+@Slf4j
+@Component
+public class HistoryManagerConfigurer implements BeanPostProcessor, DisposableBean {
+
+    private final ObjectProvider<ActProperties> actProperties;
+
+    private final ObjectProvider<DataSource> dataSource;
+
+    private final ObjectProvider<PlatformTransactionManager> transactionManager;
+
+    private final ObjectProvider<ObjectMapper> objectMapper;
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    private AsyncHistoryDetailWriter detailWriter;
+
+    public HistoryManagerConfigurer(ObjectProvider<ActProperties> actProperties,
+                                    ObjectProvider<DataSource> dataSource,
+                                    ObjectProvider<PlatformTransactionManager> transactionManager,
+                                    ObjectProvider<ObjectMapper> objectMapper,
+                                    ObjectProvider<MeterRegistry> meterRegistry) {
+        this.actProperties = actProperties;
+        this.dataSource = dataSource;
+        this.transactionManager = transactionManager;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (!(bean instanceof SpringProcessEngineConfiguration)) return bean;
+        SpringProcessEngineConfiguration configuration = (SpringProcessEngineConfiguration) bean;
+        ActProperties.History history = actProperties.getObject().getHistory();
+
+        Map<String, HistoryLevel> levels = new HashMap<>();
+        history.getLevels().forEach((key, level) -> levels.put(key, HistoryLevel.getHistoryLevelForKey(level)));
+
+        if (history.getAsync().isEnabled()) {
+            detailWriter = new AsyncHistoryDetailWriter(history.getAsync(), dataSource.getObject(),
+                    transactionManager.getObject(), objectMapper.getObject(), meterRegistry.getObject());
+            detailWriter.start();
+        }
+        configuration.setHistoryManager(new ProcessLevelHistoryManager(configuration, levels, detailWriter));
+        log.info("历史级别按流程定义配置: {}, 历史明细异步写入: {}", levels, detailWriter != null);
+        return bean;
+    }
+
+    @Override
+    public void destroy() {
+        if (detailWriter != null) detailWriter.stop();
+    }
+}
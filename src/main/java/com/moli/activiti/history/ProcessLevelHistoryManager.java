@@ -0,0 +1,194 @@
+package com.moli.activiti.history;
+
+import org.activiti.bpmn.model.FlowElement;
+import org.activiti.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.activiti.engine.impl.history.DefaultHistoryManager;
+import org.activiti.engine.impl.history.HistoryLevel;
+import org.activiti.engine.impl.persistence.entity.ExecutionEntity;
+import org.activiti.engine.impl.persistence.entity.HistoricActivityInstanceEntity;
+import org.activiti.engine.impl.persistence.entity.IdentityLinkEntity;
+import org.activiti.engine.impl.persistence.entity.TaskEntity;
+import org.activiti.engine.impl.persistence.entity.VariableInstanceEntity;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @author moli
+ * @time 2024-08-07 10:26:53
+ * @description 按流程定义 key 决定历史级别；开启异步写入时，简单类型变量的 ACT_HI_DETAIL 记录在事务提交后批量写入。
+ * 级别按被记录实体（流程实例、活动、任务、变量、身份链接）所属的流程定义解析，
+ * 因此同一流程实例无论经由哪条调用路径，历史记录的创建与关闭都使用同一级别；
+ * 无法从实体得到流程定义时才使用 {@link HistoryLevelContext} 登记的流程定义
+ */
+public class ProcessLevelHistoryManager extends DefaultHistoryManager {
+
+    /**
+     * 值存放在 TEXT_ / LONG_ / DOUBLE_ 列的变量类型，其余类型依赖 ACT_GE_BYTEARRAY，仍同步写入
+     */
+    private static final Set<String> INLINE_TYPES = new HashSet<>(Arrays.asList(
+            "null", "string", "boolean", "short", "integer", "long", "double", "date", "uuid"));
+
+    private final ProcessEngineConfigurationImpl engineConfiguration;
+
+    private final Map<String, HistoryLevel> levels;
+
+    private final AsyncHistoryDetailWriter detailWriter;
+
+    public ProcessLevelHistoryManager(ProcessEngineConfigurationImpl engineConfiguration,
+                                      Map<String, HistoryLevel> levels,
+                                      AsyncHistoryDetailWriter detailWriter) {
+        super(engineConfiguration, defaultLevel(engineConfiguration));
+        this.engineConfiguration = engineConfiguration;
+        this.levels = levels;
+        this.detailWriter = detailWriter;
+    }
+
+    @Override
+    public boolean isHistoryEnabled() {
+        return currentLevel() != HistoryLevel.NONE;
+    }
+
+    @Override
+    public boolean isHistoryLevelAtLeast(HistoryLevel level) {
+        return currentLevel().isAtLeast(level);
+    }
+
+    @Override
+    public void recordProcessInstanceStart(ExecutionEntity processInstance, FlowElement initialElement) {
+        HistoryLevelContext.run(processInstance.getProcessDefinitionId(),
+                () -> super.recordProcessInstanceStart(processInstance, initialElement));
+    }
+
+    @Override
+    public void recordProcessInstanceEnd(String processInstanceId, String deleteReason, String activityId) {
+        HistoryLevelContext.run(definitionOfExecution(processInstanceId),
+                () -> super.recordProcessInstanceEnd(processInstanceId, deleteReason, activityId));
+    }
+
+    @Override
+    public void recordActivityStart(ExecutionEntity executionEntity) {
+        HistoryLevelContext.run(executionEntity.getProcessDefinitionId(), () -> super.recordActivityStart(executionEntity));
+    }
+
+    @Override
+    public void recordActivityEnd(ExecutionEntity executionEntity, String deleteReason) {
+        HistoryLevelContext.run(executionEntity.getProcessDefinitionId(),
+                () -> super.recordActivityEnd(executionEntity, deleteReason));
+    }
+
+    @Override
+    public void recordTaskCreated(TaskEntity task, ExecutionEntity execution) {
+        HistoryLevelContext.run(task.getProcessDefinitionId(), () -> super.recordTaskCreated(task, execution));
+    }
+
+    @Override
+    public void recordTaskEnd(String taskId, String deleteReason) {
+        HistoryLevelContext.run(definitionOfTask(taskId), () -> super.recordTaskEnd(taskId, deleteReason));
+    }
+
+    @Override
+    public void recordTaskAssigneeChange(String taskId, String assignee) {
+        HistoryLevelContext.run(definitionOfTask(taskId), () -> super.recordTaskAssigneeChange(taskId, assignee));
+    }
+
+    @Override
+    public void recordTaskOwnerChange(String taskId, String owner) {
+        HistoryLevelContext.run(definitionOfTask(taskId), () -> super.recordTaskOwnerChange(taskId, owner));
+    }
+
+    @Override
+    public void recordVariableCreate(VariableInstanceEntity variable) {
+        HistoryLevelContext.run(definitionOf(variable), () -> super.recordVariableCreate(variable));
+    }
+
+    @Override
+    public void recordVariableUpdate(VariableInstanceEntity variable) {
+        HistoryLevelContext.run(definitionOf(variable), () -> super.recordVariableUpdate(variable));
+    }
+
+    @Override
+    public void recordVariableRemoved(VariableInstanceEntity variable) {
+        HistoryLevelContext.run(definitionOf(variable), () -> super.recordVariableRemoved(variable));
+    }
+
+    @Override
+    public void recordIdentityLinkCreated(IdentityLinkEntity identityLink) {
+        String processDefinitionId = identityLink.getTaskId() != null
+                ? definitionOfTask(identityLink.getTaskId())
+                : definitionOfExecution(identityLink.getProcessInstanceId());
+        HistoryLevelContext.run(processDefinitionId, () -> super.recordIdentityLinkCreated(identityLink));
+    }
+
+    @Override
+    public void recordHistoricDetailVariableCreate(VariableInstanceEntity variable,
+                                                   ExecutionEntity sourceActivityExecution,
+                                                   boolean useActivityId) {
+        HistoryLevelContext.run(definitionOf(variable),
+                () -> recordDetail(variable, sourceActivityExecution, useActivityId));
+    }
+
+    private void recordDetail(VariableInstanceEntity variable, ExecutionEntity sourceActivityExecution,
+                              boolean useActivityId) {
+        if (!isHistoryLevelAtLeast(HistoryLevel.FULL)) return;
+        if (detailWriter == null || !INLINE_TYPES.contains(variable.getType().getTypeName())
+                || !detailWriter.tryReserve()) {
+            super.recordHistoricDetailVariableCreate(variable, sourceActivityExecution, useActivityId);
+            return;
+        }
+        String activityInstanceId = null;
+        if (useActivityId && sourceActivityExecution != null) {
+            HistoricActivityInstanceEntity activityInstance = findActivityInstance(sourceActivityExecution, false, false);
+            if (activityInstance != null) activityInstanceId = activityInstance.getId();
+        }
+        detailWriter.writeAfterCommit(new Object[]{
+                engineConfiguration.getIdGenerator().getNextId(),
+                "VariableUpdate",
+                variable.getProcessInstanceId(),
+                variable.getExecutionId(),
+                variable.getTaskId(),
+                activityInstanceId,
+                variable.getName(),
+                variable.getType().getTypeName(),
+                variable.getRevision(),
+                engineConfiguration.getClock().getCurrentTime(),
+                variable.getDoubleValue(),
+                variable.getLongValue(),
+                variable.getTextValue(),
+                variable.getTextValue2()
+        });
+    }
+
+    private String definitionOf(VariableInstanceEntity variable) {
+        if (variable.getTaskId() != null) return definitionOfTask(variable.getTaskId());
+        return definitionOfExecution(variable.getProcessInstanceId());
+    }
+
+    /**
+     * 命中当前命令上下文的实体缓存，通常不产生查询
+     */
+    private String definitionOfExecution(String executionId) {
+        if (executionId == null) return null;
+        ExecutionEntity execution = getExecutionEntityManager().findById(executionId);
+        return execution != null ? execution.getProcessDefinitionId() : null;
+    }
+
+    private String definitionOfTask(String taskId) {
+        if (taskId == null) return null;
+        TaskEntity task = getTaskEntityManager().findById(taskId);
+        return task != null ? task.getProcessDefinitionId() : null;
+    }
+
+    private HistoryLevel currentLevel() {
+        String key = HistoryLevelContext.processDefinitionKey();
+        HistoryLevel level = key == null ? null : levels.get(key);
+        return level != null ? level : defaultLevel(engineConfiguration);
+    }
+
+    private static HistoryLevel defaultLevel(ProcessEngineConfigurationImpl engineConfiguration) {
+        HistoryLevel level = engineConfiguration.getHistoryLevel();
+        return level != null ? level : HistoryLevel.getHistoryLevelForKey(engineConfiguration.getHistory());
+    }
+}
@@ -0,0 +1,22 @@
+package com.moli.activiti.listener;
+
+import org.activiti.engine.delegate.DelegateExecution;
+import org.activiti.engine.delegate.ExecutionListener;
+
+/**
+ * @author moli
+ * @time 2024-08-08 09:52:40
+ * @description 异步执行监听器基类，引擎事务内只生成快照，事务提交后由 {@link ListenerDispatcher} 在后台线程处理
+ */
+public abstract class AsyncExecutionListener implements ExecutionListener {
+
+    @Override
+    public final void notify(DelegateExecution execution) {
+        ListenerDispatcher.dispatch(ExecutionSnapshot.of(getClass().getSimpleName(), execution), this::handle);
+    }
+
+    /**
+     * 在后台线程处理事件，不能访问引擎对象
+     */
+    protected abstract void handle(ExecutionSnapshot snapshot);
+}
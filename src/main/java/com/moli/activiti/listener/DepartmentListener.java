@@ -1,8 +1,6 @@
 package com.moli.activiti.listener;
 
 import lombok.extern.slf4j.Slf4j;
-import org.activiti.engine.delegate.DelegateExecution;
-import org.activiti.engine.delegate.ExecutionListener;
 
 /**
  * @author moli
@@ -10,23 +8,15 @@ import org.activiti.engine.delegate.ExecutionListener;
  * @description 部门领导审批
  */
 @Slf4j
-public class DepartmentListener implements ExecutionListener {
+public class DepartmentListener extends AsyncExecutionListener {
 
     @Override
-    public void notify(DelegateExecution execution) {
-        log.error("\r\n *****************MangerExecutionListener流程监听器*****************" +
-                        "\r\n execution.getCurrentFlowElement().getId()：【{}】," +
-                        "\r\n execution.getCurrentFlowElement().getName():【{}】，" +
-                        "\r\n execution.getEventName()：【{}】，" +
-                        "\r\n execution.getProcessDefinitionId()：【{}】，" +
-                        "\r\n execution.getProcessInstanceId()：【{}】，" +
-                        "\r\n execution：【{}】",
-                execution.getCurrentFlowElement().getId(),
-                execution.getCurrentFlowElement().getName(),
-                execution.getEventName(),
-                execution.getProcessDefinitionId(),
-                execution.getProcessInstanceId(),
-                execution
-        );
+    protected void handle(ExecutionSnapshot snapshot) {
+        log.info("DepartmentListener event: {}, activity: {}({}), processDefinitionId: {}, processInstanceId: {}",
+                snapshot.getEventName(),
+                snapshot.getActivityName(),
+                snapshot.getActivityId(),
+                snapshot.getProcessDefinitionId(),
+                snapshot.getProcessInstanceId());
     }
 }
@@ -0,0 +1,45 @@
+package com.moli.activiti.listener;
+
+import lombok.Value;
+import org.activiti.bpmn.model.FlowElement;
+import org.activiti.engine.delegate.DelegateExecution;
+
+/**
+ * @author moli
+ * @time 2024-08-08 09:36:12
+ * @description 执行监听事件快照，只保留异步处理需要的字段，不持有引擎对象
+ */
+@Value
+public class ExecutionSnapshot {
+
+    String listener;
+
+    String eventName;
+
+    String activityId;
+
+    String activityName;
+
+    String processDefinitionId;
+
+    String processInstanceId;
+
+    String executionId;
+
+    String businessKey;
+
+    long timestamp;
+
+    public static ExecutionSnapshot of(String listener, DelegateExecution execution) {
+        FlowElement element = execution.getCurrentFlowElement();
+        return new ExecutionSnapshot(listener,
+                execution.getEventName(),
+                element == null ? execution.getCurrentActivityId() : element.getId(),
+                element == null ? null : element.getName(),
+                execution.getProcessDefinitionId(),
+                execution.getProcessInstanceId(),
+                execution.getId(),
+                execution.getProcessInstanceBusinessKey(),
+                System.currentTimeMillis());
+    }
+}
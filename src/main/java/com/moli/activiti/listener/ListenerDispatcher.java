@@ -0,0 +1,103 @@
+package com.moli.activiti.listener;
+
+import com.moli.activiti.config.ActProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * @author moli
+ * @time 2024-08-08 10:05:27
+ * @description 执行监听事件分发：事务提交后投递到有界线程池，队列满时丢弃并计数，不阻塞引擎事务。
+ * 监听器由引擎按类名实例化，无法注入，通过静态实例访问
+ */
+@Slf4j
+@Component
+public class ListenerDispatcher {
+
+    private static volatile ListenerDispatcher instance;
+
+    @Resource
+    private ActProperties actProperties;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private ThreadPoolExecutor executor;
+
+    private Counter dropped;
+
+    private Counter failed;
+
+    private Timer handleTimer;
+
+    @PostConstruct
+    public void init() {
+        ActProperties.Listener config = actProperties.getListener();
+        BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(config.getQueueCapacity());
+        executor = new ThreadPoolExecutor(config.getThreads(), config.getThreads(), 0, TimeUnit.MILLISECONDS, queue,
+                new CustomizableThreadFactory("act-listener-"), (task, pool) -> dropped.increment());
+        Gauge.builder("act.listener.queue", queue, BlockingQueue::size).register(meterRegistry);
+        dropped = Counter.builder("act.listener.events").tag("result", "dropped").register(meterRegistry);
+        failed = Counter.builder("act.listener.events").tag("result", "failed").register(meterRegistry);
+        handleTimer = Timer.builder("act.listener.handle").register(meterRegistry);
+        instance = this;
+    }
+
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        instance = null;
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("监听事件未处理完, 丢弃 {} 条", executor.shutdownNow().size());
+        }
+    }
+
+    /**
+     * 分发事件，在事务中时等待提交后投递，事务回滚则丢弃；未初始化（如单独启动的引擎）时直接在当前线程处理
+     */
+    static void dispatch(ExecutionSnapshot snapshot, Consumer<ExecutionSnapshot> handler) {
+        ListenerDispatcher dispatcher = instance;
+        if (dispatcher == null) {
+            handler.accept(snapshot);
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            dispatcher.submit(snapshot, handler);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                dispatcher.submit(snapshot, handler);
+            }
+        });
+    }
+
+    private void submit(ExecutionSnapshot snapshot, Consumer<ExecutionSnapshot> handler) {
+        // 队列已满或已停机时由拒绝策略计数丢弃
+        executor.execute(() -> handleTimer.record(() -> {
+            try {
+                handler.accept(snapshot);
+            } catch (Exception e) {
+                failed.increment();
+                log.warn("监听事件处理失败, listener: {}, cause: {}", snapshot.getListener(), e.getMessage());
+            }
+        }));
+    }
+}
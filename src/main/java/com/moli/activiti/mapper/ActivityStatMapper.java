@@ -0,0 +1,50 @@
+package com.moli.activiti.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.moli.activiti.entity.ActivityStat;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * @author moli
+ * @time 2024-08-16 09:48:31
+ * @description 活动耗时统计
+ */
+@Mapper
+public interface ActivityStatMapper extends BaseMapper<ActivityStat> {
+
+    /**
+     * 累加增量
+     */
+    @Insert("<script>" +
+            "INSERT INTO act_stat_activity (stat_date, process_definition_key, activity_id, duration_bucket," +
+            " activity_name, cnt, total_millis, max_millis) VALUES" +
+            "<foreach collection='stats' item='s' separator=','>" +
+            "(#{s.statDate}, #{s.processDefinitionKey}, #{s.activityId}, #{s.durationBucket}," +
+            " #{s.activityName}, #{s.cnt}, #{s.totalMillis}, #{s.maxMillis})" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE activity_name = VALUES(activity_name), cnt = cnt + VALUES(cnt)," +
+            " total_millis = total_millis + VALUES(total_millis), max_millis = GREATEST(max_millis, VALUES(max_millis))" +
+            "</script>")
+    int upsert(@Param("stats") Collection<ActivityStat> stats);
+
+    /**
+     * 按活动及耗时区间汇总日期范围 [from, to) 内的统计
+     */
+    @Select("<script>" +
+            "SELECT process_definition_key, activity_id, MAX(activity_name) activity_name, duration_bucket," +
+            " SUM(cnt) cnt, SUM(total_millis) total_millis, MAX(max_millis) max_millis" +
+            " FROM act_stat_activity WHERE stat_date &gt;= #{from} AND stat_date &lt; #{to}" +
+            "<if test='processDefinitionKey != null'> AND process_definition_key = #{processDefinitionKey}</if>" +
+            " GROUP BY process_definition_key, activity_id, duration_bucket" +
+            "</script>")
+    List<ActivityStat> sumByActivity(@Param("processDefinitionKey") String processDefinitionKey,
+                                     @Param("from") LocalDate from,
+                                     @Param("to") LocalDate to);
+}
@@ -0,0 +1,49 @@
+package com.moli.activiti.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.moli.activiti.entity.DecisionStat;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * @author moli
+ * @time 2024-08-16 09:52:07
+ * @description 网关分支统计
+ */
+@Mapper
+public interface DecisionStatMapper extends BaseMapper<DecisionStat> {
+
+    /**
+     * 累加增量
+     */
+    @Insert("<script>" +
+            "INSERT INTO act_stat_decision (stat_date, process_definition_key, gateway_id, target_activity_id," +
+            " target_activity_name, cnt) VALUES" +
+            "<foreach collection='stats' item='s' separator=','>" +
+            "(#{s.statDate}, #{s.processDefinitionKey}, #{s.gatewayId}, #{s.targetActivityId}," +
+            " #{s.targetActivityName}, #{s.cnt})" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE target_activity_name = VALUES(target_activity_name), cnt = cnt + VALUES(cnt)" +
+            "</script>")
+    int upsert(@Param("stats") Collection<DecisionStat> stats);
+
+    /**
+     * 按网关及流向汇总日期范围 [from, to) 内的统计
+     */
+    @Select("<script>" +
+            "SELECT process_definition_key, gateway_id, target_activity_id," +
+            " MAX(target_activity_name) target_activity_name, SUM(cnt) cnt" +
+            " FROM act_stat_decision WHERE stat_date &gt;= #{from} AND stat_date &lt; #{to}" +
+            "<if test='processDefinitionKey != null'> AND process_definition_key = #{processDefinitionKey}</if>" +
+            " GROUP BY process_definition_key, gateway_id, target_activity_id" +
+            "</script>")
+    List<DecisionStat> sumByGateway(@Param("processDefinitionKey") String processDefinitionKey,
+                                    @Param("from") LocalDate from,
+                                    @Param("to") LocalDate to);
+}
@@ -0,0 +1,14 @@
+package com.moli.activiti.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.moli.activiti.entity.TaskViewCandidate;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * @author moli
+ * @time 2024-08-02 09:52:44
+ * @description 待办任务候选人
+ */
+@Mapper
+public interface TaskViewCandidateMapper extends BaseMapper<TaskViewCandidate> {
+}
@@ -0,0 +1,36 @@
+package com.moli.activiti.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.moli.activiti.entity.TaskView;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * @author moli
+ * @time 2024-08-02 09:50:27
+ * @description 待办任务读模型
+ */
+@Mapper
+public interface TaskViewMapper extends BaseMapper<TaskView> {
+
+    /**
+     * 候选人可拾取的任务，走 act_task_view_candidate 主键索引
+     */
+    @Select("<script>" +
+            "SELECT v.* FROM act_task_view v WHERE v.assignee IS NULL AND v.task_id IN (" +
+            "  SELECT c.task_id FROM act_task_view_candidate c" +
+            "  WHERE (c.identity_type = 'U' AND c.identity = #{user})" +
+            "  <if test='groups != null and groups.size() > 0'>" +
+            "    OR (c.identity_type = 'G' AND c.identity IN" +
+            "    <foreach collection='groups' item='group' open='(' separator=',' close=')'>#{group}</foreach>)" +
+            "  </if>" +
+            ") ORDER BY v.create_time DESC LIMIT #{limit}" +
+            "</script>")
+    List<TaskView> selectCandidateTasks(@Param("user") String user,
+                                        @Param("groups") Collection<String> groups,
+                                        @Param("limit") int limit);
+}
@@ -0,0 +1,50 @@
+package com.moli.activiti.metrics;
+
+import org.activiti.engine.task.Task;
+
+/**
+ * @author moli
+ * @time 2024-07-29 09:33:42
+ * @description 业务方法在执行过程中登记流程定义 key 和任务定义 key，由 {@link ActServiceMetricsAspect} 作为指标标签使用
+ */
+public final class ActMetricsTags {
+
+    static final String NONE = "none";
+
+    private static final ThreadLocal<String[]> TAGS = ThreadLocal.withInitial(() -> new String[]{NONE, NONE});
+
+    private ActMetricsTags() {
+    }
+
+    /**
+     * 登记流程定义
+     *
+     * @param processDefinitionId 流程定义 id，格式为 key:version:id
+     */
+    public static void processDefinition(String processDefinitionId) {
+        if (processDefinitionId == null) return;
+        int split = processDefinitionId.indexOf(':');
+        TAGS.get()[0] = split > 0 ? processDefinitionId.substring(0, split) : processDefinitionId;
+    }
+
+    /**
+     * 登记任务及其流程定义
+     */
+    public static void task(Task task) {
+        if (task == null) return;
+        processDefinition(task.getProcessDefinitionId());
+        if (task.getTaskDefinitionKey() != null) TAGS.get()[1] = task.getTaskDefinitionKey();
+    }
+
+    static String processDefinitionKey() {
+        return TAGS.get()[0];
+    }
+
+    static String taskDefinitionKey() {
+        return TAGS.get()[1];
+    }
+
+    static void clear() {
+        TAGS.remove();
+    }
+}
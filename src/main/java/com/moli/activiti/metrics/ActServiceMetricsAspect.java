@@ -0,0 +1,55 @@
+package com.moli.activiti.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+
+/**
+ * @author moli
+ * @time 2024-07-29 09:51:06
+ * @description ActService 所有方法的耗时、调用量和异常计数，
+ * 标签包含方法名、结果以及业务方法登记的流程定义 key 和任务定义 key
+ */
+@Aspect
+@Component
+public class ActServiceMetricsAspect {
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Around("execution(public * com.moli.activiti.service.ActService.*(..))")
+    public Object around(ProceedingJoinPoint joinPoint) throws Throwable {
+        String method = joinPoint.getSignature().getName();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "success";
+        try {
+            Object result = joinPoint.proceed();
+            // 写操作返回 false 表示业务校验未通过
+            if (Boolean.FALSE.equals(result)) outcome = "rejected";
+            return result;
+        } catch (Throwable e) {
+            outcome = "error";
+            Counter.builder("act.service.errors")
+                    .tag("method", method)
+                    .tag("exception", e.getClass().getSimpleName())
+                    .register(meterRegistry)
+                    .increment();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("act.service")
+                    .tag("method", method)
+                    .tag("outcome", outcome)
+                    .tag("processDefinitionKey", ActMetricsTags.processDefinitionKey())
+                    .tag("taskDefinitionKey", ActMetricsTags.taskDefinitionKey())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+            ActMetricsTags.clear();
+        }
+    }
+}
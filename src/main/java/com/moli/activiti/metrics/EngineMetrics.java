@@ -0,0 +1,79 @@
+package com.moli.activiti.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.activiti.engine.ManagementService;
+import org.activiti.engine.RuntimeService;
+import org.activiti.engine.TaskService;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author moli
+ * @time 2024-07-29 10:22:48
+ * @description 引擎整体指标，定时统计后缓存，避免每次采集都查询数据库
+ */
+@Slf4j
+@Component
+public class EngineMetrics {
+
+    @Resource
+    private RuntimeService runtimeService;
+
+    @Resource
+    private TaskService taskService;
+
+    @Resource
+    private ManagementService managementService;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final AtomicLong activeInstances = new AtomicLong();
+
+    private final AtomicLong openTasks = new AtomicLong();
+
+    private final AtomicLong pendingJobs = new AtomicLong();
+
+    private final AtomicLong timerJobs = new AtomicLong();
+
+    private final AtomicLong failedJobs = new AtomicLong();
+
+    private final AtomicLong deadLetterJobs = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("act.engine.process.instances", activeInstances, AtomicLong::get)
+                .tag("state", "active").register(meterRegistry);
+        Gauge.builder("act.engine.tasks", openTasks, AtomicLong::get)
+                .tag("state", "open").register(meterRegistry);
+        Gauge.builder("act.engine.jobs", pendingJobs, AtomicLong::get)
+                .tag("state", "pending").register(meterRegistry);
+        Gauge.builder("act.engine.jobs", timerJobs, AtomicLong::get)
+                .tag("state", "timer").register(meterRegistry);
+        Gauge.builder("act.engine.jobs", failedJobs, AtomicLong::get)
+                .tag("state", "failed").register(meterRegistry);
+        Gauge.builder("act.engine.jobs", deadLetterJobs, AtomicLong::get)
+                .tag("state", "deadletter").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${act.metrics.engine-refresh-interval:30000}")
+    public void refresh() {
+        try {
+            activeInstances.set(runtimeService.createProcessInstanceQuery().active().count());
+            openTasks.set(taskService.createTaskQuery().count());
+            pendingJobs.set(managementService.createJobQuery().count());
+            timerJobs.set(managementService.createTimerJobQuery().count());
+            // 引擎在作业失败后将其移入定时作业表等待重试，重试耗尽后移入死信表，可执行作业表中不会留下异常
+            failedJobs.set(managementService.createTimerJobQuery().withException().count());
+            deadLetterJobs.set(managementService.createDeadLetterJobQuery().count());
+        } catch (Exception e) {
+            log.warn("刷新引擎指标失败: {}", e.getMessage());
+        }
+    }
+}
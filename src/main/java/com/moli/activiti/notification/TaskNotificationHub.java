@@ -0,0 +1,287 @@
+package com.moli.activiti.notification;
+
+import com.moli.activiti.config.ActProperties;
+import com.moli.activiti.event.TaskChangeType;
+import com.moli.activiti.event.TaskChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author moli
+ * @time 2024-07-24 09:55:18
+ * @description 任务变更推送中心，基于 SSE 异步连接，空闲连接不占用 servlet 线程；
+ * 每个连接一个有界缓冲区，满时丢弃最旧的消息；心跳与消息由同一推送任务发送，
+ * 推送线程池队列有界，单次推送超时的慢连接被关闭；卡住的写入由容器写超时（server.tomcat.connection-timeout）结束，
+ * 在此之前仍占用推送线程，推送线程数按可容忍的同时慢连接数配置
+ */
+@Slf4j
+@Component
+public class TaskNotificationHub {
+
+    @Resource
+    private ActProperties actProperties;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private ServerProperties serverProperties;
+
+    private final Map<String, Set<Subscriber>> userSubscribers = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<Subscriber>> groupSubscribers = new ConcurrentHashMap<>();
+
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private Counter dropped;
+
+    private Counter slow;
+
+    private ThreadPoolExecutor sender;
+
+    private ScheduledExecutorService heartbeat;
+
+    @PostConstruct
+    public void init() {
+        ActProperties.Notify config = actProperties.getNotify();
+        AtomicInteger index = new AtomicInteger();
+        sender = new ThreadPoolExecutor(config.getSenderThreads(), config.getSenderThreads(),
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(config.getSenderQueueSize()), r -> {
+            Thread thread = new Thread(r, "act-notify-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "act-notify-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleWithFixedDelay(this::sendHeartbeat,
+                config.getHeartbeatInterval(), config.getHeartbeatInterval(), TimeUnit.SECONDS);
+        dropped = Counter.builder("act.notify.dropped").register(meterRegistry);
+        slow = Counter.builder("act.notify.slow").register(meterRegistry);
+        Gauge.builder("act.notify.queue", sender, e -> e.getQueue().size()).register(meterRegistry);
+        Gauge.builder("act.notify.senders.busy", sender, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+        Gauge.builder("act.notify.connections", connections, AtomicInteger::get).register(meterRegistry);
+        Duration writeTimeout = serverProperties.getTomcat().getConnectionTimeout();
+        if (writeTimeout == null || writeTimeout.getSeconds() > config.getSendTimeout()) {
+            log.warn("server.tomcat.connection-timeout({}) 大于推送超时 {} 秒, 慢连接被关闭后推送线程仍会阻塞至写超时",
+                    writeTimeout, config.getSendTimeout());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        heartbeat.shutdownNow();
+        sender.shutdownNow();
+        userSubscribers.values().forEach(set -> set.forEach(s -> s.emitter.complete()));
+    }
+
+    /**
+     * 订阅用户及其所在组的任务变更
+     *
+     * @param user   用户
+     * @param groups 用户所在候选组
+     */
+    public SseEmitter subscribe(String user, Collection<String> groups) {
+        ActProperties.Notify config = actProperties.getNotify();
+        SseEmitter emitter = new SseEmitter(TimeUnit.SECONDS.toMillis(config.getConnectionTimeout()));
+        Subscriber subscriber = new Subscriber(user, groups, emitter, config.getBufferSize());
+        userSubscribers.computeIfAbsent(user, k -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        for (String group : subscriber.groups) {
+            groupSubscribers.computeIfAbsent(group, k -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        }
+        connections.incrementAndGet();
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+        return emitter;
+    }
+
+    /**
+     * 事务提交后推送给相关用户
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskChanged(TaskChangedEvent event) {
+        if (event.getType() != TaskChangeType.CREATED && event.getType() != TaskChangeType.ASSIGNED) return;
+        Set<Subscriber> targets = new LinkedHashSet<>();
+        if (event.getAssignee() != null) {
+            targets.addAll(userSubscribers.getOrDefault(event.getAssignee(), Collections.emptySet()));
+        }
+        // 新建的候选任务通知候选人；被拾取时也通知候选人，以便从各自列表中移除
+        for (String user : event.getCandidateUsers()) {
+            targets.addAll(userSubscribers.getOrDefault(user, Collections.emptySet()));
+        }
+        for (String group : event.getCandidateGroups()) {
+            targets.addAll(groupSubscribers.getOrDefault(group, Collections.emptySet()));
+        }
+        for (Subscriber target : targets) {
+            target.offer(event);
+        }
+    }
+
+    /**
+     * 推送任意通知给指定用户，如 SLA 超时提醒
+     */
+    public void notifyUser(String user, TaskChangedEvent event) {
+        userSubscribers.getOrDefault(user, Collections.emptySet()).forEach(s -> s.offer(event));
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) return;
+        connections.decrementAndGet();
+        Set<Subscriber> users = userSubscribers.get(subscriber.user);
+        if (users != null) {
+            users.remove(subscriber);
+            if (users.isEmpty()) userSubscribers.remove(subscriber.user, users);
+        }
+        for (String group : subscriber.groups) {
+            Set<Subscriber> members = groupSubscribers.get(group);
+            if (members == null) continue;
+            members.remove(subscriber);
+            if (members.isEmpty()) groupSubscribers.remove(group, members);
+        }
+    }
+
+    private void sendHeartbeat() {
+        long timeout = TimeUnit.SECONDS.toMillis(actProperties.getNotify().getSendTimeout());
+        long now = System.currentTimeMillis();
+        for (Set<Subscriber> subscribers : userSubscribers.values()) {
+            for (Subscriber subscriber : subscribers) {
+                long since = subscriber.sendingSince;
+                if (since > 0 && now - since > timeout) {
+                    subscriber.closeSlow();
+                    continue;
+                }
+                subscriber.heartbeatDue = true;
+                subscriber.schedule();
+            }
+        }
+    }
+
+    private class Subscriber {
+
+        private final String user;
+
+        private final Set<String> groups;
+
+        private final SseEmitter emitter;
+
+        private final BlockingQueue<TaskChangedEvent> buffer;
+
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private volatile boolean heartbeatDue;
+
+        /**
+         * 当前推送开始时间，未在推送时为 0
+         */
+        private volatile long sendingSince;
+
+        Subscriber(String user, Collection<String> groups, SseEmitter emitter, int bufferSize) {
+            this.user = user;
+            this.groups = groups == null ? Collections.emptySet() : new LinkedHashSet<>(groups);
+            this.emitter = emitter;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        void offer(TaskChangedEvent event) {
+            if (closed.get()) return;
+            while (!buffer.offer(event)) {
+                // 缓冲区已满，丢弃最旧的消息
+                if (buffer.poll() != null) dropped.increment();
+            }
+            schedule();
+        }
+
+        /**
+         * 每个连接同时最多一个推送任务
+         */
+        void schedule() {
+            if (closed.get() || !draining.compareAndSet(false, true)) return;
+            try {
+                sender.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // 推送队列已满，消息留在缓冲区，由下次消息或心跳重新调度
+                draining.set(false);
+            }
+        }
+
+        private void drain() {
+            try {
+                while (!closed.get()) {
+                    if (heartbeatDue) {
+                        heartbeatDue = false;
+                        send(SseEmitter.event().comment("heartbeat"));
+                        continue;
+                    }
+                    TaskChangedEvent event = buffer.poll();
+                    if (event == null) break;
+                    send(SseEmitter.event()
+                            .name(event.getType().name())
+                            .id(event.getTaskId())
+                            .data(event, MediaType.APPLICATION_JSON));
+                }
+            } finally {
+                draining.set(false);
+                // 释放标记后有新消息进入时重新调度
+                if (!buffer.isEmpty()) schedule();
+            }
+        }
+
+        private void send(SseEmitter.SseEventBuilder builder) {
+            sendingSince = System.currentTimeMillis();
+            try {
+                emitter.send(builder);
+            } catch (IOException | IllegalStateException e) {
+                log.debug("推送失败, 关闭连接, user: {}, cause: {}", user, e.getMessage());
+                unsubscribe(this);
+                emitter.completeWithError(e);
+            } finally {
+                sendingSince = 0;
+            }
+        }
+
+        /**
+         * 关闭推送超时的连接，之后不再为其调度推送；关闭不会中断阻塞中的写入，
+         * 推送线程在容器写超时后才释放
+         */
+        void closeSlow() {
+            if (closed.get()) return;
+            log.debug("推送超时, 关闭连接, user: {}", user);
+            slow.increment();
+            unsubscribe(this);
+            emitter.completeWithError(new IOException("推送超时"));
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.moli.activiti.service;
+
+import com.moli.activiti.common.ExportFormat;
+import com.moli.activiti.common.HistoryQueryDTO;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * @author moli
+ * @time 2024-07-19 15:48:12
+ * @description 历史数据流式导出服务
+ */
+public interface ActExportService {
+
+    long exportHistoryProcessIns(HistoryQueryDTO query, ExportFormat format, OutputStream out) throws IOException;
+
+    long exportActivityIns(HistoryQueryDTO query, ExportFormat format, OutputStream out) throws IOException;
+}
@@ -1,6 +1,11 @@
 package com.moli.activiti.service;
 
+import com.moli.activiti.common.BatchResultDTO;
+import com.moli.activiti.common.ClaimStatus;
+import com.moli.activiti.common.CursorPage;
+import com.moli.activiti.common.HistoryQueryDTO;
 import com.moli.activiti.common.ReturnData;
+import com.moli.activiti.common.TaskCompleteDTO;
 import org.activiti.engine.history.HistoricActivityInstance;
 import org.activiti.engine.history.HistoricProcessInstance;
 import org.activiti.engine.history.HistoricTaskInstance;
@@ -12,6 +17,7 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * @author moli
@@ -22,25 +28,34 @@ public interface ActService {
 
     boolean deploy(MultipartFile file, String actName);
 
+    List<BatchResultDTO> deployArchives(List<MultipartFile> files, String actName);
+
     List<Deployment> getAllDeployInfo();
 
-    List<Deployment> pageDeployInfo(Long pageNum, Long pageSize);
+    CursorPage<Deployment> pageDeployInfo(String cursor, Integer pageSize);
 
     List<ProcessDefinition> getAllProcessDefinitions();
 
+    String getDefinitionEtag();
+
     boolean deleteDeployById(String deploymentId);
 
     boolean startProcess(String processDefId, Map<String, Object> vars);
 
+    int startProcesses(String processDefId, List<Map<String, Object>> varsList,
+                       Consumer<List<BatchResultDTO>> resultConsumer);
+
     boolean completeTask(String taskId, Map<String, Object> vars);
 
+    List<BatchResultDTO> completeTasks(List<TaskCompleteDTO> tasks);
+
     boolean completeDelegateTask(String processInsId, Map<String, Object> vars);
 
-    List<HistoricProcessInstance> getAllHistoryProcessIns();
+    CursorPage<HistoricProcessInstance> pageHistoryProcessIns(HistoryQueryDTO query);
 
-    List<HistoricTaskInstance> getAllHistoryTask();
+    CursorPage<HistoricTaskInstance> pageHistoryTask(HistoryQueryDTO query);
 
-    List<HistoricActivityInstance> getAllActivityIns();
+    CursorPage<HistoricActivityInstance> pageActivityIns(HistoryQueryDTO query);
 
     List<Task> getAllTaskByAssigneeName(String assignee);
 
@@ -52,6 +67,10 @@ public interface ActService {
 
     boolean claimTask(String taskId, String candidate);
 
+    ClaimStatus tryClaimTask(String taskId, String candidate);
+
+    Task claimNextTask(String candidate);
+
     boolean delegateTask(String taskId, String assignee);
 
     boolean setAssignee(String taskId, String assignee);
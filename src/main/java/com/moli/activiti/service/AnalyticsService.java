@@ -0,0 +1,21 @@
+package com.moli.activiti.service;
+
+import com.moli.activiti.common.vo.ActivityStatsVO;
+import com.moli.activiti.common.vo.DecisionStatsVO;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * @author moli
+ * @time 2024-08-16 11:31:58
+ * @description 审批统计查询，读取按日累计的统计表，耗时与历史数据量无关
+ */
+public interface AnalyticsService {
+
+    List<ActivityStatsVO> activityStats(String processDefinitionKey, LocalDate from, LocalDate to);
+
+    List<DecisionStatsVO> decisionStats(String processDefinitionKey, LocalDate from, LocalDate to);
+
+    long rebuild(LocalDate from, LocalDate to);
+}
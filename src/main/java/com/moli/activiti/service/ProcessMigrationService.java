@@ -0,0 +1,22 @@
+package com.moli.activiti.service;
+
+import com.moli.activiti.common.BatchResultDTO;
+import com.moli.activiti.common.MigrationPlanDTO;
+import com.moli.activiti.common.MigrationResultDTO;
+
+import java.util.List;
+
+/**
+ * @author moli
+ * @time 2024-08-12 10:40:15
+ * @description 流程实例版本迁移及旧版本清理
+ */
+public interface ProcessMigrationService {
+
+    MigrationResultDTO migrate(MigrationPlanDTO plan);
+
+    /**
+     * 清理旧版本流程定义，保留最新的 keepVersions 个版本；无运行中实例的部署删除，否则跳过
+     */
+    List<BatchResultDTO> retire(String processDefinitionKey, int keepVersions);
+}
@@ -0,0 +1,21 @@
+package com.moli.activiti.service;
+
+import com.moli.activiti.common.HandoverDTO;
+import com.moli.activiti.common.HandoverProgressDTO;
+
+/**
+ * @author moli
+ * @time 2024-08-09 10:02:17
+ * @description 工作交接
+ */
+public interface TaskHandoverService {
+
+    /**
+     * 提交交接任务，后台执行
+     *
+     * @return 交接任务 id
+     */
+    String handover(HandoverDTO handover);
+
+    HandoverProgressDTO progress(String jobId);
+}
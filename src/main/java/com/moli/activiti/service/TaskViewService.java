@@ -0,0 +1,26 @@
+package com.moli.activiti.service;
+
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.moli.activiti.common.TaskViewQueryDTO;
+import com.moli.activiti.entity.TaskView;
+
+import java.util.List;
+
+/**
+ * @author moli
+ * @time 2024-08-02 10:18:51
+ * @description 待办任务读模型服务
+ */
+public interface TaskViewService extends IService<TaskView> {
+
+    List<TaskView> listByAssignee(String assignee, int limit);
+
+    List<TaskView> listByCandidate(String user, List<String> groups, int limit);
+
+    IPage<TaskView> search(TaskViewQueryDTO query);
+
+    long countByAssignee(String assignee);
+
+    int rebuild();
+}
@@ -0,0 +1,120 @@
+package com.moli.activiti.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.moli.activiti.common.ExportFormat;
+import com.moli.activiti.common.HistoryQueryDTO;
+import com.moli.activiti.datasource.ReadReplica;
+import com.moli.activiti.service.ActExportService;
+import com.moli.activiti.service.support.RowWriter;
+import com.moli.activiti.service.support.StreamingJdbcTemplate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author moli
+ * @time 2024-07-19 15:52:40
+ * @description 直接以 jdbc 游标读取 ACT_HI_* 表并逐行写出，内存占用与行数无关
+ */
+@Slf4j
+@Service
+public class ActExportServiceImpl implements ActExportService {
+
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
+    private static final String[] PROCESS_INSTANCE_COLUMNS = {
+            "ID_", "BUSINESS_KEY_", "PROC_DEF_ID_", "START_TIME_", "END_TIME_", "DURATION_",
+            "START_USER_ID_", "START_ACT_ID_", "END_ACT_ID_", "DELETE_REASON_"
+    };
+
+    private static final String[] ACTIVITY_INSTANCE_COLUMNS = {
+            "ID_", "PROC_DEF_ID_", "PROC_INST_ID_", "EXECUTION_ID_", "ACT_ID_", "TASK_ID_",
+            "ACT_NAME_", "ACT_TYPE_", "ASSIGNEE_", "START_TIME_", "END_TIME_", "DURATION_"
+    };
+
+    @Resource
+    private DataSource dataSource;
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    private JdbcTemplate exportJdbcTemplate;
+
+    @PostConstruct
+    public void init() {
+        // 只对导出语句逐行流式读取，其他查询不受影响
+        exportJdbcTemplate = new StreamingJdbcTemplate(dataSource, EXPORT_FETCH_SIZE);
+    }
+
+    /**
+     * 导出历史流程实例
+     */
+    @Override
+    @ReadReplica
+    public long exportHistoryProcessIns(HistoryQueryDTO query, ExportFormat format, OutputStream out) throws IOException {
+        return export("ACT_HI_PROCINST", PROCESS_INSTANCE_COLUMNS, query, false, format, out);
+    }
+
+    /**
+     * 导出历史活动实例
+     */
+    @Override
+    @ReadReplica
+    public long exportActivityIns(HistoryQueryDTO query, ExportFormat format, OutputStream out) throws IOException {
+        return export("ACT_HI_ACTINST", ACTIVITY_INSTANCE_COLUMNS, query, true, format, out);
+    }
+
+    private long export(String table, String[] columns, HistoryQueryDTO query, boolean assigneeFilter,
+                        ExportFormat format, OutputStream out) throws IOException {
+        StringBuilder sql = new StringBuilder("SELECT ")
+                .append(String.join(", ", columns))
+                .append(" FROM ").append(table).append(" WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (query.getStartTimeFrom() != null) {
+            sql.append(" AND START_TIME_ >= ?");
+            args.add(query.getStartTimeFrom());
+        }
+        if (query.getStartTimeTo() != null) {
+            sql.append(" AND START_TIME_ < ?");
+            args.add(query.getStartTimeTo());
+        }
+        if (StringUtils.hasText(query.getProcessDefinitionId())) {
+            sql.append(" AND PROC_DEF_ID_ = ?");
+            args.add(query.getProcessDefinitionId());
+        }
+        if (assigneeFilter && StringUtils.hasText(query.getAssignee())) {
+            sql.append(" AND ASSIGNEE_ = ?");
+            args.add(query.getAssignee());
+        }
+        sql.append(" ORDER BY START_TIME_ ASC, ID_ ASC");
+
+        long[] count = {0};
+        try (RowWriter writer = RowWriter.create(format, out, objectMapper)) {
+            writer.header(columns);
+            exportJdbcTemplate.query(sql.toString(), rs -> {
+                Object[] values = new Object[columns.length];
+                for (int i = 0; i < columns.length; i++) {
+                    values[i] = rs.getObject(i + 1);
+                }
+                try {
+                    writer.row(values);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                count[0]++;
+            }, args.toArray());
+        }
+        log.info("导出 {} 完成, 行数: {}", table, count[0]);
+        return count[0];
+    }
+}
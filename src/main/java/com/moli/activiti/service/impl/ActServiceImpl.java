@@ -1,9 +1,27 @@
 package com.moli.activiti.service.impl;
 
+import com.moli.activiti.cache.ProcessDefinitionCache;
+import com.moli.activiti.cache.TaskInboxCache;
+import com.moli.activiti.common.BatchResultDTO;
+import com.moli.activiti.common.ClaimStatus;
+import com.moli.activiti.common.CursorPage;
+import com.moli.activiti.common.HistoryQueryDTO;
 import com.moli.activiti.common.ReturnData;
+import com.moli.activiti.common.TaskCompleteDTO;
+import com.moli.activiti.config.ActProperties;
+import com.moli.activiti.datasource.ReadReplica;
+import com.moli.activiti.history.HistoryLevelContext;
+import com.moli.activiti.metrics.ActMetricsTags;
 import com.moli.activiti.service.ActService;
+import com.moli.activiti.service.support.ChunkTransactionExecutor;
+import com.moli.activiti.service.support.DeploymentPipeline;
+import com.moli.activiti.service.support.KeysetQuery;
+import com.moli.activiti.service.support.StripedLock;
 import lombok.extern.slf4j.Slf4j;
+import org.activiti.engine.ActivitiOptimisticLockingException;
+import org.activiti.engine.ActivitiTaskAlreadyClaimedException;
 import org.activiti.engine.HistoryService;
+import org.activiti.engine.ManagementService;
 import org.activiti.engine.RepositoryService;
 import org.activiti.engine.RuntimeService;
 import org.activiti.engine.TaskService;
@@ -12,22 +30,36 @@ import org.activiti.engine.history.HistoricProcessInstance;
 import org.activiti.engine.history.HistoricTaskInstance;
 import org.activiti.engine.impl.identity.Authentication;
 import org.activiti.engine.repository.Deployment;
-import org.activiti.engine.repository.DeploymentBuilder;
 import org.activiti.engine.repository.ProcessDefinition;
 import org.activiti.engine.runtime.ProcessInstance;
 import org.activiti.engine.task.Comment;
+import org.activiti.engine.task.NativeTaskQuery;
 import org.activiti.engine.task.Task;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
-import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.zip.ZipInputStream;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * @author moli
@@ -49,6 +81,34 @@ public class ActServiceImpl implements ActService {
     @Resource
     private HistoryService historyService; // 历史处理接口
 
+    @Resource
+    private ManagementService managementService; // 管理接口
+
+    @Resource
+    private ChunkTransactionExecutor chunkTransactionExecutor;
+
+    @Resource
+    private DeploymentPipeline deploymentPipeline;
+
+    @Resource
+    private ActProperties actProperties;
+
+    @Resource
+    private ThreadPoolTaskExecutor actBatchExecutor;
+
+    @Resource
+    private ProcessDefinitionCache processDefinitionCache;
+
+    @Resource
+    private TaskInboxCache taskInboxCache;
+
+    private StripedLock claimLocks;
+
+    @PostConstruct
+    public void init() {
+        claimLocks = new StripedLock(actProperties.getClaim().getLockStripes());
+    }
+
     /**
      * 部署流程
      *
@@ -57,23 +117,24 @@ public class ActServiceImpl implements ActService {
      */
     @Override
     public boolean deploy(MultipartFile file, String actName) {
-        try {
-            if (file.isEmpty()) {
-                throw new FileNotFoundException("部署压缩包不能为空");
-            }
-            DeploymentBuilder deploymentBuilder = repositoryService.createDeployment();
-            // 压缩流
-            ZipInputStream zip = new ZipInputStream(file.getInputStream());
-            deploymentBuilder.addZipInputStream(zip);
-            // 设置部署流程名称
-            deploymentBuilder.name(actName);
-            // 部署
-            Deployment deploy = deploymentBuilder.deploy();
-            return true;
-        } catch (Exception e) {
-            log.error(e.getMessage());
-            return false;
-        }
+        BatchResultDTO result = deployArchives(Collections.singletonList(file), actName).get(0);
+        if (!result.isSuccess()) log.error(result.getMessage());
+        return result.isSuccess();
+    }
+
+    /**
+     * 批量部署流程压缩包，解析校验在事务外并行完成，与最新版本相同的流程文件不会重复部署
+     *
+     * @param files   流程图压缩包 .zip
+     * @param actName 流程名 act_re_deployment - NAME
+     */
+    @Override
+    public List<BatchResultDTO> deployArchives(List<MultipartFile> files, String actName) {
+        List<BatchResultDTO> results = deploymentPipeline.deploy(files, actName);
+        boolean deployed = results.stream()
+                .anyMatch(result -> result.isSuccess() && !DeploymentPipeline.UNCHANGED.equals(result.getMessage()));
+        if (deployed) processDefinitionCache.invalidate();
+        return results;
     }
 
     /**
@@ -81,19 +142,21 @@ public class ActServiceImpl implements ActService {
      */
     @Override
     public List<Deployment> getAllDeployInfo() {
-        return repositoryService.createDeploymentQuery().list();
+        return processDefinitionCache.listDeployments();
     }
 
     /**
-     * 分页查询流程部署信息
+     * 按部署时间游标分页查询流程部署信息
      *
-     * @param pageNum  当前页
+     * @param cursor   上一页返回的游标，为空时查询第一页
      * @param pageSize 页大小
      */
     @Override
-    public List<Deployment> pageDeployInfo(Long pageNum, Long pageSize) {
-        int first = (pageNum.intValue() - 1) * pageSize.intValue();
-        return repositoryService.createDeploymentQuery().listPage(first, pageSize.intValue());
+    public CursorPage<Deployment> pageDeployInfo(String cursor, Integer pageSize) {
+        return KeysetQuery.of(managementService.getTableName(Deployment.class), "DEPLOY_TIME_")
+                .after(cursor)
+                .page(repositoryService.createNativeDeploymentQuery(), pageSize,
+                        Deployment::getDeploymentTime, Deployment::getId);
     }
 
     /**
@@ -101,7 +164,15 @@ public class ActServiceImpl implements ActService {
      */
     @Override
     public List<ProcessDefinition> getAllProcessDefinitions() {
-        return repositoryService.createProcessDefinitionQuery().list();
+        return processDefinitionCache.listProcessDefinitions();
+    }
+
+    /**
+     * 部署与流程定义信息的 ETag
+     */
+    @Override
+    public String getDefinitionEtag() {
+        return processDefinitionCache.getEtag();
     }
 
     /**
@@ -117,6 +188,7 @@ public class ActServiceImpl implements ActService {
             return false;
         }
         repositoryService.deleteDeployment(deploymentId);
+        processDefinitionCache.invalidate();
         return true;
     }
 
@@ -130,15 +202,16 @@ public class ActServiceImpl implements ActService {
     public boolean startProcess(String processDefId,
             /*流程节点中变量，替换占位符*/ Map<String, Object> vars) {
         // 查询是否存在流程定义信息
-        ProcessDefinition processDef = repositoryService.createProcessDefinitionQuery()
-                .processDefinitionId(processDefId).singleResult();
+        ProcessDefinition processDef = processDefinitionCache.getProcessDefinition(processDefId);
         if (Objects.isNull(processDef)) return false;
+        ActMetricsTags.processDefinition(processDefId);
         // 设置发起人
         Authentication.setAuthenticatedUserId(vars.get("username").toString());
         log.info("发起流程, 发起人: {} - processName: {}, processId: {}", processDef.getName(), processDefId);
 
         // 启动流程
-        ProcessInstance processInstance = runtimeService.startProcessInstanceById(processDefId, vars);
+        ProcessInstance processInstance = HistoryLevelContext.call(processDefId,
+                () -> runtimeService.startProcessInstanceById(processDefId, vars));
         log.info("流程启动成功, 流程名: {}, 启动时间: {}",
                 processInstance.getName(),
                 processInstance.getStartTime());
@@ -146,6 +219,124 @@ public class ActServiceImpl implements ActService {
         return true;
     }
 
+    /**
+     * 批量开启流程，流程定义只查询一次，按分块并发创建实例，每完成一个分块回调一次结果
+     *
+     * @param processDefId   流程定义 id
+     * @param varsList       每个实例的变量
+     * @param resultConsumer 分块结果回调，key 为变量在列表中的下标，data 为流程实例 id
+     * @return 成功创建的实例数
+     */
+    @Override
+    public int startProcesses(String processDefId, List<Map<String, Object>> varsList,
+                              Consumer<List<BatchResultDTO>> resultConsumer) {
+        ProcessDefinition processDef = processDefinitionCache.getProcessDefinition(processDefId);
+        ActMetricsTags.processDefinition(processDefId);
+        if (Objects.isNull(processDef)) {
+            resultConsumer.accept(Collections.singletonList(BatchResultDTO.fail(processDefId, "流程定义不存在")));
+            return 0;
+        }
+        log.info("批量发起流程, processName: {}, processId: {}, 数量: {}",
+                processDef.getName(), processDefId, varsList.size());
+
+        int chunkSize = Math.max(1, actProperties.getBatch().getChunkSize());
+        int parallelism = Math.max(1, actProperties.getBatch().getParallelism());
+        CompletionService<List<BatchResultDTO>> completionService =
+                new ExecutorCompletionService<>(actBatchExecutor.getThreadPoolExecutor());
+        int created = 0;
+        int inFlight = 0;
+        int from = 0;
+        Map<Future<List<BatchResultDTO>>, int[]> ranges = new HashMap<>();
+        while (from < varsList.size() || inFlight > 0) {
+            // 控制同时执行的分块数不超过并发数
+            while (from < varsList.size() && inFlight < parallelism) {
+                int start = from;
+                int end = Math.min(from + chunkSize, varsList.size());
+                try {
+                    ranges.put(completionService.submit(() -> startChunk(processDefId, varsList, start, end)),
+                            new int[]{start, end});
+                } catch (RejectedExecutionException e) {
+                    // 线程池被其他批量请求占满：有执行中的分块时等其完成后重试，否则该分块失败
+                    if (inFlight > 0) break;
+                    resultConsumer.accept(failRange(start, end, "服务繁忙，请稍后重试"));
+                    from = end;
+                    continue;
+                }
+                inFlight++;
+                from = end;
+            }
+            if (inFlight == 0) continue;
+            Future<List<BatchResultDTO>> future;
+            try {
+                future = completionService.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("批量发起流程被中断", e);
+            }
+            inFlight--;
+            int[] range = ranges.remove(future);
+            try {
+                List<BatchResultDTO> chunkResults = future.get();
+                created += (int) chunkResults.stream().filter(BatchResultDTO::isSuccess).count();
+                resultConsumer.accept(chunkResults);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("批量发起流程被中断", e);
+            } catch (ExecutionException e) {
+                log.error("批量发起流程分块失败: {}", e.getCause().getMessage());
+                resultConsumer.accept(failRange(range[0], range[1], e.getCause().getMessage()));
+            }
+        }
+        log.info("批量发起流程完成, processId: {}, 成功: {}", processDefId, created);
+        return created;
+    }
+
+    private static List<BatchResultDTO> failRange(int start, int end, String message) {
+        List<BatchResultDTO> results = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++) results.add(BatchResultDTO.fail(String.valueOf(i), message));
+        return results;
+    }
+
+    /**
+     * 在当前线程中以一个事务创建 [start, end) 范围内的流程实例，未指定发起人的不创建
+     */
+    private List<BatchResultDTO> startChunk(String processDefId, List<Map<String, Object>> varsList,
+                                            int start, int end) {
+        List<Integer> indexes = new ArrayList<>(end - start);
+        Map<String, BatchResultDTO> invalid = new HashMap<>();
+        for (int i = start; i < end; i++) {
+            Map<String, Object> vars = varsList.get(i);
+            if (vars == null || vars.get("username") == null) {
+                invalid.put(String.valueOf(i), BatchResultDTO.fail(String.valueOf(i), "发起人 username 不能为空"));
+            } else {
+                indexes.add(i);
+            }
+        }
+        List<BatchResultDTO> started = Collections.emptyList();
+        if (!indexes.isEmpty()) {
+            started = chunkTransactionExecutor.executeChunk(indexes, String::valueOf, index -> {
+                Map<String, Object> vars = varsList.get(index);
+                try {
+                    // 设置发起人
+                    Authentication.setAuthenticatedUserId(String.valueOf(vars.get("username")));
+                    return HistoryLevelContext.call(processDefId,
+                            () -> runtimeService.startProcessInstanceById(processDefId, vars).getId());
+                } finally {
+                    Authentication.setAuthenticatedUserId(null);
+                }
+            });
+        }
+        if (invalid.isEmpty()) return started;
+        // 按下标顺序合并
+        List<BatchResultDTO> results = new ArrayList<>(end - start);
+        Iterator<BatchResultDTO> iterator = started.iterator();
+        for (int i = start; i < end; i++) {
+            BatchResultDTO result = invalid.get(String.valueOf(i));
+            results.add(result != null ? result : iterator.next());
+        }
+        return results;
+    }
+
     /**
      * 完成普通任务
      *
@@ -158,16 +349,87 @@ public class ActServiceImpl implements ActService {
         //根据流程实例id，查询任务
         Task task = taskService.createTaskQuery().taskId(taskId).singleResult();
         if (Objects.isNull(task)) return false;
+        ActMetricsTags.task(task);
         // TODO 判断任务的代办人是否与当前用户一致
 
         log.info("Task: {} is completing", task.getName());
 
         // 完成任务
-        taskService.complete(task.getId(), vars);
+        HistoryLevelContext.run(task.getProcessDefinitionId(), () -> taskService.complete(task.getId(), vars));
         log.info("Task: {} is completed", task.getName());
         return true;
     }
 
+    /**
+     * 批量完成任务，按分块查询并提交，每个分块一个事务，结果与入参顺序一致
+     *
+     * @param tasks 任务 id 及变量
+     */
+    @Override
+    public List<BatchResultDTO> completeTasks(List<TaskCompleteDTO> tasks) {
+        int size = Math.max(1, actProperties.getBatch().getChunkSize());
+        List<BatchResultDTO> results = new ArrayList<>(tasks.size());
+        for (int from = 0; from < tasks.size(); from += size) {
+            results.addAll(completeChunk(tasks.subList(from, Math.min(from + size, tasks.size()))));
+        }
+        log.info("批量完成任务, 总数: {}, 失败: {}", tasks.size(),
+                results.stream().filter(r -> !r.isSuccess()).count());
+        return results;
+    }
+
+    /**
+     * 每个分块单独查询任务，IN 条件的长度不超过分块大小
+     */
+    private List<BatchResultDTO> completeChunk(List<TaskCompleteDTO> chunk) {
+        Map<String, Task> taskMap = queryTaskMap(chunk.stream()
+                .map(TaskCompleteDTO::getTaskId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new)));
+        List<TaskCompleteDTO> existing = chunk.stream()
+                .filter(dto -> taskMap.containsKey(dto.getTaskId()))
+                .collect(Collectors.toList());
+        List<BatchResultDTO> completed = Collections.emptyList();
+        if (!existing.isEmpty()) {
+            completed = chunkTransactionExecutor.executeChunk(existing, TaskCompleteDTO::getTaskId, dto -> {
+                HistoryLevelContext.run(taskMap.get(dto.getTaskId()).getProcessDefinitionId(),
+                        () -> taskService.complete(dto.getTaskId(), dto.getVars()));
+                return null;
+            });
+        }
+        // 按入参顺序合并
+        List<BatchResultDTO> results = new ArrayList<>(chunk.size());
+        Iterator<BatchResultDTO> iterator = completed.iterator();
+        for (TaskCompleteDTO dto : chunk) {
+            results.add(taskMap.containsKey(dto.getTaskId())
+                    ? iterator.next() : BatchResultDTO.fail(dto.getTaskId(), "任务不存在"));
+        }
+        return results;
+    }
+
+    /**
+     * 一次查询出多个任务
+     *
+     * @param taskIds 任务 id
+     */
+    private Map<String, Task> queryTaskMap(Set<String> taskIds) {
+        if (taskIds.isEmpty()) return new HashMap<>();
+        StringBuilder sql = new StringBuilder("SELECT * FROM ")
+                .append(managementService.getTableName(Task.class))
+                .append(" WHERE ID_ IN (");
+        Map<String, Object> params = new HashMap<>();
+        int i = 0;
+        for (String taskId : taskIds) {
+            if (i > 0) sql.append(", ");
+            sql.append("#{id").append(i).append("}");
+            params.put("id" + i, taskId);
+            i++;
+        }
+        sql.append(")");
+        NativeTaskQuery query = taskService.createNativeTaskQuery().sql(sql.toString());
+        params.forEach(query::parameter);
+        return query.list().stream().collect(Collectors.toMap(Task::getId, Function.identity()));
+    }
+
     /**
      * 完成委派任务
      *
@@ -179,56 +441,84 @@ public class ActServiceImpl implements ActService {
         //根据流程实例id，查询任务
         Task task = taskService.createTaskQuery().taskId(taskId).singleResult();
         if (Objects.isNull(task)) return false;
+        ActMetricsTags.task(task);
         // TODO 判断任务的代办人是否与当前用户一致
 
         log.info("Delegate Task: {} is completing", task.getName());
 
-        // 解析任务
-        taskService.resolveTask(task.getId(), vars);
-        //根据任务id，完成任务
-        taskService.complete(task.getId(), vars);
+        HistoryLevelContext.run(task.getProcessDefinitionId(), () -> {
+            // 解析任务
+            taskService.resolveTask(task.getId(), vars);
+            //根据任务id，完成任务
+            taskService.complete(task.getId(), vars);
+        });
         log.info("Delegate Task: {} is completed", task.getName());
         return true;
     }
 
     /**
-     * 获取所有的历史流程实例信息
+     * 按开始时间游标分页查询历史流程实例信息
+     *
+     * @param query 查询条件
      */
     @Override
-    public List<HistoricProcessInstance> getAllHistoryProcessIns() {
-        // 也可以设置查询条件，自行查询 API
-        return historyService.createHistoricProcessInstanceQuery().list();
+    @ReadReplica
+    public CursorPage<HistoricProcessInstance> pageHistoryProcessIns(HistoryQueryDTO query) {
+        return KeysetQuery.of(managementService.getTableName(HistoricProcessInstance.class), "START_TIME_")
+                .between(query.getStartTimeFrom(), query.getStartTimeTo())
+                .eq("PROC_DEF_ID_", query.getProcessDefinitionId())
+                .after(query.getCursor())
+                .page(historyService.createNativeHistoricProcessInstanceQuery(), query.getPageSize(),
+                        HistoricProcessInstance::getStartTime, HistoricProcessInstance::getId);
     }
 
     /**
-     * 获取所有的历史任务
+     * 按开始时间游标分页查询历史任务
+     *
+     * @param query 查询条件
      */
     @Override
-    public List<HistoricTaskInstance> getAllHistoryTask() {
-        return historyService.createHistoricTaskInstanceQuery().list();
+    @ReadReplica
+    public CursorPage<HistoricTaskInstance> pageHistoryTask(HistoryQueryDTO query) {
+        return KeysetQuery.of(managementService.getTableName(HistoricTaskInstance.class), "START_TIME_")
+                .between(query.getStartTimeFrom(), query.getStartTimeTo())
+                .eq("PROC_DEF_ID_", query.getProcessDefinitionId())
+                .eq("ASSIGNEE_", query.getAssignee())
+                .after(query.getCursor())
+                .page(historyService.createNativeHistoricTaskInstanceQuery(), query.getPageSize(),
+                        HistoricTaskInstance::getStartTime, HistoricTaskInstance::getId);
     }
 
     /**
-     * 获取所有的活动实例信息
+     * 按开始时间游标分页查询活动实例信息
+     *
+     * @param query 查询条件
      */
     @Override
-    public List<HistoricActivityInstance> getAllActivityIns() {
-        return historyService.createHistoricActivityInstanceQuery().list();
+    @ReadReplica
+    public CursorPage<HistoricActivityInstance> pageActivityIns(HistoryQueryDTO query) {
+        return KeysetQuery.of(managementService.getTableName(HistoricActivityInstance.class), "START_TIME_")
+                .between(query.getStartTimeFrom(), query.getStartTimeTo())
+                .eq("PROC_DEF_ID_", query.getProcessDefinitionId())
+                .eq("ASSIGNEE_", query.getAssignee())
+                .after(query.getCursor())
+                .page(historyService.createNativeHistoricActivityInstanceQuery(), query.getPageSize(),
+                        HistoricActivityInstance::getStartTime, HistoricActivityInstance::getId);
     }
 
     /**
-     * 根据代办人获取其所有的任务信息
+     * 根据代办人获取其所有的任务信息，结果会被缓存，不走只读库，避免复制延迟的旧数据在缓存中长期保留
      *
      * @param assignee 代办人
      */
     @Override
     public List<Task> getAllTaskByAssigneeName(String assignee) {
-        return taskService.createTaskQuery()
+        return taskInboxCache.getByAssignee(assignee, () -> taskService.createTaskQuery()
                 // 代办人姓名
                 .taskAssignee(assignee)
                 // 活动状态
                 .active()
-                .list();
+                .list());
     }
 
     /**
@@ -246,6 +536,7 @@ public class ActServiceImpl implements ActService {
         if (task == null) {
             return false;
         }
+        ActMetricsTags.task(task);
         // TODO 判断评论的人是否正确
         // 添加评论
         taskService.addComment(taskId, task.getProcessInstanceId(), type, message);
@@ -259,21 +550,22 @@ public class ActServiceImpl implements ActService {
      * @param type   任务类型
      */
     @Override
+    @ReadReplica
     public List<Comment> getAllComment(String taskId, String type) {
         return taskService.getTaskComments(taskId, type);
     }
 
     /**
-     * 根据候选人获取任务信息
+     * 根据候选人获取任务信息，结果会被缓存，同样只查主库
      *
      * @param candidate 候选人
      */
     @Override
     public List<Task> getTaskByCandidate(String candidate) {
-        return taskService.createTaskQuery()
+        return taskInboxCache.getByCandidate(candidate, () -> taskService.createTaskQuery()
                 //候选人名称
                 .taskCandidateUser(candidate)
-                .list();
+                .list());
     }
 
     /**
@@ -284,19 +576,73 @@ public class ActServiceImpl implements ActService {
      */
     @Override
     public boolean claimTask(String taskId, String candidate) {
-        Task task = taskService.createTaskQuery()
-                // 任务id
-                .taskId(taskId)
-                // 候选人名称
-                .taskCandidateUser(candidate)
-                .taskUnassigned()
-                .singleResult();
-        if (task == null) {
-            return false;
+        return tryClaimTask(taskId, candidate) == ClaimStatus.CLAIMED;
+    }
+
+    /**
+     * 候选人拾取任务，同一节点内对同一任务的拾取串行执行，并发冲突时返回已被拾取
+     *
+     * @param taskId    任务 id
+     * @param candidate 候选人
+     */
+    @Override
+    public ClaimStatus tryClaimTask(String taskId, String candidate) {
+        Lock lock = claimLocks.get(taskId);
+        lock.lock();
+        try {
+            Task task = taskService.createTaskQuery()
+                    // 任务id
+                    .taskId(taskId)
+                    // 候选人名称
+                    .taskCandidateUser(candidate)
+                    .taskUnassigned()
+                    .singleResult();
+            if (task == null) {
+                Task existing = taskService.createTaskQuery().taskId(taskId).singleResult();
+                if (existing == null || existing.getAssignee() == null) return ClaimStatus.NOT_FOUND;
+                return candidate.equals(existing.getAssignee()) ? ClaimStatus.CLAIMED : ClaimStatus.ALREADY_CLAIMED;
+            }
+            ActMetricsTags.task(task);
+            // 拾取任务
+            taskService.claim(taskId, candidate);
+            return ClaimStatus.CLAIMED;
+        } catch (ActivitiOptimisticLockingException | ActivitiTaskAlreadyClaimedException e) {
+            // 其他节点同时拾取了该任务
+            log.info("任务已被拾取, taskId: {}, candidate: {}", taskId, candidate);
+            return ClaimStatus.ALREADY_CLAIMED;
+        } finally {
+            lock.unlock();
         }
-        // 拾取任务
-        taskService.claim(taskId, candidate);
-        return true;
+    }
+
+    /**
+     * 拾取候选人最早创建的一个未拾取任务，与其他候选人冲突时顺延到下一个
+     *
+     * @param candidate 候选人
+     * @return 拾取到的任务，没有可拾取的任务时返回 null
+     */
+    @Override
+    public Task claimNextTask(String candidate) {
+        int scanSize = actProperties.getClaim().getNextScanSize();
+        // 限制重新扫描的轮数，避免热点候选池下长时间空转
+        for (int round = 0; round < 3; round++) {
+            List<Task> tasks = taskService.createTaskQuery()
+                    .taskCandidateUser(candidate)
+                    .taskUnassigned()
+                    .active()
+                    .orderByTaskCreateTime().asc()
+                    .listPage(0, scanSize);
+            if (tasks.isEmpty()) return null;
+            for (Task task : tasks) {
+                if (tryClaimTask(task.getId(), candidate) == ClaimStatus.CLAIMED) {
+                    // 扫描得到的是拾取前的快照，重新查询以返回代办人、拾取时间
+                    Task claimed = taskService.createTaskQuery().taskId(task.getId()).singleResult();
+                    if (claimed != null) return claimed;
+                }
+            }
+            // 本批全部被他人拾取，重新扫描
+        }
+        return null;
     }
 
     /**
@@ -311,6 +657,7 @@ public class ActServiceImpl implements ActService {
         if (task == null) {
             return false;
         }
+        ActMetricsTags.task(task);
         taskService.delegateTask(taskId, assignee);
         return true;
     }
@@ -327,6 +674,7 @@ public class ActServiceImpl implements ActService {
         if (task == null) {
             return false;
         }
+        ActMetricsTags.task(task);
         taskService.setAssignee(taskId, assignee);
         return true;
     }
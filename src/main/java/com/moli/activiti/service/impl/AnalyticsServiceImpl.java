@@ -0,0 +1,91 @@
+package com.moli.activiti.service.impl;
+
+import com.moli.activiti.analytics.AnalyticsAggregator;
+import com.moli.activiti.analytics.DurationBuckets;
+import com.moli.activiti.common.vo.ActivityStatsVO;
+import com.moli.activiti.common.vo.DecisionStatsVO;
+import com.moli.activiti.datasource.ReadReplica;
+import com.moli.activiti.entity.ActivityStat;
+import com.moli.activiti.entity.DecisionStat;
+import com.moli.activiti.mapper.ActivityStatMapper;
+import com.moli.activiti.mapper.DecisionStatMapper;
+import com.moli.activiti.service.AnalyticsService;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Resource;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author moli
+ * @time 2024-08-16 11:40:25
+ * @description 审批统计查询
+ */
+@Service
+public class AnalyticsServiceImpl implements AnalyticsService {
+
+    @Resource
+    private ActivityStatMapper activityStatMapper;
+
+    @Resource
+    private DecisionStatMapper decisionStatMapper;
+
+    @Resource
+    private AnalyticsAggregator analyticsAggregator;
+
+    @Override
+    @ReadReplica
+    public List<ActivityStatsVO> activityStats(String processDefinitionKey, LocalDate from, LocalDate to) {
+        Map<String, ActivityStatsVO> result = new LinkedHashMap<>();
+        Map<String, Long> totals = new HashMap<>();
+        for (ActivityStat stat : activityStatMapper.sumByActivity(processDefinitionKey, from, to)) {
+            String key = stat.getProcessDefinitionKey() + "|" + stat.getActivityId();
+            ActivityStatsVO vo = result.computeIfAbsent(key, k -> {
+                ActivityStatsVO created = new ActivityStatsVO();
+                created.setProcessDefinitionKey(stat.getProcessDefinitionKey());
+                created.setActivityId(stat.getActivityId());
+                for (String label : DurationBuckets.labels()) created.getHistogram().put(label, 0L);
+                return created;
+            });
+            if (stat.getActivityName() != null) vo.setActivityName(stat.getActivityName());
+            vo.setCount(vo.getCount() + stat.getCnt());
+            vo.setMaxMillis(Math.max(vo.getMaxMillis(), stat.getMaxMillis()));
+            vo.getHistogram().merge(DurationBuckets.label(stat.getDurationBucket()), stat.getCnt(), Long::sum);
+            totals.merge(key, stat.getTotalMillis(), Long::sum);
+        }
+        result.forEach((key, vo) -> vo.setAvgMillis(vo.getCount() == 0 ? 0 : totals.get(key) / vo.getCount()));
+        return new ArrayList<>(result.values());
+    }
+
+    @Override
+    @ReadReplica
+    public List<DecisionStatsVO> decisionStats(String processDefinitionKey, LocalDate from, LocalDate to) {
+        List<DecisionStat> stats = decisionStatMapper.sumByGateway(processDefinitionKey, from, to);
+        Map<String, Long> gatewayTotals = new HashMap<>();
+        for (DecisionStat stat : stats) {
+            gatewayTotals.merge(stat.getProcessDefinitionKey() + "|" + stat.getGatewayId(), stat.getCnt(), Long::sum);
+        }
+        List<DecisionStatsVO> result = new ArrayList<>(stats.size());
+        for (DecisionStat stat : stats) {
+            DecisionStatsVO vo = new DecisionStatsVO();
+            vo.setProcessDefinitionKey(stat.getProcessDefinitionKey());
+            vo.setGatewayId(stat.getGatewayId());
+            vo.setTargetActivityId(stat.getTargetActivityId());
+            vo.setTargetActivityName(stat.getTargetActivityName());
+            vo.setCount(stat.getCnt());
+            long total = gatewayTotals.get(stat.getProcessDefinitionKey() + "|" + stat.getGatewayId());
+            vo.setRate(total == 0 ? 0 : (double) stat.getCnt() / total);
+            result.add(vo);
+        }
+        return result;
+    }
+
+    @Override
+    public long rebuild(LocalDate from, LocalDate to) {
+        return analyticsAggregator.rebuild(from, to);
+    }
+}
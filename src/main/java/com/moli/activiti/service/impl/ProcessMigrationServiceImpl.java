@@ -0,0 +1,265 @@
+package com.moli.activiti.service.impl;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.moli.activiti.cache.ProcessDefinitionCache;
+import com.moli.activiti.cache.TaskInboxCache;
+import com.moli.activiti.command.MigrateProcessInstanceCmd;
+import com.moli.activiti.common.BatchResultDTO;
+import com.moli.activiti.common.MigrationPlanDTO;
+import com.moli.activiti.common.MigrationResultDTO;
+import com.moli.activiti.config.ActProperties;
+import com.moli.activiti.entity.TaskView;
+import com.moli.activiti.service.ProcessMigrationService;
+import com.moli.activiti.service.TaskViewService;
+import lombok.extern.slf4j.Slf4j;
+import org.activiti.engine.ManagementService;
+import org.activiti.engine.RepositoryService;
+import org.activiti.engine.RuntimeService;
+import org.activiti.engine.repository.ProcessDefinition;
+import org.activiti.engine.runtime.ProcessInstance;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+/**
+ * @author moli
+ * @time 2024-08-12 10:52:31
+ * @description 流程实例迁移：按分块并发执行，每个分块一个事务，历史表中未结束的记录与读模型在同一事务中同步更新
+ */
+@Slf4j
+@Service
+public class ProcessMigrationServiceImpl implements ProcessMigrationService {
+
+    @Resource
+    private RuntimeService runtimeService;
+
+    @Resource
+    private RepositoryService repositoryService;
+
+    @Resource
+    private ManagementService managementService;
+
+    @Resource
+    private TaskViewService taskViewService;
+
+    @Resource
+    private ProcessDefinitionCache processDefinitionCache;
+
+    @Resource
+    private TaskInboxCache taskInboxCache;
+
+    @Resource
+    private ActProperties actProperties;
+
+    @Resource
+    private ThreadPoolTaskExecutor actBatchExecutor;
+
+    @Resource
+    private PlatformTransactionManager transactionManager;
+
+    @Resource
+    private DataSource dataSource;
+
+    private TransactionTemplate transactionTemplate;
+
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        namedJdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+    }
+
+    @Override
+    public MigrationResultDTO migrate(MigrationPlanDTO plan) {
+        ProcessDefinition source = processDefinitionCache.getProcessDefinition(plan.getSourceProcessDefinitionId());
+        if (Objects.isNull(source)) throw new IllegalArgumentException("源流程定义不存在");
+        ProcessDefinition target = processDefinitionCache.getProcessDefinition(plan.getTargetProcessDefinitionId());
+        if (Objects.isNull(target)) throw new IllegalArgumentException("目标流程定义不存在");
+        if (Objects.equals(source.getId(), target.getId())) {
+            throw new IllegalArgumentException("源流程定义与目标流程定义相同");
+        }
+        // 只在同一流程的不同版本之间迁移
+        if (!Objects.equals(source.getKey(), target.getKey())) {
+            throw new IllegalArgumentException("源流程定义与目标流程定义不是同一流程: "
+                    + source.getKey() + " -> " + target.getKey());
+        }
+        List<String> instanceIds = runtimeService.createProcessInstanceQuery()
+                .processDefinitionId(plan.getSourceProcessDefinitionId())
+                .list().stream()
+                .map(ProcessInstance::getId)
+                .collect(Collectors.toList());
+        log.info("流程实例迁移{}, {} -> {}, 实例数: {}", plan.isDryRun() ? "校验" : "",
+                plan.getSourceProcessDefinitionId(), target.getId(), instanceIds.size());
+
+        MigrationResultDTO result = new MigrationResultDTO();
+        result.setDryRun(plan.isDryRun());
+        result.setTotal(instanceIds.size());
+
+        int chunkSize = Math.max(1, actProperties.getBatch().getChunkSize());
+        int parallelism = Math.max(1, actProperties.getBatch().getParallelism());
+        CompletionService<List<BatchResultDTO>> completionService =
+                new ExecutorCompletionService<>(actBatchExecutor.getThreadPoolExecutor());
+        int inFlight = 0;
+        int from = 0;
+        Map<Future<List<BatchResultDTO>>, List<String>> chunks = new HashMap<>();
+        while (from < instanceIds.size() || inFlight > 0) {
+            // 控制同时执行的分块数不超过并发数
+            while (from < instanceIds.size() && inFlight < parallelism) {
+                List<String> chunk = instanceIds.subList(from, Math.min(from + chunkSize, instanceIds.size()));
+                try {
+                    chunks.put(completionService.submit(() -> migrateChunk(chunk, target, plan)), chunk);
+                } catch (RejectedExecutionException e) {
+                    // 线程池已满：不再提交，剩余实例全部记为失败，已提交的分块继续等待完成
+                    log.warn("流程实例迁移线程池已满, 剩余未提交实例数: {}", instanceIds.size() - from);
+                    failAll(result, instanceIds.subList(from, instanceIds.size()), "服务繁忙，请稍后重试");
+                    from = instanceIds.size();
+                    break;
+                }
+                inFlight++;
+                from += chunk.size();
+            }
+            if (inFlight == 0) continue;
+            Future<List<BatchResultDTO>> future;
+            try {
+                future = completionService.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("流程实例迁移被中断", e);
+            }
+            inFlight--;
+            List<String> chunk = chunks.remove(future);
+            try {
+                for (BatchResultDTO chunkResult : future.get()) {
+                    if (chunkResult.isSuccess()) {
+                        result.setMigrated(result.getMigrated() + 1);
+                    } else {
+                        result.getFailures().add(chunkResult);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("流程实例迁移被中断", e);
+            } catch (ExecutionException e) {
+                log.error("流程实例迁移分块失败: {}", e.getCause().getMessage());
+                failAll(result, chunk, e.getCause().getMessage());
+            }
+        }
+        if (!plan.isDryRun() && result.getMigrated() > 0) taskInboxCache.clear();
+        log.info("流程实例迁移{}完成, 成功: {}, 失败: {}", plan.isDryRun() ? "校验" : "",
+                result.getMigrated(), result.getFailures().size());
+        return result;
+    }
+
+    private static void failAll(MigrationResultDTO result, List<String> instanceIds, String message) {
+        for (String instanceId : instanceIds) result.getFailures().add(BatchResultDTO.fail(instanceId, message));
+    }
+
+    /**
+     * 一个分块一个事务，引擎命令与读模型更新在同一事务中
+     */
+    private List<BatchResultDTO> migrateChunk(List<String> chunk, ProcessDefinition target, MigrationPlanDTO plan) {
+        MigrateProcessInstanceCmd cmd = new MigrateProcessInstanceCmd(chunk, target.getId(),
+                plan.getActivityMapping(), plan.isDryRun());
+        if (plan.isDryRun()) return managementService.executeCommand(cmd);
+        return transactionTemplate.execute(status -> {
+            List<BatchResultDTO> results = managementService.executeCommand(cmd);
+            List<String> migrated = results.stream()
+                    .filter(BatchResultDTO::isSuccess)
+                    .map(BatchResultDTO::getKey)
+                    .collect(Collectors.toList());
+            if (!migrated.isEmpty()) {
+                updateHistory(migrated, plan.getActivityMapping());
+                updateTaskView(migrated, target, plan.getActivityMapping());
+            }
+            return results;
+        });
+    }
+
+    /**
+     * 未结束的历史活动、历史任务按映射改为目标活动 id，活动结束时引擎按新的活动 id 查找并更新历史记录
+     */
+    private void updateHistory(List<String> processInstanceIds, Map<String, String> activityMapping) {
+        activityMapping.forEach((source, mapped) -> {
+            if (Objects.equals(source, mapped)) return;
+            MapSqlParameterSource params = new MapSqlParameterSource()
+                    .addValue("source", source)
+                    .addValue("mapped", mapped)
+                    .addValue("ids", processInstanceIds);
+            namedJdbcTemplate.update("UPDATE ACT_HI_ACTINST SET ACT_ID_ = :mapped WHERE ACT_ID_ = :source"
+                    + " AND END_TIME_ IS NULL AND PROC_INST_ID_ IN (:ids)", params);
+            namedJdbcTemplate.update("UPDATE ACT_HI_TASKINST SET TASK_DEF_KEY_ = :mapped WHERE TASK_DEF_KEY_ = :source"
+                    + " AND END_TIME_ IS NULL AND PROC_INST_ID_ IN (:ids)", params);
+        });
+    }
+
+    private void updateTaskView(List<String> processInstanceIds, ProcessDefinition target,
+                                Map<String, String> activityMapping) {
+        taskViewService.update(Wrappers.<TaskView>lambdaUpdate()
+                .set(TaskView::getProcessDefinitionId, target.getId())
+                .set(TaskView::getProcessDefinitionKey, target.getKey())
+                .set(TaskView::getProcessName, target.getName())
+                .in(TaskView::getProcessInstanceId, processInstanceIds));
+        activityMapping.forEach((source, mapped) -> taskViewService.update(Wrappers.<TaskView>lambdaUpdate()
+                .set(TaskView::getTaskDefinitionKey, mapped)
+                .eq(TaskView::getTaskDefinitionKey, source)
+                .in(TaskView::getProcessInstanceId, processInstanceIds)));
+    }
+
+    @Override
+    public List<BatchResultDTO> retire(String processDefinitionKey, int keepVersions) {
+        List<ProcessDefinition> definitions = repositoryService.createProcessDefinitionQuery()
+                .processDefinitionKey(processDefinitionKey)
+                .orderByProcessDefinitionVersion().desc()
+                .list();
+        List<BatchResultDTO> results = new ArrayList<>();
+        for (ProcessDefinition definition : definitions.subList(Math.min(Math.max(1, keepVersions), definitions.size()),
+                definitions.size())) {
+            try {
+                results.add(retire(definition));
+            } catch (RuntimeException e) {
+                // 仍被其他数据引用（如外键约束）时删除失败，不影响其他版本
+                log.warn("清理流程定义失败, id: {}, cause: {}", definition.getId(), e.getMessage());
+                results.add(BatchResultDTO.fail(definition.getId(), e.getMessage()));
+            }
+        }
+        processDefinitionCache.invalidate();
+        log.info("清理旧版本流程定义, key: {}, 保留: {}, 处理: {}", processDefinitionKey, keepVersions, results.size());
+        return results;
+    }
+
+    private BatchResultDTO retire(ProcessDefinition definition) {
+        long running = runtimeService.createProcessInstanceQuery().processDefinitionId(definition.getId()).count();
+        if (running > 0) {
+            return BatchResultDTO.fail(definition.getId(), "存在 " + running + " 个运行中的流程实例");
+        }
+        long shared = repositoryService.createProcessDefinitionQuery()
+                .deploymentId(definition.getDeploymentId()).count();
+        if (shared > 1) {
+            // 部署中还有其他流程定义，只挂起当前定义
+            if (!definition.isSuspended()) repositoryService.suspendProcessDefinitionById(definition.getId());
+            return BatchResultDTO.ok(definition.getId(), "suspended");
+        }
+        // 非级联删除，保留历史数据
+        repositoryService.deleteDeployment(definition.getDeploymentId());
+        return BatchResultDTO.ok(definition.getId(), "deleted");
+    }
+}
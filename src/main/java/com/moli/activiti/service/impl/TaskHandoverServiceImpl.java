@@ -0,0 +1,164 @@
+package com.moli.activiti.service.impl;
+
+import com.moli.activiti.async.EngineOverloadedException;
+import com.moli.activiti.command.BulkReassignCmd;
+import com.moli.activiti.common.BatchResultDTO;
+import com.moli.activiti.common.HandoverDTO;
+import com.moli.activiti.common.HandoverProgressDTO;
+import com.moli.activiti.config.ActProperties;
+import com.moli.activiti.service.TaskHandoverService;
+import lombok.extern.slf4j.Slf4j;
+import org.activiti.engine.ManagementService;
+import org.springframework.beans.BeanUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * @author moli
+ * @time 2024-08-09 10:11:48
+ * @description 工作交接，一次查询出原代办人的全部任务 id，按分块在一个命令（一个事务）中批量转办
+ */
+@Slf4j
+@Service
+public class TaskHandoverServiceImpl implements TaskHandoverService {
+
+    /**
+     * 保留的交接任务进度数
+     */
+    private static final int MAX_JOBS = 100;
+
+    @Resource
+    private ManagementService managementService;
+
+    @Resource
+    private ActProperties actProperties;
+
+    @Resource
+    private ThreadPoolTaskExecutor actBatchExecutor;
+
+    @Resource
+    private DataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private final Map<String, HandoverProgressDTO> jobs = Collections.synchronizedMap(
+            new LinkedHashMap<String, HandoverProgressDTO>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, HandoverProgressDTO> eldest) {
+                    return size() > MAX_JOBS;
+                }
+            });
+
+    @PostConstruct
+    public void init() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public String handover(HandoverDTO handover) {
+        if (!StringUtils.hasText(handover.getFromUser()) || !StringUtils.hasText(handover.getToUser())) {
+            throw new IllegalArgumentException("原代办人和接手人不能为空");
+        }
+        if (handover.getFromUser().equals(handover.getToUser())) {
+            throw new IllegalArgumentException("原代办人和接手人不能相同");
+        }
+        // 只查询任务 id，不加载任务实体
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT ID_ FROM ACT_RU_TASK WHERE ASSIGNEE_ = ? AND SUSPENSION_STATE_ = 1");
+        args.add(handover.getFromUser());
+        if (StringUtils.hasText(handover.getProcessDefinitionId())) {
+            sql.append(" AND PROC_DEF_ID_ = ?");
+            args.add(handover.getProcessDefinitionId());
+        }
+        sql.append(" ORDER BY CREATE_TIME_ ASC");
+        List<String> taskIds = jdbcTemplate.queryForList(sql.toString(), String.class, args.toArray());
+
+        HandoverProgressDTO progress = new HandoverProgressDTO();
+        progress.setJobId(UUID.randomUUID().toString().replace("-", ""));
+        progress.setFromUser(handover.getFromUser());
+        progress.setToUser(handover.getToUser());
+        progress.setTotal(taskIds.size());
+        progress.setStartTime(new Date());
+        // 先提交再登记，线程池已满时不留下永远不会完成的交接任务
+        try {
+            actBatchExecutor.execute(() -> run(progress, taskIds, handover));
+        } catch (RejectedExecutionException e) {
+            throw new EngineOverloadedException("batch", "服务繁忙，请稍后重试");
+        }
+        jobs.put(progress.getJobId(), progress);
+        log.info("工作交接, jobId: {}, {} -> {}, 任务数: {}",
+                progress.getJobId(), handover.getFromUser(), handover.getToUser(), taskIds.size());
+        return progress.getJobId();
+    }
+
+    @Override
+    public HandoverProgressDTO progress(String jobId) {
+        HandoverProgressDTO progress = jobs.get(jobId);
+        if (progress == null) return null;
+        HandoverProgressDTO copy = new HandoverProgressDTO();
+        synchronized (progress) {
+            BeanUtils.copyProperties(progress, copy);
+        }
+        return copy;
+    }
+
+    private void run(HandoverProgressDTO progress, List<String> taskIds, HandoverDTO handover) {
+        int size = Math.max(1, actProperties.getBatch().getChunkSize());
+        try {
+            for (int from = 0; from < taskIds.size(); from += size) {
+                List<String> chunk = taskIds.subList(from, Math.min(from + size, taskIds.size()));
+                List<BatchResultDTO> results = reassign(chunk, handover);
+                int failed = (int) results.stream().filter(r -> !r.isSuccess()).count();
+                synchronized (progress) {
+                    progress.setProcessed(progress.getProcessed() + results.size());
+                    progress.setFailed(progress.getFailed() + failed);
+                }
+            }
+        } finally {
+            synchronized (progress) {
+                progress.setDone(true);
+                progress.setEndTime(new Date());
+            }
+            log.info("工作交接完成, jobId: {}, 处理: {}, 失败: {}",
+                    progress.getJobId(), progress.getProcessed(), progress.getFailed());
+        }
+    }
+
+    /**
+     * 整块在一个命令中执行，失败时整块回滚，逐条重试
+     */
+    private List<BatchResultDTO> reassign(List<String> chunk, HandoverDTO handover) {
+        try {
+            return managementService.executeCommand(new BulkReassignCmd(chunk,
+                    handover.getFromUser(), handover.getToUser(), handover.isDelegate()));
+        } catch (Exception e) {
+            log.warn("批量转办失败, 逐条重试, size: {}, cause: {}", chunk.size(), e.getMessage());
+            List<BatchResultDTO> results = new ArrayList<>(chunk.size());
+            for (String taskId : chunk) {
+                try {
+                    results.addAll(managementService.executeCommand(new BulkReassignCmd(
+                            Collections.singletonList(taskId),
+                            handover.getFromUser(), handover.getToUser(), handover.isDelegate())));
+                } catch (Exception ex) {
+                    log.error("转办失败, taskId: {}, cause: {}", taskId, ex.getMessage());
+                    results.add(BatchResultDTO.fail(taskId, ex.getMessage()));
+                }
+            }
+            return results;
+        }
+    }
+}
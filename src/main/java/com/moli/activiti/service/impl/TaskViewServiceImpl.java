@@ -0,0 +1,313 @@
+package com.moli.activiti.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.moli.activiti.cache.ProcessDefinitionCache;
+import com.moli.activiti.common.TaskViewQueryDTO;
+import com.moli.activiti.datasource.ReadReplica;
+import com.moli.activiti.entity.TaskView;
+import com.moli.activiti.entity.TaskViewCandidate;
+import com.moli.activiti.event.TaskChangedEvent;
+import com.moli.activiti.mapper.TaskViewCandidateMapper;
+import com.moli.activiti.mapper.TaskViewMapper;
+import com.moli.activiti.service.TaskViewService;
+import lombok.extern.slf4j.Slf4j;
+import org.activiti.engine.ManagementService;
+import org.activiti.engine.TaskService;
+import org.activiti.engine.repository.ProcessDefinition;
+import org.activiti.engine.task.IdentityLinkType;
+import org.activiti.engine.task.Task;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * @author moli
+ * @time 2024-08-02 10:25:37
+ * @description 待办任务读模型，任务事件在引擎事务内同步写入，写入失败时引擎事务一并回滚，保证与 ACT_RU_TASK 一致
+ */
+@Slf4j
+@Service
+public class TaskViewServiceImpl extends ServiceImpl<TaskViewMapper, TaskView> implements TaskViewService {
+
+    private static final int REBUILD_PAGE_SIZE = 500;
+
+    @Resource
+    private TaskViewCandidateMapper taskViewCandidateMapper;
+
+    @Resource
+    private ProcessDefinitionCache processDefinitionCache;
+
+    @Resource
+    private TaskService taskService;
+
+    @Resource
+    private ManagementService managementService;
+
+    @Resource
+    private PlatformTransactionManager transactionManager;
+
+    @Resource
+    private DataSource dataSource;
+
+    private TransactionTemplate transactionTemplate;
+
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        namedJdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+    }
+
+    /**
+     * 代办人的待办任务
+     */
+    @Override
+    @ReadReplica
+    public List<TaskView> listByAssignee(String assignee, int limit) {
+        return baseMapper.selectList(Wrappers.<TaskView>lambdaQuery()
+                .eq(TaskView::getAssignee, assignee)
+                .orderByDesc(TaskView::getCreateTime)
+                .last("LIMIT " + Math.max(1, limit)));
+    }
+
+    /**
+     * 候选人及其所在组可拾取的任务
+     */
+    @Override
+    @ReadReplica
+    public List<TaskView> listByCandidate(String user, List<String> groups, int limit) {
+        return baseMapper.selectCandidateTasks(user, groups, Math.max(1, limit));
+    }
+
+    /**
+     * 管理端检索
+     */
+    @Override
+    @ReadReplica
+    public IPage<TaskView> search(TaskViewQueryDTO query) {
+        LambdaQueryWrapper<TaskView> wrapper = Wrappers.<TaskView>lambdaQuery()
+                .eq(StringUtils.hasText(query.getProcessDefinitionKey()),
+                        TaskView::getProcessDefinitionKey, query.getProcessDefinitionKey())
+                .eq(StringUtils.hasText(query.getAssignee()), TaskView::getAssignee, query.getAssignee())
+                .and(StringUtils.hasText(query.getKeyword()), w -> w
+                        .like(TaskView::getTaskName, query.getKeyword())
+                        .or().like(TaskView::getProcessName, query.getKeyword())
+                        .or().eq(TaskView::getBusinessKey, query.getKeyword()))
+                .orderByDesc(TaskView::getCreateTime);
+        return baseMapper.selectPage(new Page<>(query.getPageNum(), query.getPageSize()), wrapper);
+    }
+
+    @Override
+    @ReadReplica
+    public long countByAssignee(String assignee) {
+        return baseMapper.selectCount(Wrappers.<TaskView>lambdaQuery().eq(TaskView::getAssignee, assignee));
+    }
+
+    /**
+     * 从运行时任务表全量重建读模型：按任务 id 游标分页，每页一个事务，页内先删除该 id 区间的旧记录再写入，
+     * 重建过程中读模型始终可用；候选人与流程实例信息按页批量加载
+     */
+    @Override
+    public int rebuild() {
+        String taskTable = managementService.getTableName(Task.class);
+        int count = 0;
+        String afterId = "";
+        while (true) {
+            String from = afterId;
+            List<Task> tasks = transactionTemplate.execute(status -> {
+                List<Task> page = taskService.createNativeTaskQuery()
+                        .sql("SELECT * FROM " + taskTable + " WHERE ID_ > #{afterId} ORDER BY ID_ ASC")
+                        .parameter("afterId", from)
+                        .listPage(0, REBUILD_PAGE_SIZE);
+                // 最后一页的区间不设上界，同时清理已不存在的任务
+                String to = page.size() < REBUILD_PAGE_SIZE ? null : page.get(page.size() - 1).getId();
+                rebuildPage(page, from, to);
+                return page;
+            });
+            count += tasks.size();
+            if (tasks.size() < REBUILD_PAGE_SIZE) break;
+            afterId = tasks.get(tasks.size() - 1).getId();
+        }
+        log.info("待办读模型重建完成, 任务数: {}", count);
+        return count;
+    }
+
+    private void rebuildPage(List<Task> tasks, String from, String to) {
+        taskViewCandidateMapper.delete(Wrappers.<TaskViewCandidate>lambdaQuery()
+                .gt(TaskViewCandidate::getTaskId, from)
+                .le(to != null, TaskViewCandidate::getTaskId, to));
+        baseMapper.delete(Wrappers.<TaskView>lambdaQuery()
+                .gt(TaskView::getTaskId, from)
+                .le(to != null, TaskView::getTaskId, to));
+        if (tasks.isEmpty()) return;
+        Map<String, Set<String>> users = new HashMap<>();
+        Map<String, Set<String>> groups = new HashMap<>();
+        namedJdbcTemplate.query("SELECT TASK_ID_, USER_ID_, GROUP_ID_ FROM ACT_RU_IDENTITYLINK"
+                        + " WHERE TYPE_ = :type AND TASK_ID_ IN (:ids)",
+                new MapSqlParameterSource()
+                        .addValue("type", IdentityLinkType.CANDIDATE)
+                        .addValue("ids", tasks.stream().map(Task::getId).collect(Collectors.toList())),
+                rs -> {
+                    String taskId = rs.getString(1);
+                    if (rs.getString(2) != null) users.computeIfAbsent(taskId, k -> new LinkedHashSet<>()).add(rs.getString(2));
+                    if (rs.getString(3) != null) groups.computeIfAbsent(taskId, k -> new LinkedHashSet<>()).add(rs.getString(3));
+                });
+        Map<String, String[]> instances = new HashMap<>();
+        namedJdbcTemplate.query("SELECT ID_, BUSINESS_KEY_, START_USER_ID_ FROM ACT_RU_EXECUTION WHERE ID_ IN (:ids)",
+                new MapSqlParameterSource("ids", tasks.stream()
+                        .map(Task::getProcessInstanceId)
+                        .filter(Objects::nonNull)
+                        .distinct()
+                        .collect(Collectors.toList())),
+                rs -> {
+                    instances.put(rs.getString(1), new String[]{rs.getString(2), rs.getString(3)});
+                });
+        for (Task task : tasks) {
+            Set<String> taskUsers = users.getOrDefault(task.getId(), Collections.emptySet());
+            Set<String> taskGroups = groups.getOrDefault(task.getId(), Collections.emptySet());
+            TaskView view = toView(task.getId(), task.getName(), task.getTaskDefinitionKey(), task.getAssignee(),
+                    task.getProcessInstanceId(), task.getProcessDefinitionId(), task.getCreateTime(),
+                    task.getDueDate(), taskUsers, taskGroups);
+            String[] instance = instances.get(task.getProcessInstanceId());
+            if (instance != null) {
+                view.setBusinessKey(instance[0]);
+                view.setStartUserId(instance[1]);
+            }
+            insertWithCandidates(view, taskUsers, taskGroups);
+        }
+    }
+
+    /**
+     * 在引擎事务内同步维护读模型
+     */
+    @EventListener
+    public void onTaskChanged(TaskChangedEvent event) {
+        String taskId = event.getTaskId();
+        switch (event.getType()) {
+            case CREATED:
+                TaskView view = toView(taskId, event.getName(), event.getTaskDefinitionKey(), event.getAssignee(),
+                        event.getProcessInstanceId(), event.getProcessDefinitionId(), event.getCreateTime(),
+                        event.getDueDate(), event.getCandidateUsers(), event.getCandidateGroups());
+                view.setBusinessKey(event.getBusinessKey());
+                view.setStartUserId(event.getStartUserId());
+                // 创建过程中的候选人已包含在快照中，不会单独发布 CANDIDATE_ADDED
+                insertWithCandidates(view, event.getCandidateUsers(), event.getCandidateGroups());
+                break;
+            case ASSIGNED:
+                baseMapper.update(null, Wrappers.<TaskView>lambdaUpdate()
+                        .set(TaskView::getAssignee, event.getAssignee())
+                        .eq(TaskView::getTaskId, taskId));
+                break;
+            case DUE_DATE_CHANGED:
+                baseMapper.update(null, Wrappers.<TaskView>lambdaUpdate()
+                        .set(TaskView::getDueDate, event.getDueDate())
+                        .eq(TaskView::getTaskId, taskId));
+                break;
+            case COMPLETED:
+            case DELETED:
+                taskViewCandidateMapper.delete(Wrappers.<TaskViewCandidate>lambdaQuery()
+                        .eq(TaskViewCandidate::getTaskId, taskId));
+                baseMapper.deleteById(taskId);
+                break;
+            case CANDIDATE_ADDED:
+                for (TaskViewCandidate candidate : candidates(taskId, event.getCandidateUsers(), event.getCandidateGroups())) {
+                    if (!exists(candidate)) taskViewCandidateMapper.insert(candidate);
+                }
+                refreshCandidateColumns(taskId);
+                break;
+            case CANDIDATE_REMOVED:
+                for (TaskViewCandidate candidate : candidates(taskId, event.getCandidateUsers(), event.getCandidateGroups())) {
+                    taskViewCandidateMapper.delete(Wrappers.lambdaQuery(candidate));
+                }
+                refreshCandidateColumns(taskId);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private TaskView toView(String taskId, String name, String taskDefinitionKey, String assignee,
+                            String processInstanceId, String processDefinitionId,
+                            Date createTime, Date dueDate,
+                            Collection<String> users, Collection<String> groups) {
+        TaskView view = new TaskView();
+        view.setTaskId(taskId);
+        view.setTaskName(name);
+        view.setTaskDefinitionKey(taskDefinitionKey);
+        view.setAssignee(assignee);
+        view.setCandidateUsers(String.join(",", users));
+        view.setCandidateGroups(String.join(",", groups));
+        view.setProcessInstanceId(processInstanceId);
+        view.setProcessDefinitionId(processDefinitionId);
+        view.setCreateTime(createTime);
+        view.setDueDate(dueDate);
+        ProcessDefinition definition = processDefinitionId == null
+                ? null : processDefinitionCache.getProcessDefinition(processDefinitionId);
+        if (definition != null) {
+            view.setProcessDefinitionKey(definition.getKey());
+            view.setProcessName(definition.getName());
+        }
+        return view;
+    }
+
+    private void insertWithCandidates(TaskView view, Collection<String> users, Collection<String> groups) {
+        baseMapper.insert(view);
+        for (TaskViewCandidate candidate : candidates(view.getTaskId(), users, groups)) {
+            taskViewCandidateMapper.insert(candidate);
+        }
+    }
+
+    private List<TaskViewCandidate> candidates(String taskId, Collection<String> users, Collection<String> groups) {
+        List<TaskViewCandidate> candidates = new ArrayList<>();
+        users.forEach(user -> candidates.add(new TaskViewCandidate(TaskViewCandidate.USER, user, taskId)));
+        groups.forEach(group -> candidates.add(new TaskViewCandidate(TaskViewCandidate.GROUP, group, taskId)));
+        return candidates;
+    }
+
+    private boolean exists(TaskViewCandidate candidate) {
+        return taskViewCandidateMapper.selectCount(Wrappers.lambdaQuery(candidate)) > 0;
+    }
+
+    /**
+     * 同步展示用的候选人 / 候选组列
+     */
+    private void refreshCandidateColumns(String taskId) {
+        List<TaskViewCandidate> candidates = taskViewCandidateMapper.selectList(
+                Wrappers.<TaskViewCandidate>lambdaQuery().eq(TaskViewCandidate::getTaskId, taskId));
+        baseMapper.update(null, Wrappers.<TaskView>lambdaUpdate()
+                .set(TaskView::getCandidateUsers, join(candidates, TaskViewCandidate.USER))
+                .set(TaskView::getCandidateGroups, join(candidates, TaskViewCandidate.GROUP))
+                .eq(TaskView::getTaskId, taskId));
+    }
+
+    private static String join(List<TaskViewCandidate> candidates, String type) {
+        return candidates.stream()
+                .filter(c -> type.equals(c.getIdentityType()))
+                .map(TaskViewCandidate::getIdentity)
+                .collect(Collectors.joining(","));
+    }
+}
@@ -0,0 +1,85 @@
+package com.moli.activiti.service.support;
+
+import com.moli.activiti.common.BatchResultDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * @author moli
+ * @time 2024-07-18 10:31:19
+ * @description 分块事务执行器，每个分块一个事务，分块失败时逐条重试，避免单条失败回滚整批
+ */
+@Slf4j
+@Component
+public class ChunkTransactionExecutor {
+
+    @Resource
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 分块执行
+     *
+     * @param items     待处理记录
+     * @param chunkSize 分块大小
+     * @param keyFn     记录标识
+     * @param action    单条处理逻辑，返回值写入结果的 data
+     */
+    public <T> List<BatchResultDTO> execute(List<T> items, int chunkSize,
+                                            Function<T, String> keyFn,
+                                            Function<T, String> action) {
+        List<BatchResultDTO> results = new ArrayList<>(items.size());
+        int size = Math.max(1, chunkSize);
+        for (int from = 0; from < items.size(); from += size) {
+            List<T> chunk = items.subList(from, Math.min(from + size, items.size()));
+            results.addAll(executeChunk(chunk, keyFn, action));
+        }
+        return results;
+    }
+
+    /**
+     * 执行单个分块
+     */
+    public <T> List<BatchResultDTO> executeChunk(List<T> chunk,
+                                                 Function<T, String> keyFn,
+                                                 Function<T, String> action) {
+        try {
+            return transactionTemplate.execute(status -> {
+                List<BatchResultDTO> chunkResults = new ArrayList<>(chunk.size());
+                for (T item : chunk) {
+                    chunkResults.add(BatchResultDTO.ok(keyFn.apply(item), action.apply(item)));
+                }
+                return chunkResults;
+            });
+        } catch (Exception e) {
+            // 整个分块已回滚，逐条重试找出失败的记录
+            log.warn("分块事务失败, 逐条重试, size: {}, cause: {}", chunk.size(), e.getMessage());
+            List<BatchResultDTO> chunkResults = new ArrayList<>(chunk.size());
+            for (T item : chunk) {
+                String key = keyFn.apply(item);
+                try {
+                    String data = transactionTemplate.execute(status -> action.apply(item));
+                    chunkResults.add(BatchResultDTO.ok(key, data));
+                } catch (Exception ex) {
+                    log.error("记录处理失败, key: {}, cause: {}", key, ex.getMessage());
+                    chunkResults.add(BatchResultDTO.fail(key, ex.getMessage()));
+                }
+            }
+            return chunkResults;
+        }
+    }
+}
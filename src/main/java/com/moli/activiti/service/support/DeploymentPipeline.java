@@ -0,0 +1,223 @@
+package com.moli.activiti.service.support;
+
+import com.moli.activiti.common.BatchResultDTO;
+import com.moli.activiti.config.ActProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.activiti.bpmn.converter.BpmnXMLConverter;
+import org.activiti.bpmn.model.BpmnModel;
+import org.activiti.bpmn.model.Process;
+import org.activiti.engine.RepositoryService;
+import org.activiti.engine.repository.Deployment;
+import org.activiti.engine.repository.DeploymentBuilder;
+import org.activiti.engine.repository.ProcessDefinition;
+import org.activiti.validation.ProcessValidator;
+import org.activiti.validation.ProcessValidatorFactory;
+import org.activiti.validation.ValidationError;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.annotation.Resource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * @author moli
+ * @time 2024-08-19 10:06:42
+ * @description 流程部署流水线：读取压缩包时限制大小，在数据库事务之外并行解析、校验 BPMN，
+ * 按内容摘要跳过与最新版本相同的流程文件，只部署有变化的部分
+ */
+@Slf4j
+@Component
+public class DeploymentPipeline {
+
+    public static final String UNCHANGED = "unchanged";
+
+    private static final String[] BPMN_SUFFIXES = {".bpmn20.xml", ".bpmn"};
+
+    @Resource
+    private RepositoryService repositoryService;
+
+    @Resource
+    private ActProperties actProperties;
+
+    /**
+     * 部署多个压缩包，key 为文件名，data 为部署 id，未变化时 message 为 {@link #UNCHANGED}
+     */
+    public List<BatchResultDTO> deploy(List<MultipartFile> files, String actName) {
+        // 读取与解析不涉及数据库，全部完成后再逐个部署
+        List<Archive> archives = files.parallelStream().map(this::prepare).collect(Collectors.toList());
+        List<BatchResultDTO> results = new ArrayList<>(archives.size());
+        for (Archive archive : archives) {
+            if (archive.error != null) {
+                results.add(BatchResultDTO.fail(archive.fileName, archive.error));
+                continue;
+            }
+            try {
+                results.add(deploy(archive, actName));
+            } catch (Exception e) {
+                log.error("部署失败, file: {}, cause: {}", archive.fileName, e.getMessage());
+                results.add(BatchResultDTO.fail(archive.fileName, e.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 读取压缩包并解析校验 BPMN
+     */
+    private Archive prepare(MultipartFile file) {
+        Archive archive = new Archive(file.getOriginalFilename());
+        ActProperties.Deploy config = actProperties.getDeploy();
+        try {
+            if (file.isEmpty()) throw new IllegalArgumentException("部署压缩包不能为空");
+            if (file.getSize() > config.getMaxArchiveSize()) {
+                throw new IllegalArgumentException("部署压缩包超过 " + config.getMaxArchiveSize() + " 字节");
+            }
+            read(file, archive, config);
+            if (archive.resources.keySet().stream().noneMatch(DeploymentPipeline::isBpmn)) {
+                throw new IllegalArgumentException("部署压缩包中没有流程文件");
+            }
+            archive.resources.entrySet().parallelStream()
+                    .filter(entry -> isBpmn(entry.getKey()))
+                    .forEach(entry -> archive.models.put(entry.getKey(), parse(entry.getKey(), entry.getValue())));
+        } catch (Exception e) {
+            archive.error = e.getMessage();
+        }
+        return archive;
+    }
+
+    private void read(MultipartFile file, Archive archive, ActProperties.Deploy config) throws IOException {
+        long total = 0;
+        try (ZipInputStream zip = new ZipInputStream(file.getInputStream())) {
+            ZipEntry entry;
+            byte[] buffer = new byte[StreamUtils.BUFFER_SIZE];
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.isDirectory()) continue;
+                if (archive.resources.size() >= config.getMaxEntries()) {
+                    throw new IllegalArgumentException("部署压缩包文件数超过 " + config.getMaxEntries());
+                }
+                // 按实际解压字节计数，不信任压缩包中记录的大小
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                int read;
+                while ((read = zip.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                    total += read;
+                    if (out.size() > config.getMaxResourceSize() || total > config.getMaxUncompressedSize()) {
+                        throw new IllegalArgumentException("部署压缩包解压后过大: " + entry.getName());
+                    }
+                }
+                archive.resources.put(entry.getName(), out.toByteArray());
+            }
+        }
+    }
+
+    private BpmnModel parse(String name, byte[] bytes) {
+        BpmnModel model;
+        try {
+            model = new BpmnXMLConverter().convertToBpmnModel(() -> new ByteArrayInputStream(bytes), true, false);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("流程文件解析失败: " + name + ", " + e.getMessage());
+        }
+        ProcessValidator validator = new ProcessValidatorFactory().createDefaultProcessValidator();
+        List<String> errors = validator.validate(model).stream()
+                .filter(error -> !error.isWarning())
+                .map(ValidationError::toString)
+                .collect(Collectors.toList());
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException("流程文件校验失败: " + name + ", " + String.join("; ", errors));
+        }
+        return model;
+    }
+
+    private BatchResultDTO deploy(Archive archive, String actName) throws IOException {
+        // 逐个流程文件与各流程最新版本比较，最新版本可能来自其他部署，不能按整个压缩包判断
+        Map<String, byte[]> changed = new LinkedHashMap<>();
+        for (Map.Entry<String, BpmnModel> entry : archive.models.entrySet()) {
+            byte[] bytes = archive.resources.get(entry.getKey());
+            if (isChanged(entry.getValue(), bytes)) changed.put(entry.getKey(), bytes);
+        }
+        if (changed.isEmpty()) {
+            log.info("流程文件均未变化, 跳过, file: {}", archive.fileName);
+            return new BatchResultDTO(archive.fileName, true, UNCHANGED, null);
+        }
+
+        DeploymentBuilder builder = repositoryService.createDeployment()
+                .name(actName != null ? actName : archive.fileName)
+                // 已在事务外完成校验
+                .disableSchemaValidation()
+                .disableBpmnValidation();
+        changed.forEach(builder::addBytes);
+        archive.resources.forEach((name, bytes) -> {
+            if (!isBpmn(name)) builder.addBytes(name, bytes);
+        });
+        Deployment deployment = builder.deploy();
+        log.info("部署完成, file: {}, deploymentId: {}, 变化的流程文件: {}",
+                archive.fileName, deployment.getId(), changed.keySet());
+        return BatchResultDTO.ok(archive.fileName, deployment.getId());
+    }
+
+    /**
+     * 文件中任一流程与其最新版本的流程文件内容不同即视为变化
+     */
+    private boolean isChanged(BpmnModel model, byte[] bytes) throws IOException {
+        String hash = sha256(bytes);
+        for (Process process : model.getProcesses()) {
+            ProcessDefinition latest = repositoryService.createProcessDefinitionQuery()
+                    .processDefinitionKey(process.getId())
+                    .latestVersion()
+                    .singleResult();
+            if (latest == null) return true;
+            try (InputStream in = repositoryService.getResourceAsStream(latest.getDeploymentId(),
+                    latest.getResourceName())) {
+                if (!hash.equals(sha256(StreamUtils.copyToByteArray(in)))) return true;
+            }
+        }
+        return false;
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : digest.digest(bytes)) hex.append(String.format("%02x", b));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean isBpmn(String name) {
+        for (String suffix : BPMN_SUFFIXES) {
+            if (name.endsWith(suffix)) return true;
+        }
+        return false;
+    }
+
+    private static class Archive {
+
+        private final String fileName;
+
+        private final Map<String, byte[]> resources = new LinkedHashMap<>();
+
+        private final Map<String, BpmnModel> models = new ConcurrentHashMap<>();
+
+        private String error;
+
+        Archive(String fileName) {
+            this.fileName = fileName;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.moli.activiti.service.support;
+
+import com.moli.activiti.common.CursorPage;
+import org.activiti.engine.query.NativeQuery;
+import org.springframework.util.StringUtils;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * @author moli
+ * @time 2024-07-19 10:02:17
+ * @description 基于 (时间列, ID_) 的游标分页 native 查询构造器，深分页时不会像 offset 一样退化
+ */
+public class KeysetQuery {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private final String table;
+
+    private final String timeColumn;
+
+    private final StringBuilder where = new StringBuilder();
+
+    private final Map<String, Object> parameters = new HashMap<>();
+
+    private KeysetQuery(String table, String timeColumn) {
+        this.table = table;
+        this.timeColumn = timeColumn;
+    }
+
+    public static KeysetQuery of(String table, String timeColumn) {
+        return new KeysetQuery(table, timeColumn);
+    }
+
+    /**
+     * 等值条件，值为空时忽略
+     */
+    public KeysetQuery eq(String column, String value) {
+        if (StringUtils.hasText(value)) {
+            return condition(column + " = #{" + param(column) + "}", param(column), value);
+        }
+        return this;
+    }
+
+    /**
+     * 时间范围 [from, to)，为空的一端忽略
+     */
+    public KeysetQuery between(Date from, Date to) {
+        if (from != null) condition(timeColumn + " >= #{timeFrom}", "timeFrom", from);
+        if (to != null) condition(timeColumn + " < #{timeTo}", "timeTo", to);
+        return this;
+    }
+
+    /**
+     * 从游标之后开始查询
+     */
+    public KeysetQuery after(String cursor) {
+        if (!StringUtils.hasText(cursor)) return this;
+        int split = cursor.indexOf('_');
+        if (split <= 0 || split == cursor.length() - 1) {
+            throw new IllegalArgumentException("非法的游标: " + cursor);
+        }
+        Date cursorTime;
+        try {
+            cursorTime = new Date(Long.parseLong(cursor.substring(0, split)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("非法的游标: " + cursor, e);
+        }
+        parameters.put("cursorTime", cursorTime);
+        parameters.put("cursorId", cursor.substring(split + 1));
+        where.append(" AND (").append(timeColumn).append(" > #{cursorTime} OR (")
+                .append(timeColumn).append(" = #{cursorTime} AND ID_ > #{cursorId}))");
+        return this;
+    }
+
+    public String sql() {
+        return "SELECT * FROM " + table + " WHERE 1 = 1" + where
+                + " ORDER BY " + timeColumn + " ASC, ID_ ASC";
+    }
+
+    /**
+     * 多查一条用于判断是否还有下一页
+     */
+    public <U> CursorPage<U> page(NativeQuery<?, U> nativeQuery, Integer pageSize,
+                                  Function<U, Date> timeFn, Function<U, String> idFn) {
+        int size = normalize(pageSize);
+        nativeQuery.sql(sql());
+        parameters.forEach(nativeQuery::parameter);
+        List<U> rows = nativeQuery.listPage(0, size + 1);
+        boolean hasMore = rows.size() > size;
+        if (hasMore) rows = rows.subList(0, size);
+        String nextCursor = null;
+        if (hasMore) {
+            U last = rows.get(rows.size() - 1);
+            nextCursor = encode(timeFn.apply(last), idFn.apply(last));
+        }
+        return new CursorPage<>(rows, nextCursor, hasMore);
+    }
+
+    public static String encode(Date time, String id) {
+        return time.getTime() + "_" + id;
+    }
+
+    public static int normalize(Integer pageSize) {
+        if (pageSize == null || pageSize <= 0) return DEFAULT_PAGE_SIZE;
+        return Math.min(pageSize, MAX_PAGE_SIZE);
+    }
+
+    private KeysetQuery condition(String sql, String name, Object value) {
+        where.append(" AND ").append(sql);
+        parameters.put(name, value);
+        return this;
+    }
+
+    private static String param(String column) {
+        return column.replace("_", "").toLowerCase();
+    }
+}
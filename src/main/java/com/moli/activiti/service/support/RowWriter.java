@@ -0,0 +1,120 @@
+package com.moli.activiti.service.support;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.moli.activiti.common.ExportFormat;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * @author moli
+ * @time 2024-07-19 15:31:08
+ * @description 逐行写出查询结果，不在内存中累积数据
+ */
+public interface RowWriter extends Closeable {
+
+    void header(String[] columns) throws IOException;
+
+    void row(Object[] values) throws IOException;
+
+    /**
+     * 按格式创建写出器，调用方负责关闭
+     */
+    static RowWriter create(ExportFormat format, OutputStream out, ObjectMapper objectMapper) throws IOException {
+        if (format == ExportFormat.CSV) return new CsvRowWriter(out);
+        return new NdjsonRowWriter(out, objectMapper);
+    }
+
+    /**
+     * 每行一个 json 对象
+     */
+    class NdjsonRowWriter implements RowWriter {
+
+        private final JsonGenerator generator;
+
+        private String[] columns;
+
+        NdjsonRowWriter(OutputStream out, ObjectMapper objectMapper) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+            this.generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void header(String[] columns) {
+            this.columns = columns;
+        }
+
+        @Override
+        public void row(Object[] values) throws IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < columns.length; i++) {
+                generator.writeFieldName(columns[i]);
+                Object value = values[i];
+                if (value instanceof Date) {
+                    generator.writeNumber(((Date) value).getTime());
+                } else {
+                    generator.writeObject(value);
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.close();
+        }
+    }
+
+    /**
+     * csv，带 BOM 便于 Excel 识别中文
+     */
+    class CsvRowWriter implements RowWriter {
+
+        private final BufferedWriter writer;
+
+        private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+
+        CsvRowWriter(OutputStream out) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            this.writer.write('\uFEFF');
+        }
+
+        @Override
+        public void header(String[] columns) throws IOException {
+            row(columns);
+        }
+
+        @Override
+        public void row(Object[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) writer.write(',');
+                writer.write(escape(values[i]));
+            }
+            writer.write("\r\n");
+        }
+
+        private String escape(Object value) {
+            if (value == null) return "";
+            String text = value instanceof Date ? dateFormat.format((Date) value) : value.toString();
+            if (text.indexOf(',') < 0 && text.indexOf('"') < 0
+                    && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+                return text;
+            }
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+}
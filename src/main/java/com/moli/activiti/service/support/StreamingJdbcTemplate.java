@@ -0,0 +1,31 @@
+package com.moli.activiti.service.support;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * @author moli
+ * @time 2024-08-20 16:12:05
+ * @description 大结果集逐行读取：按实际连接的驱动设置 fetchSize，mysql 驱动只在 Integer.MIN_VALUE 时流式读取，
+ * 其他驱动（如 H2）不接受负数，使用正数 fetchSize；不需要在连接串中开启 useCursorFetch
+ */
+public class StreamingJdbcTemplate extends JdbcTemplate {
+
+    private static final String MYSQL_URL_PREFIX = "jdbc:mysql:";
+
+    public StreamingJdbcTemplate(DataSource dataSource, int fetchSize) {
+        super(dataSource);
+        setFetchSize(fetchSize);
+    }
+
+    @Override
+    protected void applyStatementSettings(Statement stmt) throws SQLException {
+        super.applyStatementSettings(stmt);
+        // 读写分离时同一数据源可能路由到不同库，按语句所在连接判断
+        String url = stmt.getConnection().getMetaData().getURL();
+        if (url != null && url.startsWith(MYSQL_URL_PREFIX)) stmt.setFetchSize(Integer.MIN_VALUE);
+    }
+}
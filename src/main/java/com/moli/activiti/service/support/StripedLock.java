@@ -0,0 +1,30 @@
+package com.moli.activiti.service.support;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @author moli
+ * @time 2024-07-25 09:40:44
+ * @description 分段锁，相同 key 落在同一把锁上，锁的数量固定
+ */
+public class StripedLock {
+
+    private final Lock[] locks;
+
+    public StripedLock(int stripes) {
+        // 取不小于 stripes 的 2 的幂，便于位运算取模
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        locks = new Lock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public Lock get(String key) {
+        int hash = key.hashCode();
+        // 扰动高位，避免相近 id 集中在少数锁上
+        hash ^= (hash >>> 16);
+        return locks[hash & (locks.length - 1)];
+    }
+}
@@ -0,0 +1,24 @@
+package com.moli.activiti.sla;
+
+/**
+ * @author moli
+ * @time 2024-08-14 09:31:26
+ * @description 任务超时后的升级处理方式
+ */
+public enum SlaAction {
+
+    /**
+     * 提醒代办人及配置的升级人，期限顺延
+     */
+    NOTIFY,
+
+    /**
+     * 转给配置的升级人，期限重新计算
+     */
+    REASSIGN,
+
+    /**
+     * 以配置的变量自动完成任务
+     */
+    COMPLETE
+}
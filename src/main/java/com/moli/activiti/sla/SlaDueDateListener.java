@@ -0,0 +1,56 @@
+package com.moli.activiti.sla;
+
+import com.moli.activiti.config.ActProperties;
+import org.activiti.engine.RuntimeService;
+import org.activiti.engine.delegate.event.ActivitiEntityEvent;
+import org.activiti.engine.delegate.event.ActivitiEvent;
+import org.activiti.engine.delegate.event.ActivitiEventListener;
+import org.activiti.engine.delegate.event.ActivitiEventType;
+import org.activiti.engine.impl.context.Context;
+import org.activiti.engine.impl.persistence.entity.TaskEntity;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.Date;
+
+/**
+ * @author moli
+ * @time 2024-08-14 09:45:02
+ * @description 任务创建时按任务定义 key 的 SLA 规则写入到期时间，与任务在同一事务中落库；
+ * 需先于 {@link com.moli.activiti.event.TaskEventListener} 注册，使任务事件携带到期时间
+ */
+@Component
+public class SlaDueDateListener implements ActivitiEventListener {
+
+    @Resource
+    private RuntimeService runtimeService;
+
+    @Resource
+    private ActProperties actProperties;
+
+    @PostConstruct
+    public void register() {
+        if (!actProperties.getSla().isEnabled()) return;
+        runtimeService.addEventListener(this, ActivitiEventType.TASK_CREATED);
+    }
+
+    @Override
+    public void onEvent(ActivitiEvent event) {
+        if (!(event instanceof ActivitiEntityEvent)) return;
+        TaskEntity task = (TaskEntity) ((ActivitiEntityEvent) event).getEntity();
+        // 流程图中已配置到期时间的以流程图为准
+        if (task.getDueDate() != null || task.getTaskDefinitionKey() == null) return;
+        ActProperties.Sla.Rule rule = actProperties.getSla().getRules().get(task.getTaskDefinitionKey());
+        if (rule == null) return;
+        Date created = task.getCreateTime() != null ? task.getCreateTime() : new Date();
+        Date dueDate = new Date(created.getTime() + rule.getDuration().toMillis());
+        task.setDueDate(dueDate);
+        Context.getCommandContext().getHistoryManager().recordTaskDueDateChange(task.getId(), dueDate);
+    }
+
+    @Override
+    public boolean isFailOnException() {
+        return false;
+    }
+}
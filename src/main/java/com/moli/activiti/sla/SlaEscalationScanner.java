@@ -0,0 +1,201 @@
+package com.moli.activiti.sla;
+
+import com.moli.activiti.common.BatchResultDTO;
+import com.moli.activiti.config.ActProperties;
+import com.moli.activiti.event.TaskChangeType;
+import com.moli.activiti.event.TaskChangedEvent;
+import com.moli.activiti.notification.TaskNotificationHub;
+import com.moli.activiti.service.support.ChunkTransactionExecutor;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.activiti.engine.TaskService;
+import org.activiti.engine.task.Task;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * @author moli
+ * @time 2024-08-14 10:12:37
+ * @description 超时任务扫描，按 DUE_DATE_ 索引查询已到期的任务，分块事务内执行升级处理，
+ * 处理后顺延到期时间或完成任务，不做全表扫描；多节点同时扫描时以任务行锁互斥，同一到期只处理一次
+ */
+@Slf4j
+@Component
+public class SlaEscalationScanner {
+
+    /**
+     * 已被其他节点处理
+     */
+    private static final String SKIPPED = "skipped";
+
+    @Resource
+    private TaskService taskService;
+
+    @Resource
+    private ChunkTransactionExecutor chunkTransactionExecutor;
+
+    @Resource
+    private TaskNotificationHub taskNotificationHub;
+
+    @Resource
+    private ActProperties actProperties;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private DataSource dataSource;
+
+    @Resource
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void init() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * 为规则生效前创建、尚无到期时间的任务补写到期时间
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        ActProperties.Sla config = actProperties.getSla();
+        if (!config.isEnabled()) return;
+        for (Map.Entry<String, ActProperties.Sla.Rule> entry : config.getRules().entrySet()) {
+            long millis = entry.getValue().getDuration().toMillis();
+            int count = 0;
+            while (true) {
+                List<Task> tasks = taskService.createTaskQuery()
+                        .taskDefinitionKey(entry.getKey())
+                        .withoutDueDate()
+                        .listPage(0, config.getBatchSize());
+                if (tasks.isEmpty()) break;
+                List<BatchResultDTO> results = chunkTransactionExecutor.executeChunk(tasks, Task::getId, task -> {
+                    setDueDate(task, task.getAssignee(), new Date(task.getCreateTime().getTime() + millis));
+                    return null;
+                });
+                count += tasks.size();
+                if (results.stream().anyMatch(r -> !r.isSuccess()) || tasks.size() < config.getBatchSize()) break;
+            }
+            if (count > 0) log.info("补写任务到期时间, taskDefinitionKey: {}, 任务数: {}", entry.getKey(), count);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${act.sla.scan-interval:60000}")
+    public void scan() {
+        ActProperties.Sla config = actProperties.getSla();
+        if (!config.isEnabled()) return;
+        int batches = 0;
+        int escalated = 0;
+        int skipped = 0;
+        Set<String> failed = new HashSet<>();
+        for (Map.Entry<String, ActProperties.Sla.Rule> entry : config.getRules().entrySet()) {
+            while (batches < config.getMaxBatchesPerRun()) {
+                // 升级后的任务到期时间已顺延或已完成，每次都从头取；失败的任务留待下一轮
+                List<Task> tasks = taskService.createTaskQuery()
+                        .taskDefinitionKey(entry.getKey())
+                        .taskDueBefore(new Date())
+                        .orderByDueDate().asc()
+                        .listPage(0, config.getBatchSize() + failed.size())
+                        .stream()
+                        .filter(task -> !failed.contains(task.getId()))
+                        .limit(config.getBatchSize())
+                        .collect(Collectors.toList());
+                if (tasks.isEmpty()) break;
+                batches++;
+                List<BatchResultDTO> results = chunkTransactionExecutor.executeChunk(tasks, Task::getId,
+                        task -> escalate(task, entry.getValue()));
+                for (BatchResultDTO result : results) {
+                    if (result.isSuccess() && SKIPPED.equals(result.getData())) {
+                        skipped++;
+                    } else if (result.isSuccess()) {
+                        escalated++;
+                    } else {
+                        failed.add(result.getKey());
+                    }
+                }
+                if (tasks.size() < config.getBatchSize()) break;
+            }
+        }
+        if (escalated > 0 || skipped > 0 || !failed.isEmpty()) {
+            log.info("超时任务升级, 成功: {}, 已由其他节点处理: {}, 失败: {}", escalated, skipped, failed.size());
+        }
+    }
+
+    /**
+     * 在事务中执行单个任务的升级
+     */
+    private String escalate(Task task, ActProperties.Sla.Rule rule) {
+        long now = System.currentTimeMillis();
+        // 锁定任务行直到事务结束，加锁后仍已到期才处理；其他节点已顺延或已完成的跳过
+        List<String> locked = jdbcTemplate.queryForList(
+                "SELECT ID_ FROM ACT_RU_TASK WHERE ID_ = ? AND DUE_DATE_ < ? FOR UPDATE",
+                String.class, task.getId(), new Date(now));
+        if (locked.isEmpty()) return SKIPPED;
+        switch (rule.getAction()) {
+            case REASSIGN:
+                if (rule.getEscalateTo() == null || rule.getEscalateTo().equals(task.getAssignee())) {
+                    setDueDate(task, task.getAssignee(), new Date(now + rule.repeatMillis()));
+                } else {
+                    taskService.setAssignee(task.getId(), rule.getEscalateTo());
+                    setDueDate(task, rule.getEscalateTo(), new Date(now + rule.getDuration().toMillis()));
+                }
+                break;
+            case COMPLETE:
+                taskService.complete(task.getId(), rule.getVariables());
+                break;
+            case NOTIFY:
+            default:
+                setDueDate(task, task.getAssignee(), new Date(now + rule.repeatMillis()));
+                notifyAfterCommit(task, rule);
+                break;
+        }
+        meterRegistry.counter("act.sla.escalations", "taskDefinitionKey", task.getTaskDefinitionKey(),
+                "action", rule.getAction().name()).increment();
+        return rule.getAction().name();
+    }
+
+    /**
+     * 引擎不发布到期时间变更的任务事件，在同一事务内单独发布，读模型与待办缓存据此更新
+     */
+    private void setDueDate(Task task, String assignee, Date dueDate) {
+        taskService.setDueDate(task.getId(), dueDate);
+        applicationEventPublisher.publishEvent(new TaskChangedEvent(TaskChangeType.DUE_DATE_CHANGED, task.getId(),
+                task.getName(), task.getTaskDefinitionKey(), task.getProcessInstanceId(), task.getProcessDefinitionId(),
+                assignee, Collections.emptySet(), Collections.emptySet(), task.getCreateTime(), dueDate,
+                null, null, System.currentTimeMillis()));
+    }
+
+    private void notifyAfterCommit(Task task, ActProperties.Sla.Rule rule) {
+        TaskChangedEvent event = new TaskChangedEvent(TaskChangeType.OVERDUE, task.getId(), task.getName(),
+                task.getTaskDefinitionKey(), task.getProcessInstanceId(), task.getProcessDefinitionId(),
+                task.getAssignee(), Collections.emptySet(), Collections.emptySet(), task.getCreateTime(),
+                task.getDueDate(), null, null, System.currentTimeMillis());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                if (task.getAssignee() != null) taskNotificationHub.notifyUser(task.getAssignee(), event);
+                if (rule.getEscalateTo() != null) taskNotificationHub.notifyUser(rule.getEscalateTo(), event);
+            }
+        });
+    }
+}
@@ -0,0 +1,26 @@
+-- 活动耗时统计，按活动结束日期及耗时区间累计，由引擎事件增量维护
+CREATE TABLE IF NOT EXISTS act_stat_activity
+(
+    stat_date              DATE         NOT NULL,
+    process_definition_key VARCHAR(255) NOT NULL,
+    activity_id            VARCHAR(255) NOT NULL,
+    -- 耗时区间下标，见 DurationBuckets
+    duration_bucket        TINYINT      NOT NULL,
+    activity_name          VARCHAR(255),
+    cnt                    BIGINT       NOT NULL DEFAULT 0,
+    total_millis           BIGINT       NOT NULL DEFAULT 0,
+    max_millis             BIGINT       NOT NULL DEFAULT 0,
+    PRIMARY KEY (stat_date, process_definition_key, activity_id, duration_bucket)
+);
+
+-- 网关分支统计，按经过网关的日期及流向的活动累计
+CREATE TABLE IF NOT EXISTS act_stat_decision
+(
+    stat_date              DATE         NOT NULL,
+    process_definition_key VARCHAR(255) NOT NULL,
+    gateway_id             VARCHAR(255) NOT NULL,
+    target_activity_id     VARCHAR(255) NOT NULL,
+    target_activity_name   VARCHAR(255),
+    cnt                    BIGINT       NOT NULL DEFAULT 0,
+    PRIMARY KEY (stat_date, process_definition_key, gateway_id, target_activity_id)
+);
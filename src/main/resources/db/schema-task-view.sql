@@ -0,0 +1,33 @@
+-- 待办任务读模型，由引擎任务事件在同一事务内维护
+CREATE TABLE IF NOT EXISTS act_task_view
+(
+    task_id                VARCHAR(64)  NOT NULL PRIMARY KEY,
+    task_name              VARCHAR(255),
+    task_definition_key    VARCHAR(255),
+    assignee               VARCHAR(255),
+    candidate_users        VARCHAR(1000),
+    candidate_groups       VARCHAR(1000),
+    process_instance_id    VARCHAR(64),
+    process_definition_id  VARCHAR(255),
+    process_definition_key VARCHAR(255),
+    process_name           VARCHAR(255),
+    business_key           VARCHAR(255),
+    start_user_id          VARCHAR(255),
+    create_time            DATETIME(3),
+    due_date               DATETIME(3),
+    -- 代办人待办列表及计数
+    INDEX idx_task_view_assignee (assignee, create_time),
+    -- 按流程筛选
+    INDEX idx_task_view_process (process_definition_key, create_time),
+    INDEX idx_task_view_instance (process_instance_id)
+);
+
+-- 候选人 / 候选组，identity_type: U 用户, G 组
+CREATE TABLE IF NOT EXISTS act_task_view_candidate
+(
+    identity_type CHAR(1)      NOT NULL,
+    identity      VARCHAR(255) NOT NULL,
+    task_id       VARCHAR(64)  NOT NULL,
+    PRIMARY KEY (identity_type, identity, task_id),
+    INDEX idx_task_view_candidate_task (task_id)
+);
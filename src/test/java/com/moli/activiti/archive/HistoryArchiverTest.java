@@ -0,0 +1,124 @@
+package com.moli.activiti.archive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.moli.activiti.config.ActProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author moli
+ * @time 2024-08-26 10:12:40
+ * @description 归档失败路径：删除提交前归档文件必须已落地，删除失败不能丢掉归档文件
+ */
+public class HistoryArchiverTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HistoryArchiver archiver;
+
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Before
+    public void setUp() {
+        ActProperties actProperties = new ActProperties();
+        actProperties.getArchive().setDirectory(folder.getRoot().getPath());
+        actProperties.getArchive().setPauseMillis(0);
+        actProperties.getArchive().setMaxBatchesPerRun(1);
+
+        archiver = new HistoryArchiver();
+        ReflectionTestUtils.setField(archiver, "dataSource", mock(DataSource.class));
+        ReflectionTestUtils.setField(archiver, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(archiver, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(archiver, "actProperties", actProperties);
+        ReflectionTestUtils.setField(archiver, "meterRegistry", new SimpleMeterRegistry());
+        archiver.init();
+
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), any())).thenReturn(1L);
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), any()))
+                .thenReturn(Collections.singletonList("proc-1"));
+        namedJdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+        ReflectionTestUtils.setField(archiver, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(archiver, "namedJdbcTemplate", namedJdbcTemplate);
+    }
+
+    @Test
+    public void archiveFileIsInPlaceBeforeDelete() throws IOException {
+        when(namedJdbcTemplate.update(anyString(), anyMap())).thenAnswer(invocation -> {
+            assertEquals(1, files(".ndjson.gz").size());
+            assertTrue(files(".tmp").isEmpty());
+            return 1;
+        });
+
+        archiver.run();
+
+        assertNull(archiver.status().getLastError());
+        assertEquals(1, archiver.status().getArchivedInstances());
+        assertEquals(1, files(".ndjson.gz").size());
+    }
+
+    @Test
+    public void deleteFailureKeepsArchiveFile() throws IOException {
+        when(namedJdbcTemplate.update(anyString(), anyMap()))
+                .thenThrow(new DataAccessResourceFailureException("connection lost"));
+
+        archiver.run();
+
+        assertNotNull(archiver.status().getLastError());
+        assertEquals(0, archiver.status().getArchivedInstances());
+        assertEquals(1, files(".ndjson.gz").size());
+        assertTrue(files(".tmp").isEmpty());
+    }
+
+    @Test
+    public void writeFailureSkipsDelete() throws IOException {
+        doThrow(new DataAccessResourceFailureException("connection lost"))
+                .when(namedJdbcTemplate).query(anyString(), anyMap(), any(RowCallbackHandler.class));
+
+        archiver.run();
+
+        assertNotNull(archiver.status().getLastError());
+        verify(namedJdbcTemplate, never()).update(anyString(), anyMap());
+        assertTrue(files(".ndjson.gz").isEmpty());
+        assertTrue(files(".tmp").isEmpty());
+    }
+
+    private List<Path> files(String suffix) throws IOException {
+        try (Stream<Path> paths = Files.walk(folder.getRoot().toPath())) {
+            return paths.filter(path -> path.toString().endsWith(suffix)).collect(Collectors.toList());
+        }
+    }
+}